@@ -0,0 +1,35 @@
+package com.lee.cache.benchmark;
+
+/**
+ * 需要测试的Cache实现
+ */
+public enum Backend {
+    /**
+     * RocksDbCache
+     */
+    ROCKSDB,
+    /**
+     * RocksDbAnyCache
+     */
+    ROCKSDB_ANY,
+    /**
+     * LevelDbJniCache
+     */
+    LEVELDB_JNI,
+    /**
+     * LevelDbJnaCache
+     */
+    LEVELDB_JNA,
+    /**
+     * EhcacheAny
+     */
+    EHCACHE_ANY,
+    /**
+     * MemoryCache
+     */
+    MEMORY,
+    /**
+     * OffHeapCache
+     */
+    OFFHEAP
+}
@@ -0,0 +1,55 @@
+package com.lee.cache.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 按照不同的线程数依次运行基准测试，并且打开gc profiler，每个线程数的结果单独输出一个json文件，方便对比回归
+ * <p>
+ * 支持所有JMH的命令行参数(-p、-t、-prof等)，命令行里面指定了-t的时候只按照这个线程数运行一次，
+ * 没有指定-prof的时候默认打开gc profiler
+ * <p>
+ * java -Dbenchmark.threads=1,4,16 -jar target/benchmarks.jar [include regex] [JMH options]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.getThreads().hasValue()) {
+            int threadCount = cmdOptions.getThreads().get();
+            new Runner(options(cmdOptions, threadCount)).run();
+            return;
+        }
+        String[] threads = System.getProperty("benchmark.threads", "1,4,16").split(",");
+        for (String thread : threads) {
+            int threadCount = Integer.parseInt(thread.trim());
+            new Runner(options(cmdOptions, threadCount)).run();
+        }
+    }
+
+    private static Options options(CommandLineOptions cmdOptions, int threadCount) {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(cmdOptions)
+                .threads(threadCount);
+        if (cmdOptions.getIncludes().isEmpty()) {
+            builder.include(".*Benchmark.*");
+        }
+        if (cmdOptions.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result("jmh-result-" + threadCount + "-threads.json");
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.Cache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache单条和批量读写的基准测试，同时输出吞吐量和延迟分布(SampleTime模式下会输出p99等百分位)
+ * <p>
+ * 线程数通过 -t 参数指定，或者使用BenchmarkRunner按照多个线程数依次运行，例如只测试RocksDB:
+ * java -jar target/benchmarks.jar CacheBenchmark -p backend=ROCKSDB -t 8 -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CacheBenchmark {
+
+    @Param({"ROCKSDB", "ROCKSDB_ANY", "LEVELDB_JNI", "LEVELDB_JNA", "EHCACHE_ANY", "MEMORY", "OFFHEAP"})
+    public Backend backend;
+
+    @Param({"PROTOSTUFF", "KRYO", "FST", "FST_JDK", "KRYO_JDK"})
+    public SerializerType serializer;
+
+    @Param({"8", "64"})
+    public int keySize;
+
+    @Param({"128", "4096"})
+    public int valueSize;
+
+    @Param({"100000"})
+    public int keyCount;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private CacheFixture fixture;
+    private Cache<Long, Payload> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CacheFixture.open(backend, serializer, keySize, keyCount * 2);
+        fixture.load(keyCount, valueSize);
+        cache = fixture.cache();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    /**
+     * 每个线程自己的数据，避免在测量的时候创建value和批量数据
+     */
+    @State(Scope.Thread)
+    public static class ThreadData {
+
+        private Payload value;
+        private Map<Long, Payload> batch;
+        private List<Long> batchKeys;
+
+        @Setup(Level.Iteration)
+        public void setUp(CacheBenchmark benchmark) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            value = new Payload(random.nextLong(benchmark.keyCount), benchmark.valueSize);
+            batch = new HashMap<>(benchmark.batchSize * 2);
+            batchKeys = new ArrayList<>(benchmark.batchSize);
+            for (int i = 0; i < benchmark.batchSize; i++) {
+                long key = random.nextLong(benchmark.keyCount);
+                batch.put(key, value);
+                batchKeys.add(key);
+            }
+        }
+    }
+
+    @Benchmark
+    public Payload get() {
+        return cache.get(nextKey());
+    }
+
+    @Benchmark
+    public Payload put(ThreadData data) {
+        return cache.put(nextKey(), data.value);
+    }
+
+    /**
+     * 删除以后key就不存在了，对于LSM来说删除不存在的key和删除存在的key都是写入一条删除记录，所以不需要重新写入
+     */
+    @Benchmark
+    public Payload delete() {
+        return cache.delete(nextKey());
+    }
+
+    @Benchmark
+    public void putBatch(ThreadData data) {
+        cache.put(data.batch);
+    }
+
+    @Benchmark
+    public void deleteBatch(ThreadData data) {
+        cache.delete(data.batchKeys);
+    }
+
+    private long nextKey() {
+        return ThreadLocalRandom.current().nextLong(keyCount);
+    }
+}
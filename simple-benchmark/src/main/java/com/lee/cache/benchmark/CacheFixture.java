@@ -0,0 +1,158 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.Cache;
+import com.lee.cache.MemoryCache;
+import com.lee.cache.config.CacheConfiguration;
+import com.lee.cache.config.EhcacheMemoryConfiguration;
+import com.lee.cache.config.LevelDbJnaConfiguration;
+import com.lee.cache.config.LevelDbJniConfiguration;
+import com.lee.cache.config.OffHeapConfiguration;
+import com.lee.cache.config.RocksDbConfiguration;
+import com.lee.cache.manager.CacheManager;
+import com.lee.cache.serializer.Serializer;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.PersistenceConfiguration;
+import org.apache.commons.io.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 创建基准测试需要的Cache，持久化的Cache都通过CacheManager来创建，和业务代码的使用方式一致，
+ * MemoryCache没有对应的CacheManager，所以直接基于ehcache创建
+ */
+final class CacheFixture implements Closeable {
+
+    private static final String NAME = "benchmark";
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final File dir;
+    private CacheManager cacheManager;
+    private net.sf.ehcache.CacheManager ehcacheManager;
+    private Cache<Long, Payload> cache;
+
+    private CacheFixture() throws IOException {
+        this.dir = Files.createTempDirectory("simple-cache-benchmark").toFile();
+    }
+
+    static CacheFixture open(Backend backend, SerializerType serializer, int keySize, int maxEntries)
+            throws IOException {
+        CacheFixture fixture = new CacheFixture();
+        Serializer<Long> key = new PaddedKeySerializer(keySize);
+        Serializer<Payload> value = serializer.typed();
+        switch (backend) {
+            case ROCKSDB:
+                fixture.cache = fixture.fromManager(
+                        new RocksDbConfiguration<Long, Payload>()
+                                .name(NAME)
+                                .path(fixture.dir.getPath())
+                                .serializerKey(key)
+                                .serializerValue(value)
+                );
+                break;
+            case ROCKSDB_ANY:
+                fixture.cache = fixture.fromManager(
+                        new RocksDbConfiguration<Long, Payload>()
+                                .name(NAME)
+                                .path(fixture.dir.getPath())
+                                .defaultSerializer(serializer.any())
+                );
+                break;
+            case LEVELDB_JNI:
+                fixture.cache = fixture.fromManager(
+                        new LevelDbJniConfiguration<Long, Payload>()
+                                .name(NAME)
+                                .path(fixture.dir.getPath())
+                                .serializerKey(key)
+                                .serializerValue(value)
+                );
+                break;
+            case LEVELDB_JNA:
+                fixture.cache = fixture.fromManager(
+                        new LevelDbJnaConfiguration<Long, Payload>()
+                                .name(NAME)
+                                .path(fixture.dir.getPath())
+                                .serializerKey(key)
+                                .serializerValue(value)
+                );
+                break;
+            case EHCACHE_ANY:
+                fixture.cache = fixture.fromManager(
+                        new EhcacheMemoryConfiguration<Long, Payload>()
+                                .name(NAME)
+                                .path(fixture.dir.getPath())
+                                .maxEntriesInMemory(maxEntries)
+                                .evictionPolicy(CacheConfiguration.EvictionPolicy.LRU)
+                                .serializerKey(key)
+                                .serializerValue(value)
+                );
+                break;
+            case OFFHEAP:
+                fixture.cache = fixture.fromManager(
+                        new OffHeapConfiguration<Long, Payload>()
+                                .name(NAME)
+                                .path(fixture.dir.getPath())
+                                .maxBytes(1, CacheConfiguration.Unit.GB)
+                                .serializerKey(key)
+                                .serializerValue(value)
+                );
+                break;
+            case MEMORY:
+            default:
+                fixture.ehcacheManager = net.sf.ehcache.CacheManager.newInstance(new Configuration().name(NAME));
+                fixture.ehcacheManager.addCache(new net.sf.ehcache.Cache(
+                        new net.sf.ehcache.config.CacheConfiguration()
+                                .name(NAME)
+                                .maxEntriesLocalHeap(maxEntries)
+                                .persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
+                ));
+                fixture.cache = new MemoryCache<>(fixture.ehcacheManager.getCache(NAME), key, value);
+        }
+        return fixture;
+    }
+
+    Cache<Long, Payload> cache() {
+        return cache;
+    }
+
+    /**
+     * 按照批量的方式预先写入keyCount条数据，key的范围是[0, keyCount)
+     */
+    void load(int keyCount, int valueSize) {
+        Map<Long, Payload> batch = new HashMap<>(LOAD_BATCH_SIZE * 2);
+        for (long i = 0; i < keyCount; i++) {
+            batch.put(i, new Payload(i, valueSize));
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                cache.put(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            cache.put(batch);
+        }
+    }
+
+    private Cache<Long, Payload> fromManager(CacheConfiguration<Long, Payload> configuration) {
+        cacheManager = CacheManager.newCacheManager();
+        return cacheManager.getCache(configuration);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (cacheManager != null) {
+                cacheManager.close();
+            }
+            if (ehcacheManager != null) {
+                cache.close();
+                ehcacheManager.shutdown();
+            }
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.Cache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * consume* 全量遍历的基准测试，只有持久化的Cache实现了全部的consume*方法，所以这里只测试它们
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CacheScanBenchmark {
+
+    @Param({"ROCKSDB", "ROCKSDB_ANY", "LEVELDB_JNI", "LEVELDB_JNA"})
+    public Backend backend;
+
+    @Param({"PROTOSTUFF", "KRYO", "FST", "FST_JDK", "KRYO_JDK"})
+    public SerializerType serializer;
+
+    @Param({"8"})
+    public int keySize;
+
+    @Param({"128"})
+    public int valueSize;
+
+    @Param({"100000"})
+    public int keyCount;
+
+    private CacheFixture fixture;
+    private Cache<Long, Payload> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = CacheFixture.open(backend, serializer, keySize, keyCount);
+        fixture.load(keyCount, valueSize);
+        cache = fixture.cache();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void consume(Blackhole blackhole) {
+        cache.consume((key, value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public void consumeKey(Blackhole blackhole) {
+        cache.consumeKey(blackhole::consume);
+    }
+
+    @Benchmark
+    public void consumeValue(Blackhole blackhole) {
+        cache.consumeValue(blackhole::consume);
+    }
+}
@@ -0,0 +1,32 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.serializer.BaseSerAndDeser;
+import com.lee.cache.serializer.PrimitiveCodec;
+
+/**
+ * 为了能够指定key的大小，把long按照大端的方式写入到keySize字节的最后8个字节里面，前面的字节用0填充
+ */
+public class PaddedKeySerializer extends BaseSerAndDeser<Long> {
+
+    private final int keySize;
+
+    public PaddedKeySerializer(int keySize) {
+        super(Long.class);
+        if (keySize < Long.BYTES) {
+            throw new IllegalArgumentException("keySize must not be less than " + Long.BYTES);
+        }
+        this.keySize = keySize;
+    }
+
+    @Override
+    public byte[] serialize(Long key) {
+        byte[] bytes = new byte[keySize];
+        PrimitiveCodec.putLong(bytes, keySize - Long.BYTES, key);
+        return bytes;
+    }
+
+    @Override
+    public Long deserialize(byte[] bytes) {
+        return PrimitiveCodec.getLong(bytes, bytes.length - Long.BYTES);
+    }
+}
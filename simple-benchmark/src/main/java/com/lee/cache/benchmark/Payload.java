@@ -0,0 +1,32 @@
+package com.lee.cache.benchmark;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基准测试使用的value，data的长度就是valueSize，实现Serializable是为了FstJdkSerializer和KryoJdkSerializer也可以序列化
+ */
+public class Payload implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long id;
+    private byte[] data;
+
+    public Payload() {
+    }
+
+    public Payload(long id, int valueSize) {
+        this.id = id;
+        this.data = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(this.data);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,53 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.serializer.DefaultSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DefaultSerializer里面基本数据类型序列化器的基准测试，基本数据类型一般都是作为key来使用的
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PrimitiveSerializerBenchmark {
+
+    private final byte[] longBytes = DefaultSerializer.LONG_SERIALIZER.serialize(Long.MAX_VALUE);
+    private final byte[] intBytes = DefaultSerializer.INTEGER_SERIALIZER.serialize(Integer.MAX_VALUE);
+    private final byte[] doubleBytes = DefaultSerializer.DOUBLE_SERIALIZER.serialize(Double.MAX_VALUE);
+
+    @Benchmark
+    public byte[] serializeLong() {
+        return DefaultSerializer.LONG_SERIALIZER.serialize(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public Long deserializeLong() {
+        return DefaultSerializer.LONG_SERIALIZER.deserialize(longBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeInteger() {
+        return DefaultSerializer.INTEGER_SERIALIZER.serialize(ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    public Integer deserializeInteger() {
+        return DefaultSerializer.INTEGER_SERIALIZER.deserialize(intBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeDouble() {
+        return DefaultSerializer.DOUBLE_SERIALIZER.serialize(ThreadLocalRandom.current().nextDouble());
+    }
+
+    @Benchmark
+    public Double deserializeDouble() {
+        return DefaultSerializer.DOUBLE_SERIALIZER.deserialize(doubleBytes);
+    }
+}
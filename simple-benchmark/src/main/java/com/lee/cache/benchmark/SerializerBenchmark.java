@@ -0,0 +1,45 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.serializer.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单独测试序列化器本身的开销，配合 -prof gc 可以看到每次序列化分配了多少字节
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"PROTOSTUFF", "KRYO", "FST", "FST_JDK", "KRYO_JDK"})
+    public SerializerType serializer;
+
+    @Param({"128", "4096"})
+    public int valueSize;
+
+    private Serializer<Payload> valueSerializer;
+    private Payload value;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        valueSerializer = serializer.typed();
+        value = new Payload(1L, valueSize);
+        serialized = valueSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return valueSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Payload deserialize() {
+        return valueSerializer.deserialize(serialized);
+    }
+}
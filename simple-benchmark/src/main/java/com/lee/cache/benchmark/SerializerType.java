@@ -0,0 +1,86 @@
+package com.lee.cache.benchmark;
+
+import com.lee.cache.serializer.Serializer;
+import com.lee.cache.serializer.fst.FstJdkSerializer;
+import com.lee.cache.serializer.fst.FstSerializer;
+import com.lee.cache.serializer.kryo.KryoJdkSerializer;
+import com.lee.cache.serializer.kryo.KryoSerializer;
+import com.lee.cache.serializer.protostuff.ProtoStuffSerializer;
+
+/**
+ * 基准测试里面可以选择的value序列化器
+ * <p>
+ * typed() 给指定了类型的Cache使用(RocksDbCache, LevelDbJniCache ...)，any() 给可以存储任何对象的Cache使用
+ * (RocksDbAnyCache ...)，protostuff是基于Schema的，不能够序列化任意对象，所以any()退回到Configuration默认的FstJdkSerializer
+ */
+public enum SerializerType {
+
+    PROTOSTUFF {
+        @Override
+        public Serializer<Payload> typed() {
+            return new ProtoStuffSerializer<>(Payload.class);
+        }
+
+        @Override
+        public Serializer<Object> any() {
+            return new FstJdkSerializer();
+        }
+    },
+
+    KRYO {
+        @Override
+        public Serializer<Payload> typed() {
+            return new KryoSerializer<>(Payload.class);
+        }
+
+        @Override
+        public Serializer<Object> any() {
+            return new KryoSerializer<>(Object.class);
+        }
+    },
+
+    FST {
+        @Override
+        public Serializer<Payload> typed() {
+            return new FstSerializer<>(Payload.class);
+        }
+
+        @Override
+        public Serializer<Object> any() {
+            return new FstSerializer<>(Object.class);
+        }
+    },
+
+    FST_JDK {
+        @Override
+        public Serializer<Payload> typed() {
+            return cast(any());
+        }
+
+        @Override
+        public Serializer<Object> any() {
+            return new FstJdkSerializer();
+        }
+    },
+
+    KRYO_JDK {
+        @Override
+        public Serializer<Payload> typed() {
+            return cast(any());
+        }
+
+        @Override
+        public Serializer<Object> any() {
+            return new KryoJdkSerializer(false);
+        }
+    };
+
+    public abstract Serializer<Payload> typed();
+
+    public abstract Serializer<Object> any();
+
+    @SuppressWarnings("unchecked")
+    private static Serializer<Payload> cast(Serializer<?> serializer) {
+        return (Serializer<Payload>) serializer;
+    }
+}
@@ -1,8 +1,16 @@
 package com.lee.cache.manager;
 
+import com.lee.cache.AsyncCache;
 import com.lee.cache.BaseCache;
 import com.lee.cache.Cache;
+import com.lee.cache.CounterCache;
+import com.lee.cache.ExecutorAsyncCache;
+import com.lee.cache.ExpiringCache;
+import com.lee.cache.MetricsCache;
+import com.lee.cache.TieredCache;
+import com.lee.cache.WriteBehindCache;
 import com.lee.cache.config.CacheConfiguration;
+import com.lee.cache.config.CacheType;
 import com.lee.cache.config.Configuration;
 import com.lee.cache.exception.CacheException;
 import lombok.extern.slf4j.Slf4j;
@@ -13,12 +21,29 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 @Slf4j
 abstract class BaseCacheManager implements CacheManager {
 
+    private static final int ASYNC_QUEUE_SIZE = 16 * 1024;
+
+    /**
+     * 开启过期的cache在path下面有一个 name + EXPIRY_MARKER 的标记文件
+     */
+    private static final String EXPIRY_MARKER = ".expiry";
+
     private final Object lock = new Object();
     private final Map<String, Cache> caches;
+    private final Map<String, CounterCache<?>> counters = new HashMap<>();
+
+    private volatile Executor asyncExecutor;
 
     private volatile boolean isClose;
 
@@ -45,17 +70,69 @@ abstract class BaseCacheManager implements CacheManager {
                 if ((cache = caches.get(name)) != null) {
                     return cache;
                 }
+                if (counters.containsKey(name)) {
+                    throw new CacheException("Cache " + name + " has been used as a counter cache");
+                }
                 caches.put(name, cache = createCache((Configuration<K, V>) configuration));
             }
         } else {
-            validateCache((BaseCache<K, V>) cache, (Configuration<K, V>) configuration);
+            validateCache((BaseCache<K, V>) unwrap(cache), (Configuration<K, V>) configuration);
         }
         return cache;
     }
 
+    @Override
+    public <K, V> AsyncCache<K, V> getAsyncCache(CacheConfiguration<K, V> configuration) {
+        Cache<K, V> cache = getCache(configuration);
+        Executor executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (lock) {
+                if ((executor = asyncExecutor) == null) {
+                    asyncExecutor = executor = createAsyncExecutor();
+                }
+            }
+        }
+        return new ExecutorAsyncCache<>(cache, executor);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K> CounterCache<K> getCounterCache(CacheConfiguration<K, Long> configuration) {
+        if (StringUtils.isBlank(configuration.path())) {
+            throw new IllegalArgumentException("Cache persistence path cannot be null or empty.");
+        }
+
+        String name = configuration.name();
+        if (StringUtils.isBlank(name) || isClose) {
+            throw new IllegalArgumentException("CacheManager is close or Cache name cannot be null or empty.");
+        }
+        synchronized (lock) {
+            CounterCache<K> counter = (CounterCache<K>) counters.get(name);
+            if (counter == null) {
+                if (caches.containsKey(name)) {
+                    throw new CacheException("Cache " + name + " has been used as a normal cache");
+                }
+                prepareEnv(configuration);
+                counters.put(name, counter = createCounterCache(configuration));
+            }
+            return counter;
+        }
+    }
+
     @Override
     public void close() {
         isClose = true;
+        if (asyncExecutor instanceof ExecutorService) {
+            ExecutorService executor = (ExecutorService) asyncExecutor;
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Timeout to wait async operations of {} to finish", getClass().getSimpleName());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         for (Map.Entry<String, Cache> entry : caches.entrySet()) {
             Cache cache = entry.getValue();
             try {
@@ -65,9 +142,123 @@ abstract class BaseCacheManager implements CacheManager {
             }
         }
         caches.clear();
+        for (Map.Entry<String, CounterCache<?>> entry : counters.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                log.error("Can not close counter cache " + entry.getKey(), e);
+            }
+        }
+        counters.clear();
     }
 
-    private <K, V> Cache<K, V> createCache(CacheConfiguration<K, V> configuration) {
+    private <K, V> Cache<K, V> createCache(Configuration<K, V> configuration) {
+        boolean expiry = configuration.getExpirySweepIntervalMillis() > 0;
+        if (expiry) {
+            validateExpiry(configuration);
+        }
+        BaseCache<K, V> backend = (BaseCache<K, V>) createBackend(configuration);
+        checkExpiryFormat(configuration, backend, expiry);
+        Cache<K, V> cache = backend;
+        if (expiry) {
+            cache = new ExpiringCache<>(backend, configuration.getExpirySweepIntervalMillis());
+        }
+        if (configuration.isMetrics()) {
+            cache = new MetricsCache<>(cache, backend);
+        }
+        if (configuration.getWriteBehindBatchSize() > 0) {
+            cache = new WriteBehindCache<>(
+                    cache, configuration.getWriteBehindBatchSize(), configuration.getWriteBehindIntervalMillis()
+            );
+        }
+        if (configuration.getNearCacheSize() > 0) {
+            cache = new TieredCache<>(cache, configuration.getNearCacheSize());
+        }
+        return cache;
+    }
+
+    /**
+     * 去掉近端缓存、异步写入、统计和过期的包装，拿到真正的底层cache
+     */
+    private <K, V> Cache<K, V> unwrap(Cache<K, V> cache) {
+        if (cache instanceof TieredCache) {
+            return unwrap(((TieredCache<K, V>) cache).getDelegate());
+        }
+        if (cache instanceof WriteBehindCache) {
+            return unwrap(((WriteBehindCache<K, V>) cache).getDelegate());
+        }
+        if (cache instanceof MetricsCache) {
+            return unwrap(((MetricsCache<K, V>) cache).getDelegate());
+        }
+        if (cache instanceof ExpiringCache) {
+            return unwrap(((ExpiringCache<K, V>) cache).getDelegate());
+        }
+        return cache;
+    }
+
+    /**
+     * 过期时间写在value的header里面，只有序列化以后存储的后端才能支持；
+     * 近端缓存不知道entry的过期时间，会一直返回已经过期的数据
+     */
+    private <K, V> void validateExpiry(Configuration<K, V> configuration) {
+        CacheType type = configuration.cache();
+        if (type != CacheType.ROCKSDB && type != CacheType.LEVELDBJNI && type != CacheType.LEVELDBJNA) {
+            throw new CacheException("Cache " + configuration.name() + " of " + type + " does not support expiry");
+        }
+        if (configuration.isAutoDetect()) {
+            throw new CacheException("Cache " + configuration.name()
+                    + " with default serializer does not support expiry, please specify key and value type");
+        }
+        if (configuration.getNearCacheSize() > 0) {
+            throw new CacheException("Cache " + configuration.name() + " can not use near cache with expiry");
+        }
+    }
+
+    /**
+     * 开启过期以后每个value前面都有过期时间的header，和没有header的数据不能混着读写，
+     * 所以用path下面的标记文件记录这个cache的存储格式，已经有数据的cache和这次打开的格式不一致的时候拒绝打开，
+     * 空的cache直接按照这次的配置更新标记
+     */
+    private <K, V> void checkExpiryFormat(Configuration<K, V> configuration, BaseCache<K, V> backend, boolean expiry) {
+        CacheType type = configuration.cache();
+        if (type != CacheType.ROCKSDB && type != CacheType.LEVELDBJNI && type != CacheType.LEVELDBJNA) {
+            return;
+        }
+        File marker = new File(configuration.path(), configuration.name() + EXPIRY_MARKER);
+        if (marker.exists() == expiry) {
+            return;
+        }
+        boolean empty;
+        try (Stream<K> keys = backend.keys()) {
+            empty = !keys.findAny().isPresent();
+        }
+        if (!empty) {
+            closeBackend(configuration, backend);
+            throw new CacheException("Cache " + configuration.name() + " is not empty and was written "
+                    + (expiry ? "without" : "with") + " expiry, can not open it "
+                    + (expiry ? "with" : "without") + " expiry");
+        }
+        try {
+            if (expiry) {
+                FileUtils.touch(marker);
+            } else {
+                FileUtils.forceDelete(marker);
+            }
+        } catch (IOException e) {
+            closeBackend(configuration, backend);
+            throw new CacheException("Can not update expiry marker " + marker, e);
+        }
+    }
+
+    private <K, V> void closeBackend(Configuration<K, V> configuration, BaseCache<K, V> backend) {
+        try {
+            backend.close();
+        } catch (IOException e) {
+            log.error("Can not close cache " + configuration.name(), e);
+        }
+    }
+
+    private <K, V> Cache<K, V> createBackend(CacheConfiguration<K, V> configuration) {
         prepareEnv(configuration);
         switch (configuration.cache()) {
             case LEVELDBJNI:
@@ -78,6 +269,8 @@ abstract class BaseCacheManager implements CacheManager {
                 return createRocksDb(configuration);
             case EHCACHE:
                 return createEhcache(configuration);
+            case OFFHEAP:
+                return createOffHeap(configuration);
             case EHCACHE_MEMORY:
             default:
                 return createMemory(configuration);
@@ -136,6 +329,39 @@ abstract class BaseCacheManager implements CacheManager {
         return null;
     }
 
+    protected <K, V> Cache<K, V> createOffHeap(CacheConfiguration<K, V> configuration) {
+        return null;
+    }
+
+    protected <K> CounterCache<K> createCounterCache(CacheConfiguration<K, Long> configuration) {
+        throw new CacheException("Cache " + configuration.name() + " of " + configuration.cache()
+                + " does not support counter cache");
+    }
+
+    /**
+     * 异步操作使用的IO线程池，JNI调用会把虚拟线程钉在载体线程上，所以这里用的是有界的平台线程池，
+     * 队列满了直接拒绝，避免请求无限堆积
+     * <p>
+     * 核心线程不会因为空闲而退出，线程里面缓存了DirectBuffers、NativeResources这些线程私有的JNI对象，
+     * 线程退出以后没有人关闭它们，反复创建线程就会不断泄露
+     */
+    protected Executor createAsyncExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        String prefix = getClass().getSimpleName() + "-async-";
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, prefix + index.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        return executor;
+    }
+
     private <K, V> void prepareEnv(CacheConfiguration<K, V> config) {
         try {
             FileUtils.forceMkdir(new File(config.path()));
@@ -1,7 +1,14 @@
 package com.lee.cache.manager;
 
+import com.lee.cache.AsyncCache;
 import com.lee.cache.Cache;
+import com.lee.cache.CounterCache;
+import com.lee.cache.IntObjectCache;
+import com.lee.cache.LongLongCache;
+import com.lee.cache.LongObjectCache;
+import com.lee.cache.MetricsCache;
 import com.lee.cache.config.CacheConfiguration;
+import com.lee.cache.exception.CacheException;
 
 import java.io.Closeable;
 
@@ -9,6 +16,46 @@ public interface CacheManager extends Closeable {
 
     <K, V> Cache<K, V> getCache(CacheConfiguration<K, V> configuration);
 
+    /**
+     * 获取Cache的异步视图，同一个类型的后端共用一个有界的IO线程池
+     */
+    <K, V> AsyncCache<K, V> getAsyncCache(CacheConfiguration<K, V> configuration);
+
+    /**
+     * 获取计数器，目前只有RocksDB支持，和Cache共用name的命名空间，同一个name不能同时作为Cache和计数器
+     */
+    <K> CounterCache<K> getCounterCache(CacheConfiguration<K, Long> configuration);
+
+    /**
+     * 获取key是long的Cache，需要配置里面指定key的类型是Long，并且没有指定key的序列化器；
+     * 可以开启统计，但是不能和过期、异步写入、近端缓存一起使用，原始类型的读写会绕过它们
+     */
+    @SuppressWarnings("unchecked")
+    default <V> LongObjectCache<V> getLongCache(CacheConfiguration<Long, V> configuration) {
+        Cache<Long, V> cache = MetricsCache.unwrap(getCache(configuration));
+        if (cache instanceof LongObjectCache) {
+            return (LongObjectCache<V>) cache;
+        }
+        throw new CacheException("Cache " + configuration.name() + " can not use primitive long key : " + cache);
+    }
+
+    @SuppressWarnings("unchecked")
+    default <V> IntObjectCache<V> getIntCache(CacheConfiguration<Integer, V> configuration) {
+        Cache<Integer, V> cache = MetricsCache.unwrap(getCache(configuration));
+        if (cache instanceof IntObjectCache) {
+            return (IntObjectCache<V>) cache;
+        }
+        throw new CacheException("Cache " + configuration.name() + " can not use primitive int key : " + cache);
+    }
+
+    default LongLongCache getLongLongCache(CacheConfiguration<Long, Long> configuration) {
+        Cache<Long, Long> cache = MetricsCache.unwrap(getCache(configuration));
+        if (cache instanceof LongLongCache) {
+            return (LongLongCache) cache;
+        }
+        throw new CacheException("Cache " + configuration.name() + " can not use primitive long key and value : " + cache);
+    }
+
     static CacheManager newCacheManager() {
         return new ProxyCacheManager();
     }
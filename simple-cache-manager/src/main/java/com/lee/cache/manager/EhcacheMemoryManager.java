@@ -3,6 +3,8 @@ package com.lee.cache.manager;
 import com.lee.cache.Cache;
 import com.lee.cache.Ehcache;
 import com.lee.cache.EhcacheAny;
+import com.lee.cache.EhcacheIntCache;
+import com.lee.cache.EhcacheLongCache;
 import com.lee.cache.config.CacheConfiguration;
 import com.lee.cache.config.EhcacheMemoryConfiguration;
 import com.lee.cache.serializer.Serializer;
@@ -13,6 +15,8 @@ import net.sf.ehcache.config.MemoryUnit;
 import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 
+import java.util.concurrent.Executor;
+
 public class EhcacheMemoryManager extends BaseCacheManager {
 
     private net.sf.ehcache.CacheManager cacheManager;
@@ -46,6 +50,8 @@ public class EhcacheMemoryManager extends BaseCacheManager {
             EhcacheAny<K, V> ehcache;
             if (key != null && value != null) {
                 ehcache = new EhcacheAny<>(getCacheManager(config).getCache(config.name()), key, value);
+            } else if (key == null && (Long.class.equals(config.key()) || Integer.class.equals(config.key()))) {
+                ehcache = createPrimitiveCache(getCacheManager(config).getCache(config.name()), config);
             } else {
                 if (value != null) {
                     ehcache = new EhcacheAny<>(getCacheManager(config).getCache(config.name()), config.key(), value);
@@ -59,6 +65,17 @@ public class EhcacheMemoryManager extends BaseCacheManager {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private <K, V> EhcacheAny<K, V> createPrimitiveCache(net.sf.ehcache.Cache cache, EhcacheMemoryConfiguration<K, V> config) {
+        Serializer<V> value = config.getSerializerValue();
+        if (Long.class.equals(config.key())) {
+            return (EhcacheAny<K, V>) (value != null
+                    ? new EhcacheLongCache<>(cache, value) : new EhcacheLongCache<>(cache, config.value()));
+        }
+        return (EhcacheAny<K, V>) (value != null
+                ? new EhcacheIntCache<>(cache, value) : new EhcacheIntCache<>(cache, config.value()));
+    }
+
     protected <K, V> CacheManager getCacheManager(CacheConfiguration<K, V> config) {
         if (cacheManager == null) {
             cacheManager = CacheManager.create(
@@ -82,4 +99,12 @@ public class EhcacheMemoryManager extends BaseCacheManager {
                 throw new IllegalArgumentException("Can not recognize this unit " + unit);
         }
     }
+
+    /**
+     * 数据都在内存里面，读写不会阻塞，直接在调用线程里面执行，省掉线程切换
+     */
+    @Override
+    protected Executor createAsyncExecutor() {
+        return Runnable::run;
+    }
 }
@@ -23,11 +23,13 @@ public class LevelDbJnaManager extends BaseCacheManager {
         LevelDbJnaConfiguration<K, V> config = (LevelDbJnaConfiguration<K, V>) configuration;
 
         if (config.isAutoDetect()) {
-            return new LevelDbJnaAnyCache<>(createDb(config), config.getDefaultSerializer(),
+            LevelDbJnaAnyCache<K, V> levelDbAny = new LevelDbJnaAnyCache<>(createDb(config), config.getDefaultSerializer(),
                     config.isTruncate(),
                     config.path(),
                     configuration.name()
             );
+            levelDbAny.sync(config.isSync());
+            return levelDbAny;
         }
 
         Serializer<K> key = config.getSerializerKey();
@@ -44,6 +46,7 @@ public class LevelDbJnaManager extends BaseCacheManager {
             }
         }
 
+        levelDbCache.sync(config.isSync());
         if (config.isTruncate()) {
             //如果truncate配置true，那么意思就是说需要要db名字为name的清空
             levelDbCache.truncate(config.isTruncate(), config.path(), config.name());
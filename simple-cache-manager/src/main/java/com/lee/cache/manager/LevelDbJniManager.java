@@ -3,12 +3,21 @@ package com.lee.cache.manager;
 import com.lee.cache.Cache;
 import com.lee.cache.LevelDbJniAnyCache;
 import com.lee.cache.LevelDbJniCache;
+import com.lee.cache.LevelDbJniIntCache;
+import com.lee.cache.LevelDbJniLongCache;
+import com.lee.cache.LevelDbJniLongLongCache;
 import com.lee.cache.config.CacheConfiguration;
 import com.lee.cache.config.LevelDbJniConfiguration;
 import com.lee.cache.exception.CacheException;
 import com.lee.cache.serializer.Serializer;
 import lombok.extern.slf4j.Slf4j;
 import org.fusesource.leveldbjni.JniDBFactory;
+import org.fusesource.leveldbjni.internal.JniDB;
+import org.fusesource.leveldbjni.internal.NativeCache;
+import org.fusesource.leveldbjni.internal.NativeCompressionType;
+import org.fusesource.leveldbjni.internal.NativeDB;
+import org.fusesource.leveldbjni.internal.NativeOptions;
+import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.Options;
 
@@ -21,16 +30,24 @@ import java.io.IOException;
 @Slf4j
 public class LevelDbJniManager extends BaseCacheManager {
 
+    /**
+     * manager级别的block cache，配置了内存预算以后所有的LevelDB共用，都是在BaseCacheManager的锁里面访问的
+     */
+    private NativeCache budgetCache;
+    private long memoryBudget;
+
     @Override
     protected <K, V> Cache<K, V> createLevelDbJni(CacheConfiguration<K, V> configuration) {
         LevelDbJniConfiguration<K, V> config = (LevelDbJniConfiguration<K, V>) configuration;
 
         if (config.isAutoDetect()) {
-            return new LevelDbJniAnyCache<>(createDb(config), config.getDefaultSerializer(),
+            LevelDbJniAnyCache<K, V> levelDbAny = new LevelDbJniAnyCache<>(createDb(config), config.getDefaultSerializer(),
                     config.isTruncate(),
                     config.path(),
                     configuration.name()
             );
+            levelDbAny.sync(config.isSync());
+            return levelDbAny;
         }
 
         Serializer<K> key = config.getSerializerKey();
@@ -40,6 +57,8 @@ public class LevelDbJniManager extends BaseCacheManager {
 
         if (key != null && value != null) {
             levelDbCache = new LevelDbJniCache<>(createDb(config), key, value);
+        } else if (key == null && isPrimitiveKey(config)) {
+            levelDbCache = createPrimitiveCache(createDb(config), config);
         } else {
             if (value != null) {
                 levelDbCache = new LevelDbJniCache<>(createDb(config), config.key(), value);
@@ -48,22 +67,97 @@ public class LevelDbJniManager extends BaseCacheManager {
             }
         }
 
+        levelDbCache.sync(config.isSync());
         if (config.isTruncate()) {
             levelDbCache.truncate(config.isTruncate(), config.path(), configuration.name());
         }
         return levelDbCache;
     }
 
+    private <K, V> boolean isPrimitiveKey(LevelDbJniConfiguration<K, V> config) {
+        return Long.class.equals(config.key()) || Integer.class.equals(config.key());
+    }
+
+    /**
+     * key是long或者int的时候创建可以直接使用基本数据类型读写的Cache
+     */
+    @SuppressWarnings("unchecked")
+    private <K, V> LevelDbJniCache<K, V> createPrimitiveCache(DB db, LevelDbJniConfiguration<K, V> config) {
+        Serializer<V> value = config.getSerializerValue();
+        if (Long.class.equals(config.key())) {
+            if (value == null && Long.class.equals(config.value())) {
+                return (LevelDbJniCache<K, V>) new LevelDbJniLongLongCache(db);
+            }
+            return (LevelDbJniCache<K, V>) (value != null
+                    ? new LevelDbJniLongCache<>(db, value) : new LevelDbJniLongCache<>(db, config.value()));
+        }
+        return (LevelDbJniCache<K, V>) (value != null
+                ? new LevelDbJniIntCache<>(db, value) : new LevelDbJniIntCache<>(db, config.value()));
+    }
+
     private <K, V> DB createDb(LevelDbJniConfiguration<K, V> config) {
         DB db;
         try {
-            db = JniDBFactory.factory.open(new File(config.path(), config.name()), createOptions(config));
+            File file = new File(config.path(), config.name());
+            NativeCache blockCache = getBudgetCache(config);
+            if (blockCache == null) {
+                db = JniDBFactory.factory.open(file, createOptions(config));
+            } else {
+                //JniDBFactory每个LevelDB都会创建自己的cache，所以这里直接用NativeDB打开，
+                //传给JniDB的cache是null，关闭LevelDB的时候不会释放共用的cache，由manager关闭的时候释放
+                db = new JniDB(NativeDB.open(createNativeOptions(createOptions(config), blockCache), file), null, null, null);
+            }
         } catch (IOException e) {
             throw new CacheException("Can not create LevelDB for " + config.name(), e);
         }
         return db;
     }
 
+    /**
+     * 第一个配置了内存预算的cache创建manager级别的block cache，之后打开的LevelDB都使用它
+     */
+    private <K, V> NativeCache getBudgetCache(LevelDbJniConfiguration<K, V> config) {
+        if (config.getMemoryBudget() > 0) {
+            if (budgetCache == null) {
+                memoryBudget = config.getMemoryBudget();
+                budgetCache = new NativeCache(memoryBudget);
+            } else if (memoryBudget != config.getMemoryBudget()) {
+                log.warn("LevelDB memory budget has been set to {}, ignore memory budget {} of cache {}",
+                        memoryBudget, config.getMemoryBudget(), config.name());
+            }
+        }
+        return budgetCache;
+    }
+
+    /**
+     * 和JniDBFactory里面的转换一致，只是cache换成了共用的
+     */
+    private NativeOptions createNativeOptions(Options options, NativeCache blockCache) {
+        return new NativeOptions()
+                .blockRestartInterval(options.blockRestartInterval())
+                .blockSize(options.blockSize())
+                .createIfMissing(options.createIfMissing())
+                .errorIfExists(options.errorIfExists())
+                .maxOpenFiles(options.maxOpenFiles())
+                .paranoidChecks(options.paranoidChecks())
+                .writeBufferSize(options.writeBufferSize())
+                .compression(options.compressionType() == CompressionType.SNAPPY
+                        ? NativeCompressionType.kSnappyCompression : NativeCompressionType.kNoCompression)
+                .cache(blockCache);
+    }
+
+    /**
+     * cache都关闭以后才能释放共用的block cache
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (budgetCache != null) {
+            budgetCache.delete();
+            budgetCache = null;
+        }
+    }
+
     private <K, V> Options createOptions(LevelDbJniConfiguration<K, V> config) {
         return new Options()
                 .createIfMissing(config.isCreatedIfMissing())
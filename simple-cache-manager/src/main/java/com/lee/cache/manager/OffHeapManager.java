@@ -0,0 +1,47 @@
+package com.lee.cache.manager;
+
+import com.lee.cache.Cache;
+import com.lee.cache.OffHeapCache;
+import com.lee.cache.OffHeapStore;
+import com.lee.cache.config.CacheConfiguration;
+import com.lee.cache.config.OffHeapConfiguration;
+import com.lee.cache.serializer.Serializer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 每一个cache一个独立的OffHeapStore，堆外内存的大小按照cache来配置
+ */
+@Slf4j
+public class OffHeapManager extends BaseCacheManager {
+
+    @Override
+    protected <K, V> Cache<K, V> createOffHeap(CacheConfiguration<K, V> configuration) {
+        OffHeapConfiguration<K, V> config = (OffHeapConfiguration<K, V>) configuration;
+        OffHeapStore store = new OffHeapStore(config.getMaxBytes(), config.getConcurrency());
+        log.info("Create off-heap cache {} with {} bytes", config.name(), config.getMaxBytes());
+
+        if (config.isAutoDetect()) {
+            return new OffHeapCache<>(store, config.getDefaultSerializer());
+        }
+
+        Serializer<K> key = config.getSerializerKey();
+        Serializer<V> value = config.getSerializerValue();
+        if (key != null && value != null) {
+            return new OffHeapCache<>(store, key, value);
+        } else if (value != null) {
+            return new OffHeapCache<>(store, config.key(), value);
+        } else {
+            return new OffHeapCache<>(store, config.key(), config.value());
+        }
+    }
+
+    /**
+     * 数据都在内存里面，读写不会阻塞，直接在调用线程里面执行，省掉线程切换
+     */
+    @Override
+    protected Executor createAsyncExecutor() {
+        return Runnable::run;
+    }
+}
@@ -1,6 +1,8 @@
 package com.lee.cache.manager;
 
+import com.lee.cache.AsyncCache;
 import com.lee.cache.Cache;
+import com.lee.cache.CounterCache;
 import com.lee.cache.config.CacheConfiguration;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,7 +23,21 @@ public class ProxyCacheManager implements CacheManager {
     private final Map<String, CacheManager> cacheManagers = new HashMap<>();
 
     @Override
-    public synchronized <K, V> Cache<K, V> getCache(CacheConfiguration<K, V> config) {
+    public <K, V> Cache<K, V> getCache(CacheConfiguration<K, V> config) {
+        return getCacheManager(config).getCache(config);
+    }
+
+    @Override
+    public <K, V> AsyncCache<K, V> getAsyncCache(CacheConfiguration<K, V> config) {
+        return getCacheManager(config).getAsyncCache(config);
+    }
+
+    @Override
+    public <K> CounterCache<K> getCounterCache(CacheConfiguration<K, Long> config) {
+        return getCacheManager(config).getCounterCache(config);
+    }
+
+    private synchronized CacheManager getCacheManager(CacheConfiguration<?, ?> config) {
         CacheManager cacheManager;
         String name = config.cache().name();
         if ((cacheManager = cacheManagers.get(name)) == null) {
@@ -38,13 +54,16 @@ public class ProxyCacheManager implements CacheManager {
                 case EHCACHE:
                     cacheManager = new EhcacheManager();
                     break;
+                case OFFHEAP:
+                    cacheManager = new OffHeapManager();
+                    break;
                 case EHCACHE_MEMORY:
                 default:
                     cacheManager = new EhcacheMemoryManager();
             }
             cacheManagers.put(name, cacheManager);
         }
-        return cacheManager.getCache(config);
+        return cacheManager;
     }
 
     @Override
@@ -1,19 +1,32 @@
 package com.lee.cache.manager;
 
 import com.lee.cache.Cache;
+import com.lee.cache.CounterCache;
 import com.lee.cache.RocksDbAnyCache;
 import com.lee.cache.RocksDbCache;
+import com.lee.cache.RocksDbCounterCache;
+import com.lee.cache.RocksDbIntCache;
+import com.lee.cache.RocksDbLongCache;
+import com.lee.cache.RocksDbLongLongCache;
 import com.lee.cache.config.CacheConfiguration;
 import com.lee.cache.config.RocksDbConfiguration;
 import com.lee.cache.exception.CacheException;
 import com.lee.cache.serializer.Serializer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.rocksdb.*;
-import org.rocksdb.util.SizeUnit;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @author l46li
@@ -21,19 +34,75 @@ import java.util.List;
 @Slf4j
 public class RocksDbManager extends BaseCacheManager {
 
-    private List<Options> options = new ArrayList<>(10);
+    /**
+     * 配置了内存预算以后，memtable最多使用预算的1/WRITE_BUFFER_BUDGET_RATIO
+     */
+    private static final int WRITE_BUFFER_BUDGET_RATIO = 4;
+
+    /**
+     * OPTIONS文件里面的section，例如[CFOptions "name"]、[TableOptions/BlockBasedTable "name"]
+     */
+    private static final Pattern OPTIONS_SECTION = Pattern.compile("\\[(\\S+) \"(.*)\"]");
+    private static final Pattern FIXED_PREFIX = Pattern.compile("FixedPrefix\\.(\\d+)");
+
+    /**
+     * manager创建的所有native对象，关闭manager的时候统一关闭
+     */
+    private List<AutoCloseable> resources = new ArrayList<>(10);
+
+    /**
+     * 按照path共用的RocksDB，都是在BaseCacheManager的锁里面访问的
+     */
+    private Map<String, SharedDb> sharedDbs = new HashMap<>();
+
+    /**
+     * manager级别的内存预算，所有的RocksDB共用，没有配置的时候都是null
+     */
+    private LRUCache budgetCache;
+    private WriteBufferManager budgetWriteBufferManager;
+    private long memoryBudget;
+
+    /**
+     * 计数器使用的merge operator，所有的column family共用一个
+     */
+    private UInt64AddOperator counterOperator;
 
     @Override
     protected <K, V> Cache<K, V> createRocksDb(CacheConfiguration<K, V> configuration) {
         RocksDbConfiguration<K, V> config = (RocksDbConfiguration<K, V>) configuration;
+        checkWriteOptions(config);
+        checkTableOptions(config);
+        prepareMemoryBudget(config);
+
+        RocksDB db;
+        ColumnFamilyHandle columnFamily = null;
+        Statistics statistics;
+        int prefixLength = config.getPrefixLength();
+        if (config.isSharedDb() && config.getTimeToLiveSeconds() == 0) {
+            SharedDb shared = getSharedDb(config);
+            columnFamily = getColumnFamily(shared, config);
+            prefixLength = shared.prefixLengths.get(config.name());
+            statistics = shared.statistics;
+            db = shared.db;
+        } else {
+            statistics = createStatistics(config);
+            db = createInternalDb(config, statistics);
+        }
 
-        RocksDB db = createInternalDb(config);
         if (config.isAutoDetect()) {
-            return new RocksDbAnyCache<>(db, config.getDefaultSerializer(),
+            RocksDbAnyCache<K, V> rocksDbAny = new RocksDbAnyCache<>(db, config.getDefaultSerializer(),
                     config.isTruncate(),
                     config.path(),
                     configuration.name()
             );
+            if (columnFamily != null) {
+                rocksDbAny.columnFamily(columnFamily);
+            }
+            rocksDbAny.prefixLength(prefixLength);
+            rocksDbAny.statistics(statistics);
+            rocksDbAny.groupCommit(config.isGroupCommit());
+            rocksDbAny.writeOptions(config.isSync(), config.isDisableWal(), config.isNoSlowdown(), config.isLowPri());
+            return rocksDbAny;
         }
 
         Serializer<K> key = config.getSerializerKey();
@@ -42,6 +111,8 @@ public class RocksDbManager extends BaseCacheManager {
         RocksDbCache<K, V> rocksDb;
         if (key != null && value != null) {
             rocksDb = new RocksDbCache<>(db, key, value);
+        } else if (key == null && (Long.class.equals(config.key()) || Integer.class.equals(config.key()))) {
+            rocksDb = createPrimitiveCache(db, config);
         } else {
             if (value != null) {
                 rocksDb = new RocksDbCache<>(db, config.key(), value);
@@ -50,6 +121,13 @@ public class RocksDbManager extends BaseCacheManager {
             }
         }
 
+        if (columnFamily != null) {
+            rocksDb.columnFamily(columnFamily);
+        }
+        rocksDb.prefixLength(prefixLength);
+        rocksDb.statistics(statistics);
+        rocksDb.groupCommit(config.isGroupCommit());
+        rocksDb.writeOptions(config.isSync(), config.isDisableWal(), config.isNoSlowdown(), config.isLowPri());
         if (config.isTruncate()) {
             rocksDb.truncate(config.isTruncate(), config.path(), config.name());
         }
@@ -57,57 +135,375 @@ public class RocksDbManager extends BaseCacheManager {
         return rocksDb;
     }
 
+    /**
+     * sync是等待WAL fsync，没有WAL的时候sync没有意义，RocksDB会直接拒绝这样的写入，所以在打开之前就报错
+     */
+    private static void checkWriteOptions(RocksDbConfiguration<?, ?> config) {
+        if (config.isSync() && config.isDisableWal()) {
+            throw new CacheException("sync and disableWal can not be enabled together : " + config.name());
+        }
+    }
+
+    /**
+     * hash索引是按照prefix_extractor的前缀建立的，没有配置前缀的时候RocksDB在打开的时候直接报错，不会退化成二分查找
+     */
+    private static void checkTableOptions(RocksDbConfiguration<?, ?> config) {
+        if (config.getIndexType() == RocksDbConfiguration.IndexType.HASH_SEARCH && config.getPrefixLength() <= 0) {
+            throw new CacheException("HASH_SEARCH index requires prefixLength : " + config.name());
+        }
+    }
+
+    /**
+     * 计数器和普通的cache一样按照配置共用RocksDB或者单独打开，它们的column family都配置了uint64add
+     */
+    @Override
+    protected <K> CounterCache<K> createCounterCache(CacheConfiguration<K, Long> configuration) {
+        RocksDbConfiguration<K, Long> config = (RocksDbConfiguration<K, Long>) configuration;
+        if (config.isAutoDetect() && config.getSerializerKey() == null) {
+            throw new CacheException("Counter cache " + config.name() + " must specify key type or key serializer");
+        }
+        checkWriteOptions(config);
+        checkTableOptions(config);
+        prepareMemoryBudget(config);
+
+        RocksDB db;
+        ColumnFamilyHandle columnFamily = null;
+        if (config.isSharedDb() && config.getTimeToLiveSeconds() == 0) {
+            SharedDb shared = getSharedDb(config);
+            columnFamily = getColumnFamily(shared, config);
+            db = shared.db;
+        } else {
+            db = createInternalDb(config, createStatistics(config));
+        }
+
+        RocksDbCounterCache<K> counter = config.getSerializerKey() != null
+                ? new RocksDbCounterCache<>(db, config.getSerializerKey())
+                : new RocksDbCounterCache<>(db, config.key());
+        if (columnFamily != null) {
+            counter.columnFamily(columnFamily);
+        }
+        counter.writeOptions(config.isSync(), config.isDisableWal(), config.isNoSlowdown(), config.isLowPri());
+        counter.accumulate(config.getCounterFlushIntervalMillis());
+        if (config.isTruncate()) {
+            counter.truncate(config.isTruncate(), config.path(), config.name());
+        }
+        return counter;
+    }
+
+    /**
+     * key是long或者int的时候创建可以直接使用基本数据类型读写的Cache，它们同时也是一个普通的Cache，存储格式一致
+     */
+    @SuppressWarnings("unchecked")
+    private <K, V> RocksDbCache<K, V> createPrimitiveCache(RocksDB db, RocksDbConfiguration<K, V> config) {
+        Serializer<V> value = config.getSerializerValue();
+        if (Long.class.equals(config.key())) {
+            if (value == null && Long.class.equals(config.value())) {
+                return (RocksDbCache<K, V>) new RocksDbLongLongCache(db);
+            }
+            return (RocksDbCache<K, V>) (value != null
+                    ? new RocksDbLongCache<>(db, value) : new RocksDbLongCache<>(db, config.value()));
+        }
+        return (RocksDbCache<K, V>) (value != null
+                ? new RocksDbIntCache<>(db, value) : new RocksDbIntCache<>(db, config.value()));
+    }
+
     @Override
     public void close() {
         super.close();
-        for (Options option : options) {
+        //cache已经关闭了自己的column family，剩下没有被使用的column family要在RocksDB关闭之前关闭
+        for (SharedDb shared : sharedDbs.values()) {
+            shared.close();
+        }
+        sharedDbs = null;
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            AutoCloseable resource = resources.get(i);
             try {
-                option.close();
+                resource.close();
             } catch (Exception e) {
-                log.error("Can not close Options " + option);
+                log.error("Can not close RocksDB resource " + resource);
             }
         }
-        options = null;
+        resources = null;
+    }
+
+    /**
+     * 第一个配置了内存预算的cache创建manager级别的block cache和WriteBufferManager，之后打开的RocksDB都使用它们，
+     * memtable占用的内存计入block cache，所以block cache、memtable、index和filter加起来不会超过这个预算
+     */
+    private <K, V> void prepareMemoryBudget(RocksDbConfiguration<K, V> config) {
+        if (config.getMemoryBudget() <= 0) {
+            return;
+        }
+        if (budgetCache == null) {
+            memoryBudget = config.getMemoryBudget();
+            budgetCache = new LRUCache(memoryBudget);
+            resources.add(budgetCache);
+            budgetWriteBufferManager = new WriteBufferManager(memoryBudget / WRITE_BUFFER_BUDGET_RATIO, budgetCache);
+            resources.add(budgetWriteBufferManager);
+        } else if (memoryBudget != config.getMemoryBudget()) {
+            log.warn("RocksDB memory budget has been set to {}, ignore memory budget {} of cache {}",
+                    memoryBudget, config.getMemoryBudget(), config.name());
+        }
+    }
+
+    private <K, V> SharedDb getSharedDb(RocksDbConfiguration<K, V> config) {
+        String path = new File(config.path()).getAbsolutePath();
+        SharedDb shared = sharedDbs.get(path);
+        if (shared == null) {
+            sharedDbs.put(path, shared = openSharedDb(path, config));
+        }
+        return shared;
     }
 
-    private <K, V> RocksDB createInternalDb(RocksDbConfiguration<K, V> config) {
-        if (config.getTimeToLiveSeconds() != 0) {
-            return createTtlDb(config);
+    /**
+     * 第一个cache打开path下面的RocksDB，已经存在的column family必须在打开的时候全部指定，
+     * 这个cache自己的column family使用它的配置，其他的按照OPTIONS文件里面保存的、创建它们的时候的配置打开，
+     * 所有的column family共用一个block cache，memtable通过WriteBufferManager统一限制大小并且计入block cache，
+     * 配置了内存预算的时候使用manager级别的
+     */
+    private <K, V> SharedDb openSharedDb(String path, RocksDbConfiguration<K, V> config) {
+        LRUCache blockCache = budgetCache;
+        WriteBufferManager writeBufferManager = budgetWriteBufferManager;
+        if (blockCache == null) {
+            long writeBufferLimit = (long) config.getWriteBufferSize() * config.getMaxWriteBufferNumber();
+            blockCache = new LRUCache(config.getCacheSize() + writeBufferLimit);
+            resources.add(blockCache);
+            writeBufferManager = new WriteBufferManager(writeBufferLimit, blockCache);
+            resources.add(writeBufferManager);
+        }
+        Statistics statistics = createStatistics(config);
+        DBOptions dbOption = buildDbOptions(config, statistics).setWriteBufferManager(writeBufferManager);
+        resources.add(dbOption);
+
+        SharedDb shared = new SharedDb(blockCache, statistics);
+        ColumnFamilyOptions columnFamilyOption = buildColumnFamilyOptions(config, blockCache);
+        resources.add(columnFamilyOption);
+
+        byte[] ownName = config.name().getBytes(StandardCharsets.UTF_8);
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        if (new File(path, "CURRENT").exists()) {
+            for (ColumnFamilyDescriptor persisted : loadColumnFamilies(shared, path, config)) {
+                descriptors.add(Arrays.equals(persisted.getName(), ownName)
+                        ? new ColumnFamilyDescriptor(ownName, columnFamilyOption) : persisted);
+            }
         } else {
-            return createDb(config);
+            descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnFamilyOption));
+        }
+
+        List<ColumnFamilyHandle> handles = new ArrayList<>(descriptors.size());
+        try {
+            shared.db = RocksDB.open(dbOption, path, descriptors, handles);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not create RocksDB for " + path, e);
+        }
+        for (int i = 0; i < descriptors.size(); i++) {
+            String name = new String(descriptors.get(i).getName(), StandardCharsets.UTF_8);
+            shared.columnFamilies.put(name, handles.get(i));
+            if (descriptors.get(i).getOptions() == columnFamilyOption) {
+                shared.prefixLengths.put(name, config.getPrefixLength());
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 读取最新的OPTIONS文件，得到每个column family创建的时候的配置，compaction方式、prefix_extractor、压缩等都和原来一致，
+     * 这样FIFO的column family不会按照LEVEL打开，反过来也一样；
+     * OPTIONS文件里面没有block cache，表格式需要换成共用block cache的，索引类型和分区filter保持每个column family原来的，
+     * 其他的(block大小、bloom filter)按照当前cache的配置，只影响新的sst文件，merge operator也换成共用的那一个；
+     * 同时记录每个column family实际的prefix_extractor长度，前缀查询按照它来决定能不能使用前缀seek
+     */
+    private <K, V> List<ColumnFamilyDescriptor> loadColumnFamilies(SharedDb shared, String path,
+                                                                   RocksDbConfiguration<K, V> config) {
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        try (DBOptions persistedDbOption = new DBOptions()) {
+            OptionsUtil.loadLatestOptions(path, Env.getDefault(), persistedDbOption, descriptors);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not load options of RocksDB " + path, e);
+        }
+        Map<String, PersistedColumnFamily> persisted = readPersistedColumnFamilies(path);
+        for (ColumnFamilyDescriptor descriptor : descriptors) {
+            resources.add(descriptor.getOptions());
+            String name = new String(descriptor.getName(), StandardCharsets.UTF_8);
+            PersistedColumnFamily columnFamily = persisted.getOrDefault(name, new PersistedColumnFamily());
+            shared.prefixLengths.put(name, columnFamily.prefixLength);
+            descriptor.getOptions()
+                    .setTableFormatConfig(columnFamily.apply(buildTableConfig(config, shared.blockCache)))
+                    .setMergeOperator(counterOperator());
         }
+        return descriptors;
     }
 
-    private <K, V> RocksDB createDb(RocksDbConfiguration<K, V> config) {
+    /**
+     * RocksJava加载出来的ColumnFamilyOptions拿不到表格式的配置，所以直接读取OPTIONS文件，
+     * 得到每个column family的index_type、partition_filters和prefix_extractor
+     */
+    private static Map<String, PersistedColumnFamily> readPersistedColumnFamilies(String path) {
+        List<String> lines;
         try {
-            Options option = buildBasicOptions(config);
-            if (option != null) {
-                options.add(option);
-                return RocksDB.open(option, config.path() + File.separator + config.name());
+            lines = FileUtils.readLines(
+                    new File(path, OptionsUtil.getLatestOptionsFileName(path, Env.getDefault())), StandardCharsets.UTF_8
+            );
+        } catch (RocksDBException | IOException e) {
+            throw new CacheException("Can not read options file of RocksDB " + path, e);
+        }
+        Map<String, PersistedColumnFamily> columnFamilies = new HashMap<>();
+        PersistedColumnFamily current = null;
+        for (String line : lines) {
+            line = line.trim();
+            Matcher section = OPTIONS_SECTION.matcher(line);
+            if (section.matches()) {
+                String type = section.group(1);
+                current = "CFOptions".equals(type) || "TableOptions/BlockBasedTable".equals(type)
+                        ? columnFamilies.computeIfAbsent(section.group(2), name -> new PersistedColumnFamily())
+                        : null;
+                continue;
             }
-            throw new RocksDBException("Can not crate Options for RocksDB");
+            int separator = line.indexOf('=');
+            if (current == null || separator < 0) {
+                continue;
+            }
+            String value = line.substring(separator + 1).trim();
+            switch (line.substring(0, separator).trim()) {
+                case "index_type":
+                    current.indexType = value;
+                    break;
+                case "partition_filters":
+                    current.partitionFilters = Boolean.parseBoolean(value);
+                    break;
+                case "prefix_extractor":
+                    Matcher prefix = FIXED_PREFIX.matcher(value);
+                    current.prefixLength = prefix.find() ? Integer.parseInt(prefix.group(1)) : 0;
+                    break;
+                default:
+            }
+        }
+        return columnFamilies;
+    }
+
+    /**
+     * cache的name对应的column family，不存在的时候按照这个cache的配置创建
+     */
+    private <K, V> ColumnFamilyHandle getColumnFamily(SharedDb shared, RocksDbConfiguration<K, V> config) {
+        String name = config.name();
+        ColumnFamilyHandle columnFamily = shared.columnFamilies.get(name);
+        if (columnFamily != null) {
+            //已经打开的column family按照它实际的prefix_extractor查询，OPTIONS文件打开的在loadColumnFamilies里面已经记录
+            int prefixLength = shared.prefixLengths.get(name);
+            if (prefixLength != config.getPrefixLength()) {
+                log.warn("Column family {} has been opened with prefix length {}, ignore prefix length {}",
+                        name, prefixLength, config.getPrefixLength());
+            }
+            return columnFamily;
+        }
+
+        File separate = new File(config.path(), name);
+        if (new File(separate, "CURRENT").exists()) {
+            throw new CacheException("Cache " + name + " has data in a separate RocksDB " + separate.getPath()
+                    + " created with sharedDb(false), enable sharedDb only for new caches or migrate the data first");
+        }
+
+        ColumnFamilyOptions columnFamilyOption = buildColumnFamilyOptions(config, shared.blockCache);
+        resources.add(columnFamilyOption);
+        try {
+            columnFamily = shared.db.createColumnFamily(
+                    new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), columnFamilyOption)
+            );
         } catch (RocksDBException e) {
-            throw new CacheException("Can not create RocksDB for " + config.path(), e);
+            throw new CacheException("Can not create column family " + name + " in RocksDB " + config.path(), e);
+        }
+        shared.columnFamilies.put(name, columnFamily);
+        shared.prefixLengths.put(name, config.getPrefixLength());
+        return columnFamily;
+    }
+
+    private List<byte[]> listColumnFamilies(String path) {
+        if (!new File(path, "CURRENT").exists()) {
+            return Collections.emptyList();
+        }
+        try (Options option = new Options()) {
+            return RocksDB.listColumnFamilies(option, path);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not list column families of RocksDB " + path, e);
         }
     }
 
-    private <K, V> TtlDB createTtlDb(RocksDbConfiguration<K, V> config) {
+    private <K, V> RocksDB createInternalDb(RocksDbConfiguration<K, V> config, Statistics statistics) {
+        DBOptions dbOption = buildDbOptions(config, statistics);
+        resources.add(dbOption);
+        LRUCache blockCache = budgetCache;
+        if (blockCache == null) {
+            blockCache = new LRUCache(config.getCacheSize());
+            resources.add(blockCache);
+        } else {
+            dbOption.setWriteBufferManager(budgetWriteBufferManager);
+        }
+        ColumnFamilyOptions columnFamilyOption = buildColumnFamilyOptions(config, blockCache);
+        resources.add(columnFamilyOption);
+        List<ColumnFamilyDescriptor> descriptors = Collections.singletonList(
+                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnFamilyOption)
+        );
+        List<ColumnFamilyHandle> handles = new ArrayList<>(1);
+        String path = config.path() + File.separator + config.name();
+        if (!new File(path, "CURRENT").exists()
+                && listColumnFamilies(config.path()).stream().anyMatch(name -> Arrays.equals(name,
+                config.name().getBytes(StandardCharsets.UTF_8)))) {
+            throw new CacheException("Cache " + config.name() + " has data in the shared RocksDB " + config.path()
+                    + ", enable sharedDb to open it");
+        }
         try {
-            Options option = buildBasicOptions(config);
-            if (option != null) {
-                options.add(option);
-                return TtlDB.open(
-                        option,
-                        config.path() + File.separator + config.name()
-                );
+            RocksDB db;
+            if (config.getTimeToLiveSeconds() != 0) {
+                db = TtlDB.open(dbOption, path, descriptors, handles,
+                        Collections.singletonList(config.getTimeToLiveSeconds()), false);
+            } else {
+                db = RocksDB.open(dbOption, path, descriptors, handles);
             }
-            throw new RocksDBException("Can not crate Options for RocksDB");
+            //cache使用db.getDefaultColumnFamily()，打开时返回的handle在RocksDB关闭以后再关闭是安全的
+            resources.addAll(handles);
+            return db;
         } catch (RocksDBException e) {
             throw new CacheException("Can not create RocksDB for " + config.path(), e);
         }
     }
 
-    private <K, V> Options buildBasicOptions(RocksDbConfiguration<K, V> config) {
+    /**
+     * 开启了statistics的时候创建一个，RocksDB自己持有它的引用，manager关闭的时候再释放Java这边的对象
+     */
+    private <K, V> Statistics createStatistics(RocksDbConfiguration<K, V> config) {
+        if (!config.isStatistics()) {
+            return null;
+        }
+        //不统计mutex等待这些比较耗时的计时器，其他的计数和直方图都保留
+        Statistics statistics = new Statistics();
+        statistics.setStatsLevel(StatsLevel.EXCEPT_DETAILED_TIMERS);
+        resources.add(statistics);
+        return statistics;
+    }
+
+    private <K, V> DBOptions buildDbOptions(RocksDbConfiguration<K, V> config, Statistics statistics) {
+        DBOptions dbOption = new DBOptions()
+                .setCreateIfMissing(config.isCreatedIfMissing())
+                .setCreateMissingColumnFamilies(true)
+
+                //设置后台的flush和compact线程的数量，默认的Env是整个进程共用的，只会增加不会减少
+                .setEnv(Env.getDefault().incBackgroundThreadsIfNeeded(config.getBackgroundThreads(), Priority.LOW))
+                //同时进行的flush和compaction的个数，受上面线程池大小的限制
+                .setMaxBackgroundJobs(config.getMaxBackgroundJobs())
+                //level0到level1的compaction拆成多个子任务并行
+                .setMaxSubcompactions(config.getMaxSubcompactions())
+                .setUseDirectReads(false)
+                .setAllowMmapReads(false)
+                .setAllowMmapWrites(false)
+                .setMaxOpenFiles(config.getMaxOpenFiles());
+        if (statistics != null) {
+            dbOption.setStatistics(statistics);
+        }
+        return dbOption;
+    }
+
+    private <K, V> ColumnFamilyOptions buildColumnFamilyOptions(RocksDbConfiguration<K, V> config,
+                                                                org.rocksdb.Cache blockCache) {
         /*
          * 在 level 0 和 level 1 之间的 compaction 比较 tricky，
          * level 0 会覆盖所有的 key range，所以当 level 0 和 level 1 之间开始进行 compaction 的时候，
@@ -120,9 +516,8 @@ public class RocksDbManager extends BaseCacheManager {
          * 解决了 level 0 到 level 1 的 compaction 多线程问题。
          * 通常，为了加速 level0 到 level1 的 compaction，我们会尽量保证level 0 和 level 1 有相同的size
          */
-        return new Options()
+        ColumnFamilyOptions option = new ColumnFamilyOptions()
                 .setTtl(config.getTimeToLiveSeconds())
-                .setCreateIfMissing(config.isCreatedIfMissing())
                 //指定memtable的最大大小，我们知道memtable实际上是保存在内存里面的一个skiplist，当一个memtable
                 //满了以后，会把该memtable设置成immutable ，然后等待flush到level0里面去
                 //这个地方就是指定一个memtable的大小，就是WriteBufferSize
@@ -144,59 +539,142 @@ public class RocksDbManager extends BaseCacheManager {
                 //当 level0 的文件数据达到这个值的时候，就开始进行 level0 到 level1 的 compaction。
                 //所以通常 level 0 的大小就是
                 //level0总大小 = write_buffer_size * min_write_buffer_number_to_merge * level0_file_num_compaction_trigger
-                .setLevel0FileNumCompactionTrigger(4)
-                .setLevel0SlowdownWritesTrigger(16)
-                .setLevel0StopWritesTrigger(24)
+                .setLevel0FileNumCompactionTrigger(config.getLevel0FileNumCompactionTrigger())
+                .setLevel0SlowdownWritesTrigger(config.getLevel0SlowdownWritesTrigger())
+                .setLevel0StopWritesTrigger(config.getLevel0StopWritesTrigger())
 
                 // 设置level1 的总大小，在上面提到，我们通常建议 level1 跟 level0 的size 相当
-                .setMaxBytesForLevelBase(160 * SizeUnit.MB)
+                .setMaxBytesForLevelBase(config.getMaxBytesForLevelBase())
 
                 //上层的 level 的 size 每层都会比当前层大 max_bytes_for_level_multiplier 倍，
                 //这个值默认是 10，通常也不建议修改,也就是leveln 是leveln-1的10倍
-                .setMaxBytesForLevelMultiplier(10)
+                .setMaxBytesForLevelMultiplier(config.getMaxBytesForLevelMultiplier())
 
                 //target_file_size_base 则是 level1 单个SST文件的size。
                 //上面层的文件size 都会比当前层大target_file_size_multiplier 倍
                 //设置了它，那么就默认指定了sst文件的大小了
                 //增加 target_file_size_base 会减少整个 DB 的 size，这通常是一件好事情，
                 //也通常建议 target_file_size_base 等于 max_bytes_for_level_base / 10，也就是 level 1 会有 10 个 SST 文件
-                .setTargetFileSizeBase(16 * SizeUnit.MB)
+                .setTargetFileSizeBase(config.getTargetFileSizeBase())
 
                 //所有层的sst文件是一样大的,默认值，通常也不建议修改
                 .setTargetFileSizeMultiplier(1)
 
-                //设置后台的flush和compact线程的数量
-                .setEnv(Env.getDefault().setBackgroundThreads(4, Priority.LOW))
-
                 //设置压缩规制
-                .setCompactionStyle(CompactionStyle.LEVEL)
-                .setCompressionType(CompressionType.SNAPPY_COMPRESSION)
+                .setCompressionType(toCompressionType(config.getCompression()))
+
+                //最底层的数据最多，而且很少被改写，可以使用压缩率更高的算法
+                .setBottommostCompressionType(config.getBottommostCompression() == null
+                        ? CompressionType.DISABLE_COMPRESSION_OPTION
+                        : toCompressionType(config.getBottommostCompression()))
+
+                //查询的key基本都存在的时候，最底层不需要filter
+                .setOptimizeFiltersForHits(config.isOptimizeFiltersForHits())
 
                 //设置level的最大层级 默认就是7层
                 .setNumLevels(7)
-                .setUseDirectReads(false)
-                .setAllowMmapReads(false)
-                .setAllowMmapWrites(false)
                 .setLevelCompactionDynamicLevelBytes(true)
 
                 //设置blockcache
-                .setTableFormatConfig(buildTableConfig(config))
-                .setMaxOpenFiles(config.getMaxOpenFiles());
+                .setTableFormatConfig(buildTableConfig(config, blockCache));
+
+        switch (config.getCompactionStyle()) {
+            case UNIVERSAL:
+                //写多的cache，相邻的sst文件按照时间顺序合并，写放大比LEVEL小很多，代价是更大的空间放大
+                CompactionOptionsUniversal universal = new CompactionOptionsUniversal()
+                        .setMaxSizeAmplificationPercent(config.getUniversalMaxSizeAmplificationPercent());
+                resources.add(universal);
+                option.setCompactionStyle(CompactionStyle.UNIVERSAL)
+                        .setCompactionOptionsUniversal(universal)
+                        .setLevelCompactionDynamicLevelBytes(false);
+                break;
+            case FIFO:
+                //只写一次、按时间过期的cache，所有的sst文件都在level0，不做compaction，超过大小或者时间直接删除最老的文件
+                if (config.getFifoTtlSeconds() > 0 && config.getMaxOpenFiles() != -1) {
+                    throw new CacheException("FIFO compaction with ttl requires maxOpenFiles -1 : " + config.name());
+                }
+                CompactionOptionsFIFO fifo = new CompactionOptionsFIFO()
+                        .setMaxTableFilesSize(config.getFifoMaxTableFilesSize())
+                        .setAllowCompaction(false);
+                resources.add(fifo);
+                option.setCompactionStyle(CompactionStyle.FIFO)
+                        .setCompactionOptionsFIFO(fifo)
+                        .setTtl(config.getFifoTtlSeconds())
+                        .setLevelCompactionDynamicLevelBytes(false);
+                break;
+            case LEVEL:
+            default:
+                option.setCompactionStyle(CompactionStyle.LEVEL);
+        }
+
+        //重新打开RocksDB的时候不知道哪些column family是计数器，所以都配置上，没有merge写入的column family不会用到它
+        option.setMergeOperator(counterOperator());
+
+        if (config.getCompressionPerLevel() != null) {
+            List<CompressionType> compressionPerLevel = new ArrayList<>(config.getCompressionPerLevel().length);
+            for (RocksDbConfiguration.Compression compression : config.getCompressionPerLevel()) {
+                compressionPerLevel.add(toCompressionType(compression));
+            }
+            option.setCompressionPerLevel(compressionPerLevel);
+        }
+
+        if (config.getPrefixLength() > 0) {
+            //取key的前几个字节作为前缀，bloom filter和memtable都会按照前缀建立过滤器，
+            //这样前缀查询在seek的时候就可以跳过不包含该前缀的sst文件
+            option.useFixedLengthPrefixExtractor(config.getPrefixLength())
+                    .setMemtablePrefixBloomSizeRatio(0.1);
+        }
+        return option;
     }
 
-    private <K, V> TableFormatConfig buildTableConfig(RocksDbConfiguration<K, V> config) {
-        return new BlockBasedTableConfig()
-                //获取每一个key的前几个字节来判断当前key是否存储哎某个sst文件中，10表示允许1%的误判，设置值越大
-                //误判率越高，但是暂用内存也会越大，注意他主要是为随机查询提供少访问的可能
-                //一旦BloomFilter判断该key不在某个sst文件里面，那么它肯定就不在
-                //如果它判断key可能在某个文件里面，那么它可能不存在，这个就是误判率
-                .setFilterPolicy(new BloomFilter(10))
+    private UInt64AddOperator counterOperator() {
+        if (counterOperator == null) {
+            counterOperator = new UInt64AddOperator();
+            resources.add(counterOperator);
+        }
+        return counterOperator;
+    }
+
+    private <K, V> BlockBasedTableConfig buildTableConfig(RocksDbConfiguration<K, V> config, org.rocksdb.Cache blockCache) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        if (config.getBloomBitsPerKey() > 0) {
+            //获取每一个key的前几个字节来判断当前key是否存储哎某个sst文件中，10表示允许1%的误判，设置值越大
+            //误判率越高，但是暂用内存也会越大，注意他主要是为随机查询提供少访问的可能
+            //一旦BloomFilter判断该key不在某个sst文件里面，那么它肯定就不在
+            //如果它判断key可能在某个文件里面，那么它可能不存在，这个就是误判率
+            //第二个参数false表示使用full filter格式，默认的block based格式不支持partitionFilters
+            tableConfig.setFilterPolicy(new BloomFilter(config.getBloomBitsPerKey(), false));
+        }
+
+        switch (config.getIndexType()) {
+            case HASH_SEARCH:
+                //按照prefix_extractor的前缀建立hash索引，checkTableOptions已经保证配置了前缀
+                tableConfig.setIndexType(IndexType.kHashSearch);
+                break;
+            case PARTITIONED:
+                //两级索引，只有顶层的索引常驻在block cache里面，分区按需加载，filter也可以一起分区
+                tableConfig.setIndexType(IndexType.kTwoLevelIndexSearch)
+                        .setPartitionFilters(config.isPartitionFilters() && config.getBloomBitsPerKey() > 0)
+                        .setPinTopLevelIndexAndFilter(true);
+                break;
+            case BINARY_SEARCH:
+            default:
+                //这个就是查询的时候使用的方式了，二分查找
+                tableConfig.setIndexType(IndexType.kBinarySearch);
+        }
+
+        if (config.isDataBlockHashIndex()) {
+            //data block里面的hash索引，点查直接定位到restart区间，不需要二分查找
+            tableConfig.setDataBlockIndexType(DataBlockIndexType.kDataBlockBinaryAndHash)
+                    .setDataBlockHashTableUtilRatio(0.75);
+        }
 
+        return tableConfig
                 //一个block的大小，sst文件里面是按照block一个快一个快来组织数据的，也就是一个sst文件里面包含了很多个
                 //block快，当然在访问的时候也就会加载该block的内存到内存里面去，其实不用太大，因为太大的话随机访问的时候
                 //加载一个快到内存里面，然后在二分查找，其实没有必要，加载blocksize大小到内存里面去，但是只访问一个,有点儿浪费
                 //改成默认4K就可以了，如果我们主要使用iter来访问数据，还可以设置小一些，但是不能够小于1K
-                .setBlockSize(4 * SizeUnit.KB)
+                .setBlockSize(config.getBlockSize())
                 //如果当前blocksize只还有少于或者等于5%的空间可用，但是添加一个新的记录进去会超过当前blocksize的大小，
                 //那么创建一个新的blocksize，之前的就关闭掉
                 .setBlockSizeDeviation(10)
@@ -204,7 +682,7 @@ public class RocksDbManager extends BaseCacheManager {
                 //设置读取数据的时候的缓存空间总大小，缓存的都是未压缩的数据 建议值是： 1/3指定的JVM内存
                 //block 其实也是加快随机查询速度的，每一个随机查询的时候需要把该cache的值存放到该blockcache里面去
                 //当指定的内存大小满了以后采用LRU算法来驱逐数据
-                .setBlockCache(new LRUCache(config.getCacheSize()))
+                .setBlockCache(blockCache)
 
                 //是否把index(key + offset + value size) 和 filter(bloom filter 10 bits per key)放到block cache里面去
                 //默认是不会把index 和 filter放到block cache里面去的，如果放到blockcache里面去，那么用于给cache数据的空间就少了
@@ -214,9 +692,77 @@ public class RocksDbManager extends BaseCacheManager {
                 .setPinL0FilterAndIndexBlocksInCache(true)
 
                 //关闭checksum的校验，也就是不对文件进行校验
-                .setChecksumType(config.isVerifyChecksums() ? ChecksumType.kxxHash : ChecksumType.kNoChecksum)
+                .setChecksumType(config.isVerifyChecksums() ? ChecksumType.kxxHash : ChecksumType.kNoChecksum);
+    }
 
-                //这个就是查询的时候使用的方式了，二分查找
-                .setIndexType(IndexType.kBinarySearch);
+    private static CompressionType toCompressionType(RocksDbConfiguration.Compression compression) {
+        switch (compression) {
+            case NONE:
+                return CompressionType.NO_COMPRESSION;
+            case LZ4:
+                return CompressionType.LZ4_COMPRESSION;
+            case ZSTD:
+                return CompressionType.ZSTD_COMPRESSION;
+            case SNAPPY:
+            default:
+                return CompressionType.SNAPPY_COMPRESSION;
+        }
+    }
+
+    /**
+     * OPTIONS文件里面保存的一个column family的配置，重新打开共用的RocksDB的时候，其他cache的column family保持这些配置
+     */
+    private static final class PersistedColumnFamily {
+
+        private String indexType = IndexType.kBinarySearch.name();
+        private boolean partitionFilters;
+        private int prefixLength;
+
+        /**
+         * 换成原来的索引类型，hash索引必须有prefix_extractor，没有的时候使用二分查找，否则RocksDB会拒绝打开
+         */
+        BlockBasedTableConfig apply(BlockBasedTableConfig tableConfig) {
+            IndexType type;
+            try {
+                type = IndexType.valueOf(indexType);
+            } catch (IllegalArgumentException e) {
+                type = IndexType.kBinarySearch;
+            }
+            if (type == IndexType.kHashSearch && prefixLength <= 0) {
+                type = IndexType.kBinarySearch;
+            }
+            return tableConfig.setIndexType(type)
+                    .setPartitionFilters(partitionFilters && type == IndexType.kTwoLevelIndexSearch);
+        }
+    }
+
+    /**
+     * 同一个path下面的cache共用的RocksDB，每个cache的name对应一个column family
+     */
+    private static final class SharedDb {
+
+        private final LRUCache blockCache;
+        private final Statistics statistics;
+        private final Map<String, ColumnFamilyHandle> columnFamilies = new HashMap<>();
+
+        /**
+         * 每个column family实际使用的prefix_extractor长度，按照OPTIONS文件打开的从文件里面读取
+         */
+        private final Map<String, Integer> prefixLengths = new HashMap<>();
+
+        private RocksDB db;
+
+        SharedDb(LRUCache blockCache, Statistics statistics) {
+            this.blockCache = blockCache;
+            this.statistics = statistics;
+        }
+
+        void close() {
+            for (ColumnFamilyHandle columnFamily : columnFamilies.values()) {
+                columnFamily.close();
+            }
+            columnFamilies.clear();
+            db.close();
+        }
     }
 }
@@ -1,14 +1,18 @@
 package com.lee.cacheManager;
 
 import com.lee.cache.Cache;
+import com.lee.cache.CacheSnapshot;
+import com.lee.cache.ExpiringCache;
 import com.lee.cache.config.CacheConfiguration;
 import com.lee.cache.config.LevelDbJniConfiguration;
+import com.lee.cache.exception.CacheException;
 import com.lee.cache.manager.CacheManager;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -299,4 +303,230 @@ public class LevelDbJniManagerTest {
             FileUtils.deleteQuietly(leveldbjni);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatchGet() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File leveldbjni = new File(file, "leveldbjni");
+        FileUtils.forceMkdir(leveldbjni);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, String> cache = cacheManager.getCache(
+                    new LevelDbJniConfiguration<>(String.class, String.class)
+                            .name("LevelDbJniBatchGetTest")
+                            .path(leveldbjni.getPath())
+                            .createdIfMissing(true)
+            );
+
+            for (int i = 0; i < 100; i += 2) {
+                cache.put("key" + i, "value" + i);
+            }
+
+            List<String> keys = new ArrayList<>();
+            for (int i = 99; i >= 0; i--) {
+                keys.add("key" + i);
+            }
+            keys.add("zzz");
+
+            Map<String, String> values = cache.get(keys);
+            assertEquals(50, values.size());
+            for (int i = 0; i < 100; i += 2) {
+                assertEquals("value" + i, values.get("key" + i));
+            }
+            assertFalse(values.containsKey("key1"));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(leveldbjni);
+        }
+    }
+
+    @Test
+    public void testMemoryBudget() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File leveldbjni = new File(file, "leveldbjni");
+        FileUtils.forceMkdir(leveldbjni);
+
+        try {
+            //两个LevelDB共用manager级别的block cache，关闭的时候由manager释放
+            CacheManager cacheManager = CacheManager.newCacheManager();
+            try {
+                for (String name : Arrays.asList("LevelDbJniBudgetTest1", "LevelDbJniBudgetTest2")) {
+                    Cache<String, String> cache = cacheManager.getCache(
+                            new LevelDbJniConfiguration<>(String.class, String.class)
+                                    .name(name)
+                                    .path(leveldbjni.getPath())
+                                    .memoryBudget(16, CacheConfiguration.Unit.MB)
+                                    .createdIfMissing(true)
+                    );
+                    for (int i = 0; i < 100; i++) {
+                        cache.put("key" + i, name + i);
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        assertEquals(name + i, cache.get("key" + i));
+                    }
+                }
+            } finally {
+                cacheManager.close();
+            }
+
+            cacheManager = CacheManager.newCacheManager();
+            try {
+                Cache<String, String> cache = cacheManager.getCache(
+                        new LevelDbJniConfiguration<>(String.class, String.class)
+                                .name("LevelDbJniBudgetTest2")
+                                .path(leveldbjni.getPath())
+                                .memoryBudget(16, CacheConfiguration.Unit.MB)
+                                .createdIfMissing(true)
+                );
+                assertEquals("LevelDbJniBudgetTest299", cache.get("key99"));
+            } finally {
+                cacheManager.close();
+            }
+        } finally {
+            FileUtils.deleteQuietly(leveldbjni);
+        }
+    }
+
+    @Test
+    public void testExpiry() throws IOException, InterruptedException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File leveldbjni = new File(file, "leveldbjni");
+        FileUtils.forceMkdir(leveldbjni);
+
+        try {
+            CacheManager cacheManager = CacheManager.newCacheManager();
+            try {
+                Cache<String, String> cache = cacheManager.getCache(
+                        new LevelDbJniConfiguration<>(String.class, String.class)
+                                .name("LevelDbJniExpiryTest")
+                                .path(leveldbjni.getPath())
+                                .expiry(60 * 1000)
+                                .createdIfMissing(true)
+                );
+
+                cache.put("session", "value", Duration.ofMillis(20));
+                cache.put("forever", "value");
+                assertEquals("value", cache.get("session"));
+
+                Thread.sleep(50);
+                assertNull(cache.get("session"));
+                assertEquals(1, cache.get(Arrays.asList("session", "forever")).size());
+
+                assertEquals(1, ((ExpiringCache<String, String>) cache).sweep());
+                assertEquals("value", cache.get("forever"));
+
+                Cache<String, String> plain = cacheManager.getCache(
+                        new LevelDbJniConfiguration<>(String.class, String.class)
+                                .name("LevelDbJniPlainTest")
+                                .path(leveldbjni.getPath())
+                                .createdIfMissing(true)
+                );
+                plain.put("key", "value");
+            } finally {
+                cacheManager.close();
+            }
+
+            //已经有数据的cache不能换一种格式打开
+            cacheManager = CacheManager.newCacheManager();
+            try {
+                try {
+                    cacheManager.getCache(
+                            new LevelDbJniConfiguration<>(String.class, String.class)
+                                    .name("LevelDbJniExpiryTest")
+                                    .path(leveldbjni.getPath())
+                                    .createdIfMissing(true)
+                    );
+                    fail("expiry cache opened without expiry");
+                } catch (CacheException e) {
+                    //expected
+                }
+                try {
+                    cacheManager.getCache(
+                            new LevelDbJniConfiguration<>(String.class, String.class)
+                                    .name("LevelDbJniPlainTest")
+                                    .path(leveldbjni.getPath())
+                                    .expiry(60 * 1000)
+                                    .createdIfMissing(true)
+                    );
+                    fail("plain cache opened with expiry");
+                } catch (CacheException e) {
+                    //expected
+                }
+
+                Cache<String, String> cache = cacheManager.getCache(
+                        new LevelDbJniConfiguration<>(String.class, String.class)
+                                .name("LevelDbJniExpiryTest")
+                                .path(leveldbjni.getPath())
+                                .expiry(60 * 1000)
+                                .createdIfMissing(true)
+                );
+                assertEquals("value", cache.get("forever"));
+            } finally {
+                cacheManager.close();
+            }
+        } finally {
+            FileUtils.deleteQuietly(leveldbjni);
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File leveldbjni = new File(file, "leveldbjni");
+        FileUtils.forceMkdir(leveldbjni);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, String> cache = cacheManager.getCache(
+                    new LevelDbJniConfiguration<>(String.class, String.class)
+                            .name("LevelDbJniSnapshotTest")
+                            .path(leveldbjni.getPath())
+                            .createdIfMissing(true)
+            );
+
+            cache.put("a", "old");
+            cache.put("b", "old");
+            CacheSnapshot<String, String> snapshot = cache.snapshot();
+            try {
+                cache.put("a", "new");
+                cache.delete("b");
+                cache.put("c", "new");
+
+                //之后的写入在snapshot里面都看不到
+                assertEquals("old", snapshot.get("a"));
+                assertEquals(2, snapshot.get(Arrays.asList("a", "b", "c")).size());
+                List<String> keys = new ArrayList<>();
+                snapshot.scan("a", "c", (key, value) -> keys.add(key));
+                assertEquals(Arrays.asList("a", "b"), keys);
+            } finally {
+                snapshot.close();
+            }
+            snapshot.close();
+
+            //关闭以后不能再读取
+            try {
+                snapshot.get("a");
+                fail("read from a closed snapshot");
+            } catch (IllegalStateException e) {
+                //expected
+            }
+            try {
+                snapshot.consume((key, value) -> {
+                });
+                fail("consume a closed snapshot");
+            } catch (IllegalStateException e) {
+                //expected
+            }
+            assertEquals("new", cache.get("a"));
+            assertNull(cache.get("b"));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(leveldbjni);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.lee.cacheManager;
+
+import com.lee.cache.Cache;
+import com.lee.cache.OffHeapCache;
+import com.lee.cache.config.CacheConfiguration;
+import com.lee.cache.config.OffHeapConfiguration;
+import com.lee.cache.manager.CacheManager;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OffHeapManagerTest {
+
+    @Test
+    public void testOffHeap() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File offheap = new File(file, "offheap");
+        FileUtils.forceMkdir(offheap);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<Integer, String> cache = cacheManager.getCache(
+                    new OffHeapConfiguration<>(Integer.class, String.class)
+                            .name("OffHeapManagerTest")
+                            .path(offheap.getPath())
+                            .maxBytes(8, CacheConfiguration.Unit.MB)
+                            .concurrency(4)
+            );
+
+            for (int i = 0; i < 10; i++) {
+                cache.put(i, "value" + i);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals("value" + i, cache.get(i));
+            }
+
+            Map<Integer, String> map = new HashMap<>();
+            map.put(11, UUID.randomUUID().toString());
+            map.put(12, UUID.randomUUID().toString());
+            cache.put(map);
+            assertEquals(map.get(11), cache.get(11));
+
+            cache.delete(1);
+            assertNull(cache.get(1));
+
+            AtomicInteger count = new AtomicInteger();
+            cache.consume((key, value) -> count.incrementAndGet());
+            assertEquals(11, count.get());
+
+            assertTrue(cache == cacheManager.getCache(
+                    new OffHeapConfiguration<>(Integer.class, String.class)
+                            .name("OffHeapManagerTest")
+                            .path(offheap.getPath())
+            ));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(offheap);
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File offheap = new File(file, "offheap");
+        FileUtils.forceMkdir(offheap);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            OffHeapCache<Integer, String> cache = (OffHeapCache<Integer, String>) cacheManager.getCache(
+                    new OffHeapConfiguration<>(Integer.class, String.class)
+                            .name("OffHeapEvictionTest")
+                            .path(offheap.getPath())
+                            .maxBytes(1, CacheConfiguration.Unit.MB)
+                            .concurrency(1)
+            );
+
+            for (int i = 0; i < 100000; i++) {
+                cache.put(i, UUID.randomUUID().toString());
+                //经常访问的key会一直留在缓存里面
+                cache.get(0);
+            }
+
+            assertNotNull(cache.get(0));
+            assertTrue(cache.evictions() > 0);
+            assertTrue(cache.size() < 100000);
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(offheap);
+        }
+    }
+}
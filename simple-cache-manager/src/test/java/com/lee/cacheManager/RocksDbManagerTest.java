@@ -1,17 +1,44 @@
 package com.lee.cacheManager;
 
+import com.lee.cache.AsyncCache;
 import com.lee.cache.Cache;
+import com.lee.cache.CacheSnapshot;
+import com.lee.cache.CacheStats;
+import com.lee.cache.CounterCache;
+import com.lee.cache.Durability;
+import com.lee.cache.ExpiringCache;
+import com.lee.cache.LongLongCache;
+import com.lee.cache.LongObjectCache;
+import com.lee.cache.RocksDbStats;
+import com.lee.cache.TieredCache;
+import com.lee.cache.WriteBehindCache;
 import com.lee.cache.config.CacheConfiguration;
 import com.lee.cache.config.RocksDbConfiguration;
+import com.lee.cache.exception.CacheException;
 import com.lee.cache.manager.CacheManager;
+import com.lee.cache.serializer.DefaultSerializer;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RocksDbManagerTest {
     @Test
@@ -194,4 +221,900 @@ public class RocksDbManagerTest {
             FileUtils.deleteQuietly(leveldbjni);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrimitiveKey() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            LongObjectCache<String> longCache = cacheManager.getLongCache(
+                    new RocksDbConfiguration<>(Long.class, String.class)
+                            .name("RocksDbLongCacheTest")
+                            .path(rocksdb.getPath())
+                            .groupCommit(true)
+                            .createdIfMissing(true)
+            );
+
+            for (long i = 0; i < 10; i++) {
+                longCache.put(i, "value" + i);
+            }
+            for (long i = 0; i < 10; i++) {
+                assertEquals("value" + i, longCache.get(i));
+            }
+            longCache.delete(1L);
+            assertNull(longCache.get(1L));
+
+            LongLongCache counter = cacheManager.getLongLongCache(
+                    new RocksDbConfiguration<>(Long.class, Long.class)
+                            .name("RocksDbLongLongCacheTest")
+                            .path(rocksdb.getPath())
+                            .createdIfMissing(true)
+            );
+
+            counter.put(1L, 100L);
+            assertEquals(100L, counter.get(1L, -1L));
+            assertEquals(-1L, counter.get(2L, -1L));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testGroupCommit() throws IOException, InterruptedException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        RocksDbConfiguration<Long, String> configuration = new RocksDbConfiguration<>(Long.class, String.class)
+                .name("RocksDbGroupCommitTest")
+                .path(rocksdb.getPath())
+                .groupCommit(true)
+                .sync(true)
+                .createdIfMissing(true);
+        int threadCount = 8;
+        int keysPerThread = 500;
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            LongObjectCache<String> cache = cacheManager.getLongCache(configuration);
+
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicBoolean stillInterrupted = new AtomicBoolean();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                        for (long i = 0; i < keysPerThread; i++) {
+                            long key = thread * 10000L + i;
+                            //被中断的线程也要等到自己的写操作完成，并且保留中断标志
+                            if (thread == 0 && i == keysPerThread / 2) {
+                                Thread.currentThread().interrupt();
+                            }
+                            cache.put(key, "value" + key);
+                            if (i % 2 == 0) {
+                                cache.delete(key);
+                            }
+                        }
+                        if (thread == 0) {
+                            stillInterrupted.set(Thread.currentThread().isInterrupted());
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(failure.get());
+            assertTrue(stillInterrupted.get());
+            assertGroupCommitted(cache, threadCount, keysPerThread);
+        } finally {
+            cacheManager.close();
+        }
+
+        //重新打开以后，每一个写操作都还在
+        cacheManager = CacheManager.newCacheManager();
+        try {
+            assertGroupCommitted(cacheManager.getLongCache(configuration), threadCount, keysPerThread);
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    private static void assertGroupCommitted(LongObjectCache<String> cache, int threadCount, int keysPerThread) {
+        for (long t = 0; t < threadCount; t++) {
+            for (long i = 0; i < keysPerThread; i++) {
+                long key = t * 10000L + i;
+                assertEquals(i % 2 == 0 ? null : "value" + key, cache.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<Long, Long> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<Long, Long>()
+                            .name("RocksDbScanTest")
+                            .path(rocksdb.getPath())
+                            .serializerKey(DefaultSerializer.SORTABLE_LONG_SERIALIZER)
+                            .serializerValue(DefaultSerializer.LONG_SERIALIZER)
+                            .prefixLength(4)
+                            .compression(RocksDbConfiguration.Compression.LZ4)
+                            .dataBlockHashIndex(true)
+                            .disableWal(true)
+                            .createdIfMissing(true)
+            );
+
+            for (long i = -50; i < 50; i++) {
+                cache.put(i, i * 10);
+            }
+
+            List<Long> keys = new ArrayList<>();
+            cache.scan(-5L, 5L, (key, value) -> {
+                assertEquals(key * 10, value.longValue());
+                keys.add(key);
+            });
+            assertEquals(10, keys.size());
+            assertEquals(Long.valueOf(-5L), keys.get(0));
+            assertEquals(Long.valueOf(4L), keys.get(9));
+
+            keys.clear();
+            cache.scan(45L, null, (key, value) -> keys.add(key));
+            assertEquals(5, keys.size());
+
+            //正数的前4个字节都是0x80000000
+            keys.clear();
+            cache.prefixScan(new byte[]{(byte) 0x80, 0, 0, 0}, (key, value) -> keys.add(key));
+            assertEquals(50, keys.size());
+
+            AtomicLong sum = new AtomicLong();
+            cache.consumeParallel((key, value) -> sum.addAndGet(value), 4);
+            assertEquals(-500L, sum.get());
+
+            try (Stream<Long> stream = cache.keys()) {
+                assertEquals(Long.valueOf(-50L), stream.findFirst().orElse(null));
+            }
+            try (Stream<Map.Entry<Long, Long>> stream = cache.entries()) {
+                assertEquals(3, stream.filter(entry -> entry.getValue() > 460).count());
+            }
+
+            cache.put(Collections.singletonMap(100L, 1000L), Durability.SYNC);
+            assertEquals(Long.valueOf(1000L), cache.get(100L));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testIndexType() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<Long, Long> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<Long, Long>()
+                            .name("RocksDbHashIndexTest")
+                            .path(rocksdb.getPath())
+                            .serializerKey(DefaultSerializer.SORTABLE_LONG_SERIALIZER)
+                            .serializerValue(DefaultSerializer.LONG_SERIALIZER)
+                            .indexType(RocksDbConfiguration.IndexType.HASH_SEARCH)
+                            .prefixLength(4)
+                            .createdIfMissing(true)
+            );
+            for (long i = -50; i < 50; i++) {
+                cache.put(i, i * 10);
+            }
+            assertEquals(Long.valueOf(-100L), cache.get(-10L));
+
+            List<Long> keys = new ArrayList<>();
+            cache.prefixScan(new byte[]{(byte) 0x80, 0, 0, 0}, (key, value) -> keys.add(key));
+            assertEquals(50, keys.size());
+
+            //hash索引没有前缀的时候RocksDB会拒绝打开
+            try {
+                cacheManager.getCache(
+                        new RocksDbConfiguration<>(Long.class, Long.class)
+                                .name("RocksDbHashIndexNoPrefixTest")
+                                .path(rocksdb.getPath())
+                                .indexType(RocksDbConfiguration.IndexType.HASH_SEARCH)
+                                .createdIfMissing(true)
+                );
+                fail("HASH_SEARCH without prefixLength");
+            } catch (CacheException e) {
+                //expected
+            }
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testConsumeParallel() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            //memtable和sst文件都很小，写完以后有几十个sst文件，可以切出多个分区
+            Cache<Long, String> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(Long.class, String.class)
+                            .name("RocksDbParallelTest")
+                            .path(rocksdb.getPath())
+                            .serializerKey(DefaultSerializer.SORTABLE_LONG_SERIALIZER)
+                            .writeBufferSize(64, CacheConfiguration.Unit.KB)
+                            .targetFileSizeBase(64, CacheConfiguration.Unit.KB)
+                            .disableWal(true)
+                            .createdIfMissing(true)
+            );
+
+            int count = 20000;
+            char[] padding = new char[100];
+            Arrays.fill(padding, 'v');
+            for (long i = 0; i < count; i++) {
+                cache.put(i, i + new String(padding));
+            }
+
+            Map<Long, Integer> visits = new ConcurrentHashMap<>();
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            cache.consumeParallel((key, value) -> {
+                assertTrue(value.startsWith(String.valueOf(key)));
+                visits.merge(key, 1, Integer::sum);
+                threads.add(Thread.currentThread().getName());
+            }, 4);
+
+            assertEquals(count, visits.size());
+            for (int visit : visits.values()) {
+                assertEquals(1, visit);
+            }
+            assertTrue("expected more than one partition, threads : " + threads, threads.size() > 1);
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testCompactionStyle() throws IOException, InterruptedException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        char[] padding = new char[100];
+        Arrays.fill(padding, 'v');
+        String suffix = new String(padding);
+        int count = 20000;
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            //UNIVERSAL合并以后，覆盖写入和没有覆盖的数据都能读到最新的值
+            Cache<Long, String> universal = cacheManager.getCache(
+                    new RocksDbConfiguration<>(Long.class, String.class)
+                            .name("RocksDbUniversalTest")
+                            .path(rocksdb.getPath())
+                            .writeBufferSize(64, CacheConfiguration.Unit.KB)
+                            .compactionStyle(RocksDbConfiguration.CompactionStyle.UNIVERSAL)
+                            .universalMaxSizeAmplificationPercent(50)
+                            .disableWal(true)
+                            .createdIfMissing(true)
+            );
+            for (long i = 0; i < count; i++) {
+                universal.put(i, i + suffix);
+            }
+            for (long i = 0; i < count; i += 2) {
+                universal.put(i, "updated" + i);
+            }
+            for (long i = 0; i < count; i++) {
+                assertEquals(i % 2 == 0 ? "updated" + i : i + suffix, universal.get(i));
+            }
+
+            //FIFO超过大小上限以后从最老的sst文件开始删除，最新写入的数据还在
+            Cache<Long, String> fifo = cacheManager.getCache(
+                    new RocksDbConfiguration<>(Long.class, String.class)
+                            .name("RocksDbFifoTest")
+                            .path(rocksdb.getPath())
+                            .writeBufferSize(64, CacheConfiguration.Unit.KB)
+                            .compression(RocksDbConfiguration.Compression.NONE)
+                            .compactionStyle(RocksDbConfiguration.CompactionStyle.FIFO)
+                            .fifoMaxTableFilesSize(256, CacheConfiguration.Unit.KB)
+                            .disableWal(true)
+                            .createdIfMissing(true)
+            );
+            for (long i = 0; i < count; i++) {
+                fifo.put(i, i + suffix);
+            }
+            //删除sst文件是后台的compaction做的，等它完成
+            for (int i = 0; i < 100 && fifo.get(0L) != null; i++) {
+                Thread.sleep(100);
+            }
+            assertNull(fifo.get(0L));
+            assertEquals((count - 1) + suffix, fifo.get(count - 1L));
+
+            //FIFO的ttl要求maxOpenFiles是-1
+            try {
+                cacheManager.getCache(
+                        new RocksDbConfiguration<>(Long.class, String.class)
+                                .name("RocksDbFifoTtlTest")
+                                .path(rocksdb.getPath())
+                                .compactionStyle(RocksDbConfiguration.CompactionStyle.FIFO)
+                                .fifoTtlSeconds(3600)
+                                .createdIfMissing(true)
+                );
+                fail("FIFO ttl requires maxOpenFiles -1");
+            } catch (CacheException e) {
+                assertTrue(e.getMessage().contains("maxOpenFiles"));
+            }
+            Cache<Long, String> fifoTtl = cacheManager.getCache(
+                    new RocksDbConfiguration<>(Long.class, String.class)
+                            .name("RocksDbFifoTtlTest")
+                            .path(rocksdb.getPath())
+                            .compactionStyle(RocksDbConfiguration.CompactionStyle.FIFO)
+                            .fifoTtlSeconds(3600)
+                            .maxOpenFiles(-1)
+                            .createdIfMissing(true)
+            );
+            fifoTtl.put(1L, "value");
+            assertEquals("value", fifoTtl.get(1L));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testTieredCache() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, String> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbTieredTest")
+                            .path(rocksdb.getPath())
+                            .nearCache(16)
+                            .createdIfMissing(true)
+            );
+            assertTrue(cache instanceof TieredCache);
+
+            for (int i = 0; i < 100; i++) {
+                cache.put("key" + i, "value" + i);
+            }
+            cache.delete("key0");
+            for (int i = 1; i < 100; i++) {
+                assertEquals("value" + i, cache.get("key" + i));
+            }
+            assertNull(cache.get("key0"));
+
+            Cache<String, String> backend = ((TieredCache<String, String>) cache).getDelegate();
+            assertEquals("value99", backend.get("key99"));
+            assertNull(backend.get("key0"));
+            assertEquals(3, cache.get(Arrays.asList("key0", "key1", "key2", "key3")).size());
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testWriteBehind() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            //刷新间隔足够长，后台线程不会定时刷新
+            Cache<String, String> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbWriteBehindTest")
+                            .path(rocksdb.getPath())
+                            .expiry(60 * 1000)
+                            .writeBehind(1024, 60 * 1000)
+                            .createdIfMissing(true)
+            );
+            assertTrue(cache instanceof WriteBehindCache);
+            WriteBehindCache<String, String> writeBehind = (WriteBehindCache<String, String>) cache;
+            Cache<String, String> backend = writeBehind.getDelegate();
+
+            //同一个key的多次写入只保留最后一次
+            for (int i = 0; i < 10; i++) {
+                cache.put("counter", "value" + i);
+            }
+            assertEquals(1, writeBehind.pending());
+            assertNull(backend.get("counter"));
+            assertEquals("value9", cache.get("counter"));
+            writeBehind.flush();
+            assertEquals(0, writeBehind.pending());
+            assertEquals("value9", backend.get("counter"));
+
+            //缓冲区里面的删除也能读到
+            cache.delete("counter");
+            assertNull(cache.get("counter"));
+            assertTrue(cache.get(Arrays.asList("counter", "other")).isEmpty());
+            assertEquals("value9", backend.get("counter"));
+            writeBehind.flush();
+            assertNull(backend.get("counter"));
+
+            //带过期时间的写入直接写到底层存储，并且去掉缓冲区里面之前的写入
+            cache.put("session", "buffered");
+            cache.put("session", "value", Duration.ofMinutes(1));
+            assertEquals(0, writeBehind.pending());
+            assertEquals("value", backend.get("session"));
+            writeBehind.flush();
+            assertEquals("value", cache.get("session"));
+
+            //某一段超过batchSize的4倍，写线程自己刷新，不需要等后台线程
+            Cache<String, String> small = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbBackpressureTest")
+                            .path(rocksdb.getPath())
+                            .writeBehind(2, 60 * 1000)
+                            .createdIfMissing(true)
+            );
+            WriteBehindCache<String, String> smallWriteBehind = (WriteBehindCache<String, String>) small;
+            for (int i = 0; i < 10000; i++) {
+                small.put("key" + i, "value" + i);
+            }
+            int stripes = 1;
+            while (stripes < Runtime.getRuntime().availableProcessors()) {
+                stripes <<= 1;
+            }
+            long pending = smallWriteBehind.pending();
+            assertTrue(pending < 2 * 4 * stripes);
+            Cache<String, String> smallBackend = smallWriteBehind.getDelegate();
+            long written = 0;
+            for (int i = 0; i < 10000; i++) {
+                if (smallBackend.get("key" + i) != null) {
+                    written++;
+                }
+            }
+            assertTrue(written >= 10000 - pending);
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testAsync() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            AsyncCache<String, String> cache = cacheManager.getAsyncCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbAsyncTest")
+                            .path(rocksdb.getPath())
+                            .createdIfMissing(true)
+            );
+
+            CompletableFuture.allOf(
+                    cache.putAsync("key1", "value1"),
+                    cache.putAsync("key2", "value2")
+            ).join();
+            assertEquals("value1", cache.getAsync("key1").join());
+            assertEquals(2, cache.getAllAsync(Arrays.asList("key1", "key2", "key3")).join().size());
+
+            cache.deleteAsync("key1").join();
+            assertNull(cache.getAsync("key1").join());
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testCompute() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, Long> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, Long.class)
+                            .name("RocksDbComputeTest")
+                            .path(rocksdb.getPath())
+                            .createdIfMissing(true)
+            );
+
+            //并发的merge不会丢失更新
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        cache.merge("counter", 1L, Long::sum);
+                    }
+                });
+            }
+            CompletableFuture.allOf(futures).join();
+            assertEquals(Long.valueOf(4000), cache.get("counter"));
+
+            assertNull(cache.putIfAbsent("absent", 1L));
+            assertEquals(Long.valueOf(1), cache.putIfAbsent("absent", 2L));
+            assertNull(cache.compute("absent", (key, value) -> null));
+            assertNull(cache.get("absent"));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testCounter() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            CounterCache<String> counters = cacheManager.getCounterCache(
+                    new RocksDbConfiguration<>(String.class, Long.class)
+                            .name("RocksDbCounterTest")
+                            .path(rocksdb.getPath())
+                            .counterFlushIntervalMillis(60 * 1000)
+                            .createdIfMissing(true)
+            );
+
+            for (int i = 0; i < 100; i++) {
+                counters.increment("requests", 1);
+            }
+            counters.increment("errors", -2);
+            //还在内存里面的累加值也能读到
+            assertEquals(100, counters.get("requests"));
+
+            counters.flush();
+            counters.increment("requests", 5);
+            assertEquals(105, counters.get("requests"));
+
+            Map<String, Long> counts = counters.getAll(Arrays.asList("requests", "errors", "missing"));
+            assertEquals(2, counts.size());
+            assertEquals(Long.valueOf(-2), counts.get("errors"));
+
+            counters.delete("requests");
+            assertEquals(0, counters.get("requests"));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testExpiry() throws IOException, InterruptedException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, String> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbExpiryTest")
+                            .path(rocksdb.getPath())
+                            .expiry(60 * 1000)
+                            .createdIfMissing(true)
+            );
+
+            cache.put("session", "value", Duration.ofMillis(20));
+            cache.put("forever", "value");
+            assertEquals("value", cache.get("session"));
+
+            Thread.sleep(50);
+            assertNull(cache.get("session"));
+            assertEquals(1, cache.get(Arrays.asList("session", "forever")).size());
+            AtomicLong count = new AtomicLong();
+            cache.consume((key, value) -> count.incrementAndGet());
+            assertEquals(1, count.get());
+
+            assertEquals(1, ((ExpiringCache<String, String>) cache).sweep());
+            assertEquals(0, ((ExpiringCache<String, String>) cache).sweep());
+            assertEquals("value", cache.get("forever"));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, String> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbSnapshotTest")
+                            .path(rocksdb.getPath())
+                            .createdIfMissing(true)
+            );
+
+            cache.put("a", "old");
+            cache.put("b", "old");
+            try (CacheSnapshot<String, String> snapshot = cache.snapshot()) {
+                cache.put("a", "new");
+                cache.delete("b");
+                cache.put("c", "new");
+
+                //之后的写入在snapshot里面都看不到
+                assertEquals("old", snapshot.get("a"));
+                assertEquals(2, snapshot.get(Arrays.asList("a", "b", "c")).size());
+                AtomicLong count = new AtomicLong();
+                snapshot.consume((key, value) -> count.incrementAndGet());
+                assertEquals(2, count.get());
+            }
+            assertEquals("new", cache.get("a"));
+            assertNull(cache.get("b"));
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            Cache<String, String> cache = cacheManager.getCache(
+                    new RocksDbConfiguration<>(String.class, String.class)
+                            .name("RocksDbMetricsTest")
+                            .path(rocksdb.getPath())
+                            .metrics(true)
+                            .statistics(true)
+                            .createdIfMissing(true)
+            );
+
+            for (int i = 0; i < 100; i++) {
+                cache.put("key" + i, "value" + i);
+            }
+            for (int i = 0; i < 150; i++) {
+                cache.get("key" + i);
+            }
+
+            CacheStats stats = cache.stats();
+            assertEquals(100, stats.getLatency(CacheStats.Operation.PUT).getCount());
+            assertEquals(150, stats.getLatency(CacheStats.Operation.GET).getCount());
+            assertEquals(100, stats.getHitCount());
+            assertEquals(50, stats.getMissCount());
+            assertEquals(100, stats.getValueBytes().getCount());
+            assertTrue(stats.getSerializeNanos() > 0);
+            assertTrue(stats.getLatency(CacheStats.Operation.GET).getPercentile(99)
+                    <= stats.getLatency(CacheStats.Operation.GET).getMax());
+
+            //还没有flush，所有的读取都在memtable里面命中
+            RocksDbStats rocksDbStats = stats.getRocksDbStats();
+            assertTrue(rocksDbStats.isStatisticsEnabled());
+            assertTrue(rocksDbStats.getMemtableHit() >= 100);
+            assertTrue(rocksDbStats.getEstimateNumKeys() > 0);
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testLongCacheMetrics() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        CacheManager cacheManager = CacheManager.newCacheManager();
+        try {
+            RocksDbConfiguration<Long, String> configuration = new RocksDbConfiguration<>(Long.class, String.class)
+                    .name("RocksDbLongMetricsTest")
+                    .path(rocksdb.getPath())
+                    .metrics(true)
+                    .createdIfMissing(true);
+
+            //开启统计以后也能拿到原始类型的cache，读写由底层cache自己记录
+            LongObjectCache<String> longCache = cacheManager.getLongCache(configuration);
+            for (long i = 0; i < 10; i++) {
+                longCache.put(i, "value" + i);
+            }
+            for (long i = 0; i < 15; i++) {
+                longCache.get(i);
+            }
+
+            Cache<Long, String> cache = cacheManager.getCache(configuration);
+            CacheStats stats = cache.stats();
+            assertEquals(10, stats.getLatency(CacheStats.Operation.PUT).getCount());
+            assertEquals(15, stats.getLatency(CacheStats.Operation.GET).getCount());
+            assertEquals(10, stats.getHitCount());
+            assertEquals(5, stats.getMissCount());
+
+            //重复的key只算一次
+            assertEquals(1, cache.get(Arrays.asList(1L, 1L, 100L, 100L)).size());
+            stats = cache.stats();
+            assertEquals(11, stats.getHitCount());
+            assertEquals(6, stats.getMissCount());
+        } finally {
+            cacheManager.close();
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+
+    @Test
+    public void testColumnFamily() throws IOException {
+        String file = this.getClass().getResource(".").getFile();
+
+        File rocksdb = new File(file, "rocksdb");
+        FileUtils.forceMkdir(rocksdb);
+
+        try {
+            CacheManager cacheManager = CacheManager.newCacheManager();
+            try {
+                Cache<String, String> users = cacheManager.getCache(
+                        new RocksDbConfiguration<>(String.class, String.class)
+                                .name("RocksDbUsers")
+                                .path(rocksdb.getPath())
+                                .sharedDb(true)
+                                .memoryBudget(64, CacheConfiguration.Unit.MB)
+                                .createdIfMissing(true)
+                );
+                Cache<String, String> orders = cacheManager.getCache(
+                        new RocksDbConfiguration<>(String.class, String.class)
+                                .name("RocksDbOrders")
+                                .path(rocksdb.getPath())
+                                .sharedDb(true)
+                                .compactionStyle(RocksDbConfiguration.CompactionStyle.UNIVERSAL)
+                                .createdIfMissing(true)
+                );
+                Cache<Long, Long> events = cacheManager.getCache(
+                        new RocksDbConfiguration<Long, Long>()
+                                .name("RocksDbEvents")
+                                .path(rocksdb.getPath())
+                                .serializerKey(DefaultSerializer.SORTABLE_LONG_SERIALIZER)
+                                .serializerValue(DefaultSerializer.LONG_SERIALIZER)
+                                .sharedDb(true)
+                                .indexType(RocksDbConfiguration.IndexType.HASH_SEARCH)
+                                .prefixLength(4)
+                                .createdIfMissing(true)
+                );
+
+                users.put("key", "user");
+                orders.put("key", "order");
+                orders.put("other", "order");
+                events.put(-1L, 10L);
+                events.put(1L, 10L);
+                events.put(2L, 10L);
+                assertEquals("user", users.get("key"));
+                assertEquals("order", orders.get("key"));
+                assertNull(users.get("other"));
+            } finally {
+                cacheManager.close();
+            }
+
+            //重新打开以后已经存在的column family都能找到，先打开的cache不会把其他column family按照自己的配置打开，
+            //events的hash索引不会用到没有prefix_extractor的users和orders上面
+            cacheManager = CacheManager.newCacheManager();
+            try {
+                Cache<Long, Long> events = cacheManager.getCache(
+                        new RocksDbConfiguration<Long, Long>()
+                                .name("RocksDbEvents")
+                                .path(rocksdb.getPath())
+                                .serializerKey(DefaultSerializer.SORTABLE_LONG_SERIALIZER)
+                                .serializerValue(DefaultSerializer.LONG_SERIALIZER)
+                                .sharedDb(true)
+                                .indexType(RocksDbConfiguration.IndexType.HASH_SEARCH)
+                                .prefixLength(4)
+                                .createdIfMissing(true)
+                );
+                assertEquals(Long.valueOf(10L), events.get(1L));
+                Cache<String, String> users = cacheManager.getCache(
+                        new RocksDbConfiguration<>(String.class, String.class)
+                                .name("RocksDbUsers")
+                                .path(rocksdb.getPath())
+                                .sharedDb(true)
+                                .createdIfMissing(true)
+                );
+                Cache<String, String> orders = cacheManager.getCache(
+                        new RocksDbConfiguration<>(String.class, String.class)
+                                .name("RocksDbOrders")
+                                .path(rocksdb.getPath())
+                                .sharedDb(true)
+                                .compactionStyle(RocksDbConfiguration.CompactionStyle.UNIVERSAL)
+                                .createdIfMissing(true)
+                );
+                assertEquals("user", users.get("key"));
+                AtomicLong count = new AtomicLong();
+                orders.consume((key, value) -> count.incrementAndGet());
+                assertEquals(2, count.get());
+            } finally {
+                cacheManager.close();
+            }
+
+            //users先打开，events按照OPTIONS文件里面的prefix_extractor查询，而不是这次请求里面的配置
+            cacheManager = CacheManager.newCacheManager();
+            try {
+                cacheManager.getCache(
+                        new RocksDbConfiguration<>(String.class, String.class)
+                                .name("RocksDbUsers")
+                                .path(rocksdb.getPath())
+                                .sharedDb(true)
+                                .createdIfMissing(true)
+                );
+                Cache<Long, Long> events = cacheManager.getCache(
+                        new RocksDbConfiguration<Long, Long>()
+                                .name("RocksDbEvents")
+                                .path(rocksdb.getPath())
+                                .serializerKey(DefaultSerializer.SORTABLE_LONG_SERIALIZER)
+                                .serializerValue(DefaultSerializer.LONG_SERIALIZER)
+                                .sharedDb(true)
+                                .createdIfMissing(true)
+                );
+                List<Long> keys = new ArrayList<>();
+                events.scan(-5L, null, (key, value) -> keys.add(key));
+                assertEquals(Arrays.asList(-1L, 1L, 2L), keys);
+                //正数的前4个字节都是0x80000000
+                keys.clear();
+                events.prefixScan(new byte[]{(byte) 0x80, 0, 0, 0}, (key, value) -> keys.add(key));
+                assertEquals(Arrays.asList(1L, 2L), keys);
+            } finally {
+                cacheManager.close();
+            }
+
+            //数据在共用的RocksDB里面，关闭sharedDb以后拒绝打开，而不是在path/name下面创建一个空的
+            cacheManager = CacheManager.newCacheManager();
+            try {
+                cacheManager.getCache(
+                        new RocksDbConfiguration<>(String.class, String.class)
+                                .name("RocksDbOrders")
+                                .path(rocksdb.getPath())
+                                .createdIfMissing(true)
+                );
+                fail("Cache data is in the shared RocksDB");
+            } catch (CacheException e) {
+                assertFalse(new File(rocksdb, "RocksDbOrders").exists());
+            } finally {
+                cacheManager.close();
+            }
+        } finally {
+            FileUtils.deleteQuietly(rocksdb);
+        }
+    }
+}
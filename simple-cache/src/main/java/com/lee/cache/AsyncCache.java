@@ -0,0 +1,33 @@
+package com.lee.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache的异步视图，读写都放到后端的IO线程池里面执行，调用线程不会因为磁盘读取或者JNI调用而阻塞，
+ * 适合在netty的event loop这种不能阻塞的线程里面使用
+ * <p>
+ * 线程池是有界的，队列满了以后返回的CompletableFuture直接以RejectedExecutionException失败，由调用方决定重试还是降级
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public interface AsyncCache<K, V> {
+
+    CompletableFuture<V> getAsync(K key);
+
+    /**
+     * 批量获取，返回的Map里面只包含存在的key
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys);
+
+    CompletableFuture<Void> putAsync(K key, V value);
+
+    CompletableFuture<Void> deleteAsync(K key);
+
+    /**
+     * @return 对应的同步Cache
+     */
+    Cache<K, V> synchronous();
+}
@@ -7,10 +7,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ClassUtils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 包含序列化和反序列化方法，子类直接使用，而不需要在子类自己去实现
@@ -23,13 +27,23 @@ import java.util.function.Consumer;
 @Slf4j
 public abstract class BaseCache<K, V> implements Cache<K, V> {
 
+    /**
+     * compute等读-改-写操作按照key分段加锁，段数是2的幂
+     */
+    private static final int LOCK_STRIPES = 64;
+
     protected final V empty = null;
 
+    private final Object[] locks = newLocks();
+
     private Serializer<Object> defaultSerializer;
 
     private Serializer<K> serializerKey;
     private Serializer<V> serializerValue;
 
+    private ExpirySerializer<V> expirySerializer;
+    private CacheMetrics metrics;
+
     BaseCache() {
         super();
     }
@@ -38,37 +52,19 @@ public abstract class BaseCache<K, V> implements Cache<K, V> {
         this.defaultSerializer = defaultSerializer;
     }
 
-    @SuppressWarnings("unchecked")
     public BaseCache(Class<K> keyType, Class<V> valueType) {
         if (keyType == null || valueType == null) {
             throw new IllegalArgumentException("keyType or valueType must not be null");
         }
-
-        if (ClassUtils.isPrimitiveOrWrapper(keyType)) {
-            serializerKey = (Serializer<K>) getPrimitiveSerializer(keyType);
-        } else {
-            serializerKey = new ProtoStuffSerializer<>(keyType);
-        }
-
-        if (ClassUtils.isPrimitiveOrWrapper(valueType)) {
-            serializerValue = (Serializer<V>) getPrimitiveSerializer(valueType);
-        } else {
-            serializerValue = new ProtoStuffSerializer<>(valueType);
-        }
+        serializerKey = serializerFor(keyType);
+        serializerValue = serializerFor(valueType);
     }
 
-    @SuppressWarnings("unchecked")
     public BaseCache(Class<K> keyType, Serializer<V> serializerValue) {
         if (keyType == null || serializerValue == null) {
             throw new IllegalArgumentException("keyType or serializerValue must not be null");
         }
-
-        if (ClassUtils.isPrimitiveOrWrapper(keyType)) {
-            serializerKey = (Serializer<K>) getPrimitiveSerializer(keyType);
-        } else {
-            serializerKey = new ProtoStuffSerializer<>(keyType);
-        }
-
+        serializerKey = serializerFor(keyType);
         this.serializerValue = serializerValue;
     }
 
@@ -88,6 +84,10 @@ public abstract class BaseCache<K, V> implements Cache<K, V> {
         return defaultSerializer.deserialize(bytes);
     }
 
+    protected Object deserializeAny(ByteBuffer buffer) {
+        return defaultSerializer.deserialize(buffer);
+    }
+
     protected byte[] serializeKey(K key) {
         return serializerKey.serialize(key);
     }
@@ -104,6 +104,10 @@ public abstract class BaseCache<K, V> implements Cache<K, V> {
         return serializerValue.deserialize(bytes);
     }
 
+    protected V deserializeValue(ByteBuffer buffer) {
+        return serializerValue.deserialize(buffer);
+    }
+
     public Serializer<K> getSerializerKey() {
         return this.serializerKey;
     }
@@ -120,21 +124,199 @@ public abstract class BaseCache<K, V> implements Cache<K, V> {
         return serializerKey == null && serializerValue == null;
     }
 
+    /**
+     * value前面加上过期时间的header，由ExpiringCache在创建的时候调用，之后这个cache里面所有的value都带有header，
+     * 所以只能用于新的cache，不能打开没有header的数据
+     */
+    void enableExpiry() {
+        if (isSerializeAny()) {
+            throw new UnsupportedOperationException("UnsupportedOperationException : expiry with default serializer ");
+        }
+        if (expirySerializer == null) {
+            serializerValue = expirySerializer = new ExpirySerializer<>(serializerValue);
+        }
+    }
+
+    /**
+     * 写入一个带有过期时间的value，由ExpiringCache调用，需要先enableExpiry
+     *
+     * @param expireAt 过期时间(毫秒)
+     */
+    V put(K key, V value, long expireAt) {
+        if (expirySerializer == null) {
+            throw new IllegalStateException("Expiry is not enabled : " + this);
+        }
+        Serializer<V> serializer = expirySerializer.at(expireAt);
+        if (metrics != null) {
+            serializer = new MetricsSerializer<>(serializer, metrics, metrics.valueBytes());
+        }
+        return put(key, value, serializer);
+    }
+
+    /**
+     * 使用指定的序列化器写入value，支持过期的底层cache需要覆盖该方法
+     */
+    protected V put(K key, V value, Serializer<V> serializerValue) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : put with value serializer ");
+    }
+
+    /**
+     * 按照序列化以后的字节遍历所有的entry，不会反序列化，也不填充block cache，清理过期数据的时候使用，
+     * 支持过期的底层cache需要覆盖该方法
+     */
+    protected void consumeBytes(BiConsumer<byte[], byte[]> consumer) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : consume bytes ");
+    }
+
+    /**
+     * 把序列化器换成记录时间和字节数的MetricsSerializer，由MetricsCache在创建的时候调用，
+     * 需要在enableExpiry之后调用，这样记录的字节数包含过期时间的header
+     */
+    void enableMetrics(CacheMetrics metrics) {
+        if (this.metrics != null) {
+            return;
+        }
+        this.metrics = metrics;
+        if (isSerializeAny()) {
+            defaultSerializer = new MetricsSerializer<>(defaultSerializer, metrics, null);
+        } else {
+            serializerKey = new MetricsSerializer<>(serializerKey, metrics, metrics.keyBytes());
+            serializerValue = new MetricsSerializer<>(serializerValue, metrics, metrics.valueBytes());
+        }
+    }
+
+    /**
+     * 原始类型的读写(LongObjectCache这些)不经过MetricsCache，由底层cache自己记录延迟和命中率，
+     * 没有开启统计的时候返回0，后面的记录什么都不做
+     */
+    final long metricsStart() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    final void recordGet(long start, boolean hit) {
+        if (metrics != null) {
+            metrics.latency(CacheStats.Operation.GET, System.nanoTime() - start);
+            if (hit) {
+                metrics.hits(1);
+            } else {
+                metrics.misses(1);
+            }
+        }
+    }
+
+    final void record(CacheStats.Operation operation, long start) {
+        if (metrics != null) {
+            metrics.latency(operation, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        return metrics == null ? CacheStats.EMPTY : metrics.snapshot();
+    }
+
     @Override
     public void close() throws IOException {
 
     }
 
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : batch get ");
+    }
+
     @Override
     public void put(Map<K, V> keyValues) {
         throw new UnsupportedOperationException("UnsupportedOperationException : batch put ");
     }
 
+    /**
+     * 没有持久化概念的后端只支持DEFAULT
+     */
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        if (durability != Durability.DEFAULT) {
+            throw new UnsupportedOperationException("UnsupportedOperationException : batch put with " + durability);
+        }
+        put(keyValues);
+    }
+
+    /**
+     * 底层存储没有原子的读-改-写，所以在同一段的锁里面先读再写，同一个key的compute之间不会丢失更新，
+     * 和没有加锁的put同时修改同一个key的时候，以后写入的为准
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        synchronized (lockFor(key)) {
+            V value = function.apply(key, get(key));
+            if (value == null) {
+                delete(key);
+            } else {
+                put(key, value);
+            }
+            return value;
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        return compute(key, (k, old) -> old == null ? value : function.apply(old, value));
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        synchronized (lockFor(key)) {
+            V old = get(key);
+            if (old == null) {
+                put(key, value);
+            }
+            return old;
+        }
+    }
+
+    @Override
+    public V put(K key, V value, Duration ttl) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : put with ttl ");
+    }
+
     @Override
     public void delete(Collection<K> keys) {
         throw new UnsupportedOperationException("UnsupportedOperationException : batch delete ");
     }
 
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : scan ");
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : prefixScan ");
+    }
+
+    @Override
+    public void consumeParallel(BiConsumer<K, V> consumer, int parallelism) {
+        throw new UnsupportedOperationException("UnsupportedOperationException : consumeParallel ");
+    }
+
+    @Override
+    public Stream<K> keys() {
+        throw new UnsupportedOperationException("UnsupportedOperationException : keys ");
+    }
+
+    @Override
+    public Stream<V> values() {
+        throw new UnsupportedOperationException("UnsupportedOperationException : values ");
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        throw new UnsupportedOperationException("UnsupportedOperationException : entries ");
+    }
+
     @Override
     public void consumeKey(Consumer<K> consumer) {
         throw new UnsupportedOperationException("UnsupportedOperationException : consumeKey ");
@@ -150,6 +332,11 @@ public abstract class BaseCache<K, V> implements Cache<K, V> {
         throw new UnsupportedOperationException("UnsupportedOperationException : consume ");
     }
 
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        throw new UnsupportedOperationException("UnsupportedOperationException : snapshot ");
+    }
+
     protected void closeQuit(AutoCloseable... closeables) {
         if (closeables != null) {
             for (AutoCloseable closeable : closeables) {
@@ -164,7 +351,32 @@ public abstract class BaseCache<K, V> implements Cache<K, V> {
         }
     }
 
-    private Serializer<?> getPrimitiveSerializer(Class<?> keyType) {
+    private Object lockFor(K key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    /**
+     * 基本数据类型使用DefaultSerializer，其他的使用ProtoStuffSerializer，没有继承BaseCache的cache也按照这个规则，
+     * 保证同样的类型存储格式一致
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Serializer<T> serializerFor(Class<T> type) {
+        if (ClassUtils.isPrimitiveOrWrapper(type)) {
+            return (Serializer<T>) getPrimitiveSerializer(type);
+        }
+        return new ProtoStuffSerializer<>(type);
+    }
+
+    private static Serializer<?> getPrimitiveSerializer(Class<?> keyType) {
         Class<?> primitive = ClassUtils.wrapperToPrimitive(keyType);
         switch (primitive.toGenericString()) {
             case "boolean":
@@ -0,0 +1,60 @@
+package com.lee.cache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * LevelDB和RocksDB默认的comparator是按照无符号字节逐个比较的，这里提供同样的比较方式，
+ * 方便在Java里面先把key排好序，然后顺着迭代器的方向去查找
+ */
+final class Bytes {
+
+    static final Comparator<byte[]> COMPARATOR = Bytes::compare;
+
+    private Bytes() {
+    }
+
+    static int compare(byte[] left, byte[] right) {
+        int length = Math.min(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            int result = (left[i] & 0xFF) - (right[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return left.length - right.length;
+    }
+
+    /**
+     * 所有以prefix开头的key都小于返回的值，可以直接作为范围查询的上界（不包含），
+     * 如果prefix全部是0xFF，那么没有上界，返回null
+     */
+    static byte[] nextPrefix(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] next = new byte[i + 1];
+                System.arraycopy(prefix, 0, next, 0, i + 1);
+                next[i]++;
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把key序列化以后按照数据库里面的顺序排好，entry的key是序列化以后的字节，value是原始的key
+     */
+    static <K> List<Map.Entry<byte[], K>> sort(Collection<K> keys, Function<K, byte[]> serializer) {
+        List<Map.Entry<byte[], K>> sortedKeys = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            sortedKeys.add(new AbstractMap.SimpleImmutableEntry<>(serializer.apply(key), key));
+        }
+        sortedKeys.sort((left, right) -> compare(left.getKey(), right.getKey()));
+        return sortedKeys;
+    }
+}
@@ -1,26 +1,111 @@
 package com.lee.cache;
 
 import java.io.Closeable;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface Cache<K, V> extends Closeable {
 
     V get(K key);
 
+    /**
+     * 批量获取，返回的Map里面只包含存在的key
+     *
+     * @param keys 需要查询的key
+     * @return key对应的value
+     */
+    Map<K, V> get(Collection<K> keys);
+
     V put(K key, V value);
 
+    /**
+     * 写入一个带过期时间的entry，过了ttl以后就读不到了，底层的数据由后台线程清理，
+     * 需要在配置里面开启expiry，目前只支持RocksDB和LevelDB
+     *
+     * @param ttl 从现在开始的存活时间，必须大于0
+     */
+    V put(K key, V value, Duration ttl);
+
     V delete(K key);
 
+    /**
+     * 原子的读-改-写，和java.util.Map的语义一致，function返回null的时候删除这个key；
+     * 对同一个key的compute、merge和putIfAbsent是串行的，function里面不能再修改这个cache
+     *
+     * @return 新的value
+     */
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> function);
+
+    /**
+     * key不存在的时候写入value，存在的时候写入function(旧的value, value)的结果，结果是null的时候删除这个key
+     *
+     * @return 新的value
+     */
+    V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function);
+
+    /**
+     * @return key已经存在的时候返回已经存在的value，不会覆盖；不存在的时候写入value，返回null
+     */
+    V putIfAbsent(K key, V value);
+
     void put(Map<K, V> keyValues);
 
+    /**
+     * 批量写入，这一次写入使用指定的持久化级别，不影响cache本身的配置
+     */
+    void put(Map<K, V> keyValues, Durability durability);
+
     void delete(Collection<K> keys);
 
+    /**
+     * 范围查询，按照序列化以后的字节顺序遍历[from, to)，from或者to为null表示没有边界
+     * <p>
+     * 注意默认的long和int序列化是有符号的大端字节，负数会排在正数的后面，需要按照数值排序的话key请使用
+     * DefaultSerializer.SORTABLE_LONG_SERIALIZER或者SORTABLE_INTEGER_SERIALIZER
+     */
+    void scan(K from, K to, BiConsumer<K, V> consumer);
+
+    /**
+     * 遍历序列化以后以prefix开头的所有key
+     */
+    void prefixScan(byte[] prefix, BiConsumer<K, V> consumer);
+
+    /**
+     * 懒加载的遍历，只有在真正取数据的时候才会从底层读取并且反序列化，可以随时停下来，
+     * 底层的迭代器和snapshot在Stream关闭的时候释放，所以请在try-with-resources里面使用
+     */
+    Stream<K> keys();
+
+    Stream<V> values();
+
+    Stream<Map.Entry<K, V>> entries();
+
     void consumeKey(Consumer<K> consumer);
 
+    /**
+     * 多线程遍历整个cache，所有的线程看到的是同一个时间点的数据，consumer会被多个线程同时调用，必须是线程安全的
+     *
+     * @param consumer    需要消费的consumer
+     * @param parallelism 遍历的线程数
+     */
+    void consumeParallel(BiConsumer<K, V> consumer, int parallelism);
+
     void consumeValue(Consumer<V> consumer);
 
     void consume(BiConsumer<K, V> consumer);
+
+    /**
+     * 获取当前时间点的一致性视图，通过它的多次读取看到的是同一份数据，用完以后必须关闭
+     */
+    CacheSnapshot<K, V> snapshot();
+
+    /**
+     * 操作延迟、命中率、序列化时间等统计信息，需要在配置里面开启metrics，没有开启的时候返回CacheStats.EMPTY
+     */
+    CacheStats stats();
 }
@@ -0,0 +1,101 @@
+package com.lee.cache;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计信息的累加器，由MetricsCache记录每一次操作的延迟和命中，由底层cache的MetricsSerializer记录序列化的时间和字节数，
+ * 两边共用同一个对象；只有开启了metrics的cache才会创建
+ */
+final class CacheMetrics {
+
+    private final Recorder[] latencies = new Recorder[CacheStats.Operation.values().length];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Recorder keyBytes = new Recorder();
+    private final Recorder valueBytes = new Recorder();
+    private final LongAdder serializeNanos = new LongAdder();
+    private final LongAdder deserializeNanos = new LongAdder();
+
+    CacheMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Recorder();
+        }
+    }
+
+    void latency(CacheStats.Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    void hits(long count) {
+        if (count > 0) {
+            hits.add(count);
+        }
+    }
+
+    void misses(long count) {
+        if (count > 0) {
+            misses.add(count);
+        }
+    }
+
+    Recorder keyBytes() {
+        return keyBytes;
+    }
+
+    Recorder valueBytes() {
+        return valueBytes;
+    }
+
+    void serialized(long nanos) {
+        serializeNanos.add(nanos);
+    }
+
+    void deserialized(long nanos) {
+        deserializeNanos.add(nanos);
+    }
+
+    /**
+     * 各个计数之间不是原子的快照，统计用足够了
+     */
+    CacheStats snapshot() {
+        Map<CacheStats.Operation, CacheStats.Histogram> snapshots = new EnumMap<>(CacheStats.Operation.class);
+        for (CacheStats.Operation operation : CacheStats.Operation.values()) {
+            snapshots.put(operation, latencies[operation.ordinal()].snapshot());
+        }
+        return new CacheStats(
+                snapshots, hits.sum(), misses.sum(), keyBytes.snapshot(), valueBytes.snapshot(),
+                serializeNanos.sum(), deserializeNanos.sum(), null
+        );
+    }
+
+    /**
+     * 记录一个直方图，分桶的方式见CacheStats.Histogram
+     */
+    static final class Recorder {
+
+        private final AtomicLongArray counts = new AtomicLongArray(CacheStats.Histogram.BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            counts.incrementAndGet(CacheStats.Histogram.bucket(value));
+            sum.add(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        CacheStats.Histogram snapshot() {
+            long[] snapshot = new long[counts.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            return new CacheStats.Histogram(snapshot, sum.sum(), max.get());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.lee.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * cache在某一个时间点的只读视图，通过它的所有读取看到的都是同一份数据，之后的写入都看不到
+ * <p>
+ * 底层的snapshot会一直阻止旧版本的数据被compaction回收，用完以后必须关闭，最好使用try-with-resources；
+ * 可以被多个线程同时读取，关闭以后的读取会抛出IllegalStateException
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public interface CacheSnapshot<K, V> extends AutoCloseable {
+
+    V get(K key);
+
+    /**
+     * 批量获取，返回的Map里面只包含存在的key
+     */
+    Map<K, V> get(Collection<K> keys);
+
+    /**
+     * 和Cache.scan一样，按照序列化以后的字节顺序遍历[from, to)，from或者to为null表示没有边界
+     */
+    void scan(K from, K to, BiConsumer<K, V> consumer);
+
+    void prefixScan(byte[] prefix, BiConsumer<K, V> consumer);
+
+    void consume(BiConsumer<K, V> consumer);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,295 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+import com.protonail.leveldb.jna.KeyValuePair;
+import com.protonail.leveldb.jna.LevelDB;
+import com.protonail.leveldb.jna.LevelDBException;
+import com.protonail.leveldb.jna.LevelDBKeyValueIterator;
+import com.protonail.leveldb.jna.LevelDBReadOptions;
+import com.protonail.leveldb.jna.LevelDBSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.DBIterator;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
+import org.rocksdb.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 把底层数据库的snapshot包装成CacheSnapshot，和CacheStreams一样，底层只需要提供按照字节读取的Source，
+ * 序列化和反序列化由cache传进来
+ */
+@Slf4j
+final class CacheSnapshots {
+
+    private CacheSnapshots() {
+    }
+
+    /**
+     * 固定在某一个snapshot上面的按照字节的读取，close可以重复调用
+     */
+    interface Source extends AutoCloseable {
+
+        byte[] get(byte[] key);
+
+        /**
+         * 不存在的key对应的是null
+         */
+        default List<byte[]> get(List<byte[]> keys) {
+            List<byte[]> values = new ArrayList<>(keys.size());
+            for (byte[] key : keys) {
+                values.add(get(key));
+            }
+            return values;
+        }
+
+        void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer);
+
+        @Override
+        void close();
+    }
+
+    static <K, V> CacheSnapshot<K, V> snapshot(Source source, Function<K, byte[]> serializeKey,
+                                               Function<byte[], K> deserializeKey,
+                                               Function<byte[], V> deserializeValue) {
+        return new CacheSnapshot<K, V>() {
+            @Override
+            public V get(K key) {
+                byte[] value = source.get(serializeKey.apply(key));
+                return value == null ? null : deserializeValue.apply(value);
+            }
+
+            @Override
+            public Map<K, V> get(Collection<K> keys) {
+                List<K> keyList = new ArrayList<>(keys);
+                List<byte[]> keyBytes = new ArrayList<>(keyList.size());
+                for (K key : keyList) {
+                    keyBytes.add(serializeKey.apply(key));
+                }
+                List<byte[]> values = source.get(keyBytes);
+                Map<K, V> keyValues = new HashMap<>(keyList.size() * 4 / 3 + 1);
+                for (int i = 0; i < keyList.size(); i++) {
+                    byte[] value = values.get(i);
+                    if (value != null) {
+                        keyValues.put(keyList.get(i), deserializeValue.apply(value));
+                    }
+                }
+                return keyValues;
+            }
+
+            @Override
+            public void scan(K from, K to, BiConsumer<K, V> consumer) {
+                source.scan(from == null ? null : serializeKey.apply(from), to == null ? null : serializeKey.apply(to),
+                        (key, value) -> consumer.accept(deserializeKey.apply(key), deserializeValue.apply(value)));
+            }
+
+            @Override
+            public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+                source.scan(prefix, Bytes.nextPrefix(prefix),
+                        (key, value) -> consumer.accept(deserializeKey.apply(key), deserializeValue.apply(value)));
+            }
+
+            @Override
+            public void consume(BiConsumer<K, V> consumer) {
+                source.scan(null, null,
+                        (key, value) -> consumer.accept(deserializeKey.apply(key), deserializeValue.apply(value)));
+            }
+
+            @Override
+            public void close() {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * 点查用snapshot自己的ReadOptions，遍历用线程私有的，遍历总是打开total_order_seek，
+     * 不管有没有配置prefix_extractor结果都是确定的
+     */
+    static Source rocksDb(RocksDB db, ColumnFamilyHandle columnFamily) {
+        Snapshot snapshot = db.getSnapshot();
+        ReadOptions readOption = new ReadOptions().setSnapshot(snapshot);
+        return new SnapshotSource() {
+            @Override
+            public byte[] get(byte[] key) {
+                ensureOpen();
+                try {
+                    return db.get(columnFamily, readOption, key);
+                } catch (RocksDBException e) {
+                    throw new CacheException("Can not read data from RocksDB snapshot : " + db, e);
+                }
+            }
+
+            @Override
+            public List<byte[]> get(List<byte[]> keys) {
+                ensureOpen();
+                try {
+                    return db.multiGetAsList(readOption, Collections.nCopies(keys.size(), columnFamily), keys);
+                } catch (RocksDBException e) {
+                    throw new CacheException("Can not execute batch get data from RocksDB snapshot : " + db, e);
+                }
+            }
+
+            @Override
+            public void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) {
+                ensureOpen();
+                Slice upperBound = to == null ? null : new Slice(to);
+                RocksIterator iterator = db.newIterator(columnFamily,
+                        NativeResources.get().rocksDbReadOption(snapshot, upperBound).setTotalOrderSeek(true));
+                try {
+                    if (from == null) {
+                        iterator.seekToFirst();
+                    } else {
+                        iterator.seek(from);
+                    }
+                    for (; iterator.isValid(); iterator.next()) {
+                        consumer.accept(iterator.key(), iterator.value());
+                    }
+                } finally {
+                    closeQuit(iterator, upperBound);
+                }
+            }
+
+            @Override
+            void release() {
+                closeQuit(readOption);
+                db.releaseSnapshot(snapshot);
+            }
+        };
+    }
+
+    static Source levelDbJni(DB db) {
+        org.iq80.leveldb.Snapshot snapshot = db.getSnapshot();
+        org.iq80.leveldb.ReadOptions readOption = new org.iq80.leveldb.ReadOptions().snapshot(snapshot);
+        return new SnapshotSource() {
+            @Override
+            public byte[] get(byte[] key) {
+                ensureOpen();
+                try {
+                    return db.get(key, readOption);
+                } catch (DBException e) {
+                    throw new CacheException("Can not get data from LevelDB snapshot : " + db, e);
+                }
+            }
+
+            @Override
+            public void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) {
+                ensureOpen();
+                DBIterator iterator = db.iterator(new org.iq80.leveldb.ReadOptions().fillCache(false).snapshot(snapshot));
+                try {
+                    if (from == null) {
+                        iterator.seekToFirst();
+                    } else {
+                        iterator.seek(from);
+                    }
+                    while (iterator.hasNext()) {
+                        Map.Entry<byte[], byte[]> entry = iterator.next();
+                        if (to != null && Bytes.compare(entry.getKey(), to) >= 0) {
+                            break;
+                        }
+                        consumer.accept(entry.getKey(), entry.getValue());
+                    }
+                } finally {
+                    closeQuit(iterator);
+                }
+            }
+
+            @Override
+            void release() {
+                closeQuit(snapshot);
+            }
+        };
+    }
+
+    static Source levelDbJna(LevelDB db) {
+        LevelDBSnapshot snapshot = db.createSnapshot();
+        LevelDBReadOptions readOption = new LevelDBReadOptions();
+        readOption.setSnapshot(snapshot);
+        return new SnapshotSource() {
+            @Override
+            public byte[] get(byte[] key) {
+                ensureOpen();
+                try {
+                    return db.get(key, readOption);
+                } catch (LevelDBException e) {
+                    throw new CacheException("Can not get data from LevelDB snapshot : " + db, e);
+                }
+            }
+
+            @Override
+            public void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) {
+                ensureOpen();
+                try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(db,
+                        NativeResources.get().levelDbJnaReadOption(snapshot, false))) {
+                    if (from != null) {
+                        iterator.seekToKey(from);
+                    }
+                    while (iterator.hasNext()) {
+                        KeyValuePair pair = iterator.next();
+                        if (to != null && Bytes.compare(pair.getKey(), to) >= 0) {
+                            break;
+                        }
+                        consumer.accept(pair.getKey(), pair.getValue());
+                    }
+                }
+            }
+
+            @Override
+            void release() {
+                closeQuit(readOption, snapshot);
+            }
+        };
+    }
+
+    /**
+     * 关闭以后的读取直接抛出IllegalStateException，不会再访问已经释放的snapshot
+     */
+    private abstract static class SnapshotSource implements Source {
+
+        private volatile boolean closed;
+
+        final void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("Snapshot is closed");
+            }
+        }
+
+        /**
+         * 释放底层的snapshot，只会调用一次
+         */
+        abstract void release();
+
+        @Override
+        public final synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        }
+    }
+
+    private static void closeQuit(AutoCloseable... closeables) {
+        for (AutoCloseable closeable : closeables) {
+            try {
+                if (closeable != null) {
+                    closeable.close();
+                }
+            } catch (Exception e) {
+                log.warn("Can not close resource " + closeable, e);
+            }
+        }
+    }
+}
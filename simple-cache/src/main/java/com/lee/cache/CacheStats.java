@@ -0,0 +1,214 @@
+package com.lee.cache;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * cache的统计信息快照，需要在配置里面开启metrics，没有开启的时候所有的值都是0；RocksDB的cache还带有RocksDbStats
+ * <p>
+ * 延迟按照操作类型分别统计，单位是纳秒；序列化和反序列化的时间单独统计，
+ * 所有操作的总时间减去序列化和反序列化的时间，就是花在底层存储上面的时间
+ */
+public final class CacheStats {
+
+    public static final CacheStats EMPTY = new CacheStats(
+            new EnumMap<>(Operation.class), 0, 0, Histogram.EMPTY, Histogram.EMPTY, 0, 0, null
+    );
+
+    public enum Operation {
+        GET, BATCH_GET, PUT, BATCH_PUT, DELETE, BATCH_DELETE, COMPUTE, SCAN
+    }
+
+    private final Map<Operation, Histogram> latencies;
+    private final long hitCount;
+    private final long missCount;
+    private final Histogram keyBytes;
+    private final Histogram valueBytes;
+    private final long serializeNanos;
+    private final long deserializeNanos;
+    private final RocksDbStats rocksDbStats;
+
+    CacheStats(Map<Operation, Histogram> latencies, long hitCount, long missCount, Histogram keyBytes,
+               Histogram valueBytes, long serializeNanos, long deserializeNanos, RocksDbStats rocksDbStats) {
+        this.latencies = latencies;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.keyBytes = keyBytes;
+        this.valueBytes = valueBytes;
+        this.serializeNanos = serializeNanos;
+        this.deserializeNanos = deserializeNanos;
+        this.rocksDbStats = rocksDbStats;
+    }
+
+    /**
+     * 加上底层RocksDB自己的统计，其他的值不变
+     */
+    CacheStats withRocksDbStats(RocksDbStats rocksDbStats) {
+        return new CacheStats(latencies, hitCount, missCount, keyBytes, valueBytes, serializeNanos, deserializeNanos,
+                rocksDbStats);
+    }
+
+    /**
+     * @return 这一类操作的延迟分布，单位是纳秒
+     */
+    public Histogram getLatency(Operation operation) {
+        Histogram histogram = latencies.get(operation);
+        return histogram == null ? Histogram.EMPTY : histogram;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * 序列化以后key的字节数分布，使用默认序列化器(可以序列化任何对象)的cache分不清key和value，不统计
+     */
+    public Histogram getKeyBytes() {
+        return keyBytes;
+    }
+
+    public Histogram getValueBytes() {
+        return valueBytes;
+    }
+
+    public long getSerializeNanos() {
+        return serializeNanos;
+    }
+
+    public long getDeserializeNanos() {
+        return deserializeNanos;
+    }
+
+    /**
+     * 所有操作的总时间减去序列化和反序列化的时间，scan和consume的时间里面包含了consumer自己的时间
+     */
+    public long getBackendNanos() {
+        long total = 0;
+        for (Histogram histogram : latencies.values()) {
+            total += histogram.getSum();
+        }
+        return Math.max(0, total - serializeNanos - deserializeNanos);
+    }
+
+    /**
+     * @return 底层RocksDB的统计，不是RocksDB的cache返回null
+     */
+    public RocksDbStats getRocksDbStats() {
+        return rocksDbStats;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "latencies=" + latencies +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", keyBytes=" + keyBytes +
+                ", valueBytes=" + valueBytes +
+                ", serializeNanos=" + serializeNanos +
+                ", deserializeNanos=" + deserializeNanos +
+                ", rocksDbStats=" + rocksDbStats +
+                '}';
+    }
+
+    /**
+     * 对数分桶的直方图，每个2的幂的区间再平分成8个桶，百分位的相对误差不超过12.5%，
+     * 返回的是所在桶的上界，并且不会超过记录到的最大值
+     */
+    public static final class Histogram {
+
+        static final Histogram EMPTY = new Histogram(new long[0], 0, 0);
+
+        static final int SUB_BUCKET_BITS = 3;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        static final int BUCKETS = (62 - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Histogram(long[] counts, long sum, long max) {
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            this.counts = counts;
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile 0到100之间，比如99.9
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) Math.max(value, 0);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+            long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + count +
+                    ", mean=" + getMean() +
+                    ", p50=" + getPercentile(50) +
+                    ", p99=" + getPercentile(99) +
+                    ", max=" + max +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.lee.cache;
+
+import com.protonail.leveldb.jna.KeyValuePair;
+import com.protonail.leveldb.jna.LevelDB;
+import com.protonail.leveldb.jna.LevelDBKeyValueIterator;
+import com.protonail.leveldb.jna.LevelDBSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 把底层数据库的迭代器包装成Stream，每次只往前走一步并且只反序列化需要的部分，调用方可以随时limit或者findFirst停下来
+ * <p>
+ * 迭代器和snapshot在Stream关闭的时候释放，遍历到最后的时候也会自动释放，
+ * 如果中途停下来，那么必须关闭Stream，最好使用try-with-resources
+ */
+@Slf4j
+final class CacheStreams {
+
+    private CacheStreams() {
+    }
+
+    /**
+     * 和RocksIterator的用法一样，isValid的时候才可以读取key和value，close可以重复调用
+     */
+    interface Cursor extends AutoCloseable {
+
+        boolean isValid();
+
+        byte[] key();
+
+        byte[] value();
+
+        void next();
+
+        @Override
+        void close();
+    }
+
+    static <T> Stream<T> stream(Cursor cursor, Function<Cursor, T> mapper) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!cursor.isValid()) {
+                    cursor.close();
+                    return false;
+                }
+                T value = mapper.apply(cursor);
+                cursor.next();
+                action.accept(value);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
+    static Cursor rocksDb(RocksDB db, ColumnFamilyHandle columnFamily) {
+        Snapshot snapshot = db.getSnapshot();
+        RocksIterator iterator = db.newIterator(columnFamily, NativeResources.get().rocksDbReadOption(snapshot, null));
+        iterator.seekToFirst();
+        return new Cursor() {
+            private boolean closed;
+
+            @Override
+            public boolean isValid() {
+                return !closed && iterator.isValid();
+            }
+
+            @Override
+            public byte[] key() {
+                return iterator.key();
+            }
+
+            @Override
+            public byte[] value() {
+                return iterator.value();
+            }
+
+            @Override
+            public void next() {
+                iterator.next();
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    closeQuit(iterator);
+                    db.releaseSnapshot(snapshot);
+                }
+            }
+        };
+    }
+
+    static Cursor levelDbJni(DB db) {
+        org.iq80.leveldb.ReadOptions readOption = new org.iq80.leveldb.ReadOptions()
+                .fillCache(false).snapshot(db.getSnapshot());
+        DBIterator iterator = db.iterator(readOption);
+        iterator.seekToFirst();
+        return new Cursor() {
+            private Map.Entry<byte[], byte[]> current = iterator.hasNext() ? iterator.next() : null;
+            private boolean closed;
+
+            @Override
+            public boolean isValid() {
+                return !closed && current != null;
+            }
+
+            @Override
+            public byte[] key() {
+                return current.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return current.getValue();
+            }
+
+            @Override
+            public void next() {
+                current = iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    current = null;
+                    closeQuit(iterator, readOption.snapshot());
+                }
+            }
+        };
+    }
+
+    /**
+     * leveldb-jna的迭代器创建出来就已经seek_to_first了
+     */
+    static Cursor levelDbJna(LevelDB db) {
+        LevelDBSnapshot snapshot = db.createSnapshot();
+        LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(db,
+                NativeResources.get().levelDbJnaReadOption(snapshot, false));
+        return new Cursor() {
+            private KeyValuePair current = iterator.hasNext() ? iterator.next() : null;
+            private boolean closed;
+
+            @Override
+            public boolean isValid() {
+                return !closed && current != null;
+            }
+
+            @Override
+            public byte[] key() {
+                return current.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return current.getValue();
+            }
+
+            @Override
+            public void next() {
+                current = iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    current = null;
+                    closeQuit(iterator, snapshot);
+                }
+            }
+        };
+    }
+
+    private static void closeQuit(AutoCloseable... closeables) {
+        for (AutoCloseable closeable : closeables) {
+            try {
+                if (closeable != null) {
+                    closeable.close();
+                }
+            } catch (Exception e) {
+                log.warn("Can not close resource " + closeable, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.lee.cache;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 计数器，累加在存储层完成，不需要先读再写，适合限流、监控这种写多读少的场景
+ *
+ * @param <K> key
+ */
+public interface CounterCache<K> extends Closeable {
+
+    /**
+     * 给key对应的计数器加上delta，可以是负数，key不存在的时候从0开始
+     */
+    void increment(K key, long delta);
+
+    /**
+     * @return key对应的计数，不存在返回0
+     */
+    long get(K key);
+
+    /**
+     * 批量获取，返回的Map里面只包含存在的key，调用之前的increment都能看到
+     */
+    Map<K, Long> getAll(Collection<K> keys);
+
+    void delete(K key);
+
+    /**
+     * 把内存里面还没有写入的累加值写到底层存储
+     */
+    void flush();
+}
@@ -0,0 +1,129 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+import com.lee.cache.serializer.PrimitiveCodec;
+import com.lee.cache.serializer.Serializer;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 每个线程私有的direct buffer，RocksDB的ByteBuffer接口只接受direct buffer，key和value直接序列化到这里，
+ * 然后交给RocksDB，整个过程不需要创建中间的byte[]
+ * <p>
+ * 当空间不够的时候按照2倍扩容，一直到MAX_CAPACITY；超过RETAIN_CAPACITY的buffer只用这一次，不会留在线程里面，
+ * 否则偶尔写一个很大的value，这个线程就会一直占着这么大的direct memory
+ */
+final class DirectBuffers {
+
+    private static final int MAX_CAPACITY = 256 * 1024 * 1024;
+    private static final int RETAIN_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<DirectBuffers> BUFFERS = ThreadLocal.withInitial(DirectBuffers::new);
+
+    private ByteBuffer key = ByteBuffer.allocateDirect(256);
+    private ByteBuffer value = ByteBuffer.allocateDirect(4096);
+    private final byte[] longKey = new byte[Long.BYTES];
+    private final byte[] intKey = new byte[Integer.BYTES];
+
+    private DirectBuffers() {
+    }
+
+    static DirectBuffers get() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * 把key序列化到key buffer里面，返回的buffer已经flip过了，可以直接读取
+     */
+    <T> ByteBuffer key(Serializer<T> serializer, T object) {
+        ByteBuffer buffer = key;
+        while (true) {
+            try {
+                return write(buffer, serializer, object);
+            } catch (BufferOverflowException e) {
+                buffer = grow(buffer, buffer.capacity() << 1);
+                if (buffer.capacity() <= RETAIN_CAPACITY) {
+                    key = buffer;
+                }
+            }
+        }
+    }
+
+    <T> ByteBuffer value(Serializer<T> serializer, T object) {
+        ByteBuffer buffer = value;
+        while (true) {
+            try {
+                return write(buffer, serializer, object);
+            } catch (BufferOverflowException e) {
+                buffer = grow(buffer, buffer.capacity() << 1);
+                if (buffer.capacity() <= RETAIN_CAPACITY) {
+                    value = buffer;
+                }
+            }
+        }
+    }
+
+    /**
+     * 基本数据类型的key直接按照大端写入，和DefaultSerializer的编码一致，不需要装箱
+     */
+    ByteBuffer key(long object) {
+        key.clear();
+        key.putLong(object).flip();
+        return key;
+    }
+
+    ByteBuffer key(int object) {
+        key.clear();
+        key.putInt(object).flip();
+        return key;
+    }
+
+    /**
+     * 只有byte[]接口的地方(leveldbjni、RocksDB的delete)使用，返回的数组在下一次调用之前一直有效，调用者不能持有它
+     */
+    byte[] keyBytes(long object) {
+        PrimitiveCodec.putLong(longKey, 0, object);
+        return longKey;
+    }
+
+    byte[] keyBytes(int object) {
+        PrimitiveCodec.putInt(intKey, 0, object);
+        return intKey;
+    }
+
+    ByteBuffer value(long object) {
+        value.clear();
+        value.putLong(object).flip();
+        return value;
+    }
+
+    /**
+     * 返回一个clear以后，至少有capacity大小的value buffer，用于从RocksDB读取value
+     */
+    ByteBuffer value(int capacity) {
+        if (value.capacity() < capacity) {
+            ByteBuffer buffer = grow(value, capacity);
+            if (capacity > RETAIN_CAPACITY) {
+                return buffer;
+            }
+            value = buffer;
+        }
+        value.clear();
+        return value;
+    }
+
+    private static <T> ByteBuffer write(ByteBuffer buffer, Serializer<T> serializer, T object) {
+        buffer.clear();
+        serializer.serialize(object, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        if (capacity > MAX_CAPACITY || capacity <= 0) {
+            throw new CacheException("Serialized data is too large, current buffer capacity " + buffer.capacity());
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+}
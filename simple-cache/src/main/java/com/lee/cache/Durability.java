@@ -0,0 +1,28 @@
+package com.lee.cache;
+
+/**
+ * 批量写入的时候临时覆盖cache配置的持久化级别
+ */
+public enum Durability {
+
+    /**
+     * 使用cache配置的写入选项
+     */
+    DEFAULT,
+
+    /**
+     * 写入WAL并且fsync以后才返回，机器掉电也不会丢失
+     */
+    SYNC,
+
+    /**
+     * 写入WAL但是不等待fsync，进程崩溃不会丢失，机器掉电可能会丢失最近的写入
+     */
+    ASYNC,
+
+    /**
+     * 不写WAL，进程崩溃的时候还在memtable里面的数据会丢失，适合可以重建的纯缓存，
+     * LevelDB不能关闭WAL，等同于ASYNC
+     */
+    NO_WAL
+}
@@ -3,11 +3,17 @@ package com.lee.cache;
 import net.sf.ehcache.Element;
 
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Ehcache<K, V> extends EhcacheAny<K, V> {
 
@@ -39,6 +45,19 @@ public class Ehcache<K, V> extends EhcacheAny<K, V> {
         return null;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, V> get(Collection<K> keys) {
+        Map<K, V> keyValues = new HashMap<>(keys.size() * 4 / 3 + 1);
+        for (Map.Entry<Object, Element> entry : cache.getAll(keys).entrySet()) {
+            Element element = entry.getValue();
+            if (element != null) {
+                keyValues.put((K) entry.getKey(), (V) element.getObjectValue());
+            }
+        }
+        return keyValues;
+    }
+
     @Override
     public void put(Map<K, V> keyValues) {
         cache.putAll(
@@ -55,6 +74,38 @@ public class Ehcache<K, V> extends EhcacheAny<K, V> {
         cache.removeAll(keys);
     }
 
+    /**
+     * 注意: ehcache没有游标，开始遍历的时候getKeys会把所有key的引用拷贝成一个列表放在内存里面，
+     * value在遍历到的时候才用getQuiet去取
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<K> keys() {
+        return keyList().map(key -> (K) key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<V> values() {
+        return elements().map(element -> (V) element.getObjectValue());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<Map.Entry<K, V>> entries() {
+        return elements().map(element -> new AbstractMap.SimpleImmutableEntry<>(
+                (K) element.getObjectKey(), (V) element.getObjectValue()
+        ));
+    }
+
+    private Stream<Element> elements() {
+        return keyList().map(cache::getQuiet).filter(Objects::nonNull);
+    }
+
+    private Stream<?> keyList() {
+        return StreamSupport.stream(() -> cache.getKeys().spliterator(), Spliterator.ORDERED, false);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void consumeKey(Consumer<K> consumer) {
@@ -9,11 +9,17 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 public class EhcacheAny<K, V> extends BaseCache<K, V> {
@@ -41,26 +47,62 @@ public class EhcacheAny<K, V> extends BaseCache<K, V> {
 
     @Override
     public V get(K key) {
-        Element element = cache.get(new Wrapper(serializeKey(key)));
-        if (element != null) {
-            Wrapper wrapper = (Wrapper) element.getObjectValue();
-            return deserializeValue(wrapper.getBytes());
+        byte[] bytes = getBytes(serializeKey(key));
+        if (bytes != null) {
+            return deserializeValue(bytes);
         }
         return null;
     }
 
     @Override
     public V put(K key, V value) {
-        cache.put(new Element(new Wrapper(serializeKey(key)), new Wrapper(serializeValue(value))));
+        putBytes(serializeKey(key), serializeValue(value));
         return null;
     }
 
     @Override
     public V delete(K key) {
-        cache.remove(new Wrapper(serializeKey(key)));
+        deleteBytes(serializeKey(key));
         return null;
     }
 
+    protected byte[] getBytes(byte[] key) {
+        Element element = cache.get(new Wrapper(key));
+        if (element != null) {
+            Wrapper wrapper = (Wrapper) element.getObjectValue();
+            return wrapper.getBytes();
+        }
+        return null;
+    }
+
+    protected void putBytes(byte[] key, byte[] value) {
+        cache.put(new Element(new Wrapper(key), new Wrapper(value)));
+    }
+
+    protected void deleteBytes(byte[] key) {
+        cache.remove(new Wrapper(key));
+    }
+
+    /**
+     * ehcache的getAll一次加锁查询所有的key，不存在的key返回的element是null
+     */
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        Map<Wrapper, K> wrappers = new HashMap<>(keys.size() * 4 / 3 + 1);
+        for (K key : keys) {
+            wrappers.put(new Wrapper(serializeKey(key)), key);
+        }
+        Map<K, V> keyValues = new HashMap<>(wrappers.size() * 4 / 3 + 1);
+        for (Map.Entry<Object, Element> entry : cache.getAll(wrappers.keySet()).entrySet()) {
+            Element element = entry.getValue();
+            if (element != null) {
+                Wrapper wrapper = (Wrapper) element.getObjectValue();
+                keyValues.put(wrappers.get(entry.getKey()), deserializeValue(wrapper.getBytes()));
+            }
+        }
+        return keyValues;
+    }
+
     @Override
     public void put(Map<K, V> keyValues) {
         cache.putAll(
@@ -79,6 +121,37 @@ public class EhcacheAny<K, V> extends BaseCache<K, V> {
         );
     }
 
+    /**
+     * 注意: ehcache没有游标，开始遍历的时候getKeys会把所有key的引用拷贝成一个列表放在内存里面，
+     * 列表在终止操作开始的时候才创建，之后流式的处理，只有真正取到的key才会反序列化，
+     * value在遍历到的时候才用getQuiet去取，不会影响命中率的统计和驱逐，中途被驱逐掉的key直接跳过
+     */
+    @Override
+    public Stream<K> keys() {
+        return keyList().map(key -> deserializeKey(((Wrapper) key).getBytes()));
+    }
+
+    @Override
+    public Stream<V> values() {
+        return elements().map(element -> deserializeValue(((Wrapper) element.getObjectValue()).getBytes()));
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        return elements().map(element -> new AbstractMap.SimpleImmutableEntry<>(
+                deserializeKey(((Wrapper) element.getObjectKey()).getBytes()),
+                deserializeValue(((Wrapper) element.getObjectValue()).getBytes())
+        ));
+    }
+
+    private Stream<Element> elements() {
+        return keyList().map(cache::getQuiet).filter(Objects::nonNull);
+    }
+
+    private Stream<?> keyList() {
+        return StreamSupport.stream(() -> cache.getKeys().spliterator(), Spliterator.ORDERED, false);
+    }
+
     @Override
     public void consumeKey(Consumer<K> consumer) {
         List keys = cache.getKeys();
@@ -0,0 +1,50 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.PrimitiveCodec;
+import com.lee.cache.serializer.Serializer;
+import net.sf.ehcache.Cache;
+
+/**
+ * @param <V> value的类型
+ */
+public class EhcacheIntCache<V> extends EhcacheAny<Integer, V> implements IntObjectCache<V> {
+
+    public EhcacheIntCache(Cache cache, Serializer<V> serializerValue) {
+        super(cache, Integer.class, serializerValue);
+    }
+
+    public EhcacheIntCache(Cache cache, Class<V> valueType) {
+        super(cache, Integer.class, valueType);
+    }
+
+    @Override
+    public V get(int key) {
+        long start = metricsStart();
+        byte[] bytes = getBytes(PrimitiveCodec.toBytes(key));
+        V result = bytes == null ? null : deserializeValue(bytes);
+        recordGet(start, result != null);
+        return result;
+    }
+
+    @Override
+    public V put(int key, V value) {
+        long start = metricsStart();
+        try {
+            putBytes(PrimitiveCodec.toBytes(key), serializeValue(value));
+            return null;
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public V delete(int key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(PrimitiveCodec.toBytes(key));
+            return null;
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
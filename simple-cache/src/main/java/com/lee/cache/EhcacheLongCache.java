@@ -0,0 +1,52 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.PrimitiveCodec;
+import com.lee.cache.serializer.Serializer;
+import net.sf.ehcache.Cache;
+
+/**
+ * ehcache存储的是Wrapper，所以key还是需要一个数组，但是省掉了装箱和序列化器的查找
+ *
+ * @param <V> value的类型
+ */
+public class EhcacheLongCache<V> extends EhcacheAny<Long, V> implements LongObjectCache<V> {
+
+    public EhcacheLongCache(Cache cache, Serializer<V> serializerValue) {
+        super(cache, Long.class, serializerValue);
+    }
+
+    public EhcacheLongCache(Cache cache, Class<V> valueType) {
+        super(cache, Long.class, valueType);
+    }
+
+    @Override
+    public V get(long key) {
+        long start = metricsStart();
+        byte[] bytes = getBytes(PrimitiveCodec.toBytes(key));
+        V result = bytes == null ? null : deserializeValue(bytes);
+        recordGet(start, result != null);
+        return result;
+    }
+
+    @Override
+    public V put(long key, V value) {
+        long start = metricsStart();
+        try {
+            putBytes(PrimitiveCodec.toBytes(key), serializeValue(value));
+            return null;
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public V delete(long key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(PrimitiveCodec.toBytes(key));
+            return null;
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.lee.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 把同步的Cache包装成AsyncCache，所有的操作都提交到executor里面执行
+ * <p>
+ * 如果是TieredCache，近端缓存命中的读取直接在调用线程里面返回，不需要切换线程
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class ExecutorAsyncCache<K, V> implements AsyncCache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final Executor executor;
+
+    public ExecutorAsyncCache(Cache<K, V> cache, Executor executor) {
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        if (cache instanceof TieredCache) {
+            V value = ((TieredCache<K, V>) cache).getIfPresent(key);
+            if (value != null) {
+                return CompletableFuture.completedFuture(value);
+            }
+        }
+        return submit(() -> cache.get(key));
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys) {
+        return submit(() -> cache.get(keys));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        return submit(() -> {
+            cache.put(key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(K key) {
+        return submit(() -> {
+            cache.delete(key);
+            return null;
+        });
+    }
+
+    @Override
+    public Cache<K, V> synchronous() {
+        return cache;
+    }
+
+    /**
+     * 线程池拒绝的时候supplyAsync会直接抛出异常，这里统一转换成失败的CompletableFuture
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (Exception e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+}
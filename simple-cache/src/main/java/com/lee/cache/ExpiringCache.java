@@ -0,0 +1,347 @@
+package com.lee.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 支持单个entry过期时间的cache，过期时间写在value前面的header里面(见ExpirySerializer)，每个entry可以不一样
+ * <p>
+ * 读取的时候已经过期的entry反序列化出来是null，这里统一过滤掉，所以过期以后马上就读不到了；
+ * 底层的数据由后台线程定时遍历清理，删除之前在写锁里面再确认一次，避免把刚刚重新写入的数据删掉，
+ * 写操作拿的是读锁，互相之间不会阻塞
+ * <p>
+ * 注意：底层cache的value都带有header，只能用于新的cache
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+@Slf4j
+public class ExpiringCache<K, V> implements Cache<K, V> {
+
+    private static final int SWEEP_BATCH = 1024;
+
+    private final BaseCache<K, V> delegate;
+    private final StampedLock lock = new StampedLock();
+    private final ScheduledExecutorService sweeper;
+
+    public ExpiringCache(BaseCache<K, V> delegate, long sweepIntervalMillis) {
+        if (sweepIntervalMillis <= 0) {
+            throw new IllegalArgumentException("sweepIntervalMillis must be greater than 0");
+        }
+        delegate.enableExpiry();
+        this.delegate = delegate;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMillis, sweepIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public V get(K key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        Map<K, V> keyValues = delegate.get(keys);
+        keyValues.values().removeIf(Objects::isNull);
+        return keyValues;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        long stamp = lock.readLock();
+        try {
+            return delegate.put(key, value);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public V put(K key, V value, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be greater than 0 : " + ttl);
+        }
+        long stamp = lock.readLock();
+        try {
+            return delegate.put(key, value, System.currentTimeMillis() + ttl.toMillis());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 已经过期的entry按照不存在处理，写入的新value不会过期
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        long stamp = lock.readLock();
+        try {
+            return delegate.compute(key, function);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        long stamp = lock.readLock();
+        try {
+            return delegate.merge(key, value, function);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        long stamp = lock.readLock();
+        try {
+            return delegate.putIfAbsent(key, value);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public V delete(K key) {
+        return delegate.delete(key);
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        long stamp = lock.readLock();
+        try {
+            delegate.put(keyValues);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        long stamp = lock.readLock();
+        try {
+            delegate.put(keyValues, durability);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void delete(Collection<K> keys) {
+        delegate.delete(keys);
+    }
+
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        delegate.scan(from, to, live(consumer));
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        delegate.prefixScan(prefix, live(consumer));
+    }
+
+    @Override
+    public Stream<K> keys() {
+        return entries().map(Map.Entry::getKey);
+    }
+
+    @Override
+    public Stream<V> values() {
+        return delegate.values().filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        return delegate.entries().filter(entry -> entry.getValue() != null);
+    }
+
+    /**
+     * 需要读取value才知道有没有过期
+     */
+    @Override
+    public void consumeKey(Consumer<K> consumer) {
+        delegate.consume(live((key, value) -> consumer.accept(key)));
+    }
+
+    @Override
+    public void consumeParallel(BiConsumer<K, V> consumer, int parallelism) {
+        delegate.consumeParallel(live(consumer), parallelism);
+    }
+
+    @Override
+    public void consumeValue(Consumer<V> consumer) {
+        delegate.consumeValue(value -> {
+            if (value != null) {
+                consumer.accept(value);
+            }
+        });
+    }
+
+    @Override
+    public void consume(BiConsumer<K, V> consumer) {
+        delegate.consume(live(consumer));
+    }
+
+    /**
+     * 过期的判断发生在读取的时候，snapshot里面的entry也会随着时间过期
+     */
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        return new LiveSnapshot<>(delegate.snapshot());
+    }
+
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    /**
+     * 遍历一遍底层存储，把已经过期的entry删除掉，遍历的时候只看value的header，不反序列化value，
+     * 只有过期的key才会反序列化
+     *
+     * @return 删除的entry的个数
+     */
+    public long sweep() {
+        List<K> expired = new ArrayList<>();
+        long[] removed = new long[1];
+        long now = System.currentTimeMillis();
+        delegate.consumeBytes((key, value) -> {
+            if (ExpirySerializer.isExpired(value, now)) {
+                expired.add(delegate.deserializeKey(key));
+                if (expired.size() >= SWEEP_BATCH) {
+                    removed[0] += remove(expired);
+                    expired.clear();
+                }
+            }
+        });
+        if (!expired.isEmpty()) {
+            removed[0] += remove(expired);
+        }
+        return removed[0];
+    }
+
+    public Cache<K, V> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sweeper.shutdown();
+        try {
+            if (!sweeper.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Timeout to wait expiry sweeper to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    /**
+     * 遍历的时候拿到的是旧的数据，在写锁里面重新读一次，还是过期或者已经不存在的才删除
+     */
+    private int remove(List<K> expired) {
+        long stamp = lock.writeLock();
+        try {
+            Map<K, V> current = delegate.get(expired);
+            Iterator<K> iterator = expired.iterator();
+            while (iterator.hasNext()) {
+                if (current.get(iterator.next()) != null) {
+                    iterator.remove();
+                }
+            }
+            if (!expired.isEmpty()) {
+                delegate.delete(expired);
+            }
+            return expired.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            long removed = sweep();
+            if (removed > 0) {
+                log.debug("Removed {} expired entries from {}", removed, delegate);
+            }
+        } catch (Exception e) {
+            log.error("Can not remove expired entries from " + delegate, e);
+        }
+    }
+
+    private static <K, V> BiConsumer<K, V> live(BiConsumer<K, V> consumer) {
+        return (key, value) -> {
+            if (value != null) {
+                consumer.accept(key, value);
+            }
+        };
+    }
+
+    /**
+     * 和ExpiringCache本身一样，把已经过期的entry过滤掉
+     */
+    private static final class LiveSnapshot<K, V> implements CacheSnapshot<K, V> {
+
+        private final CacheSnapshot<K, V> snapshot;
+
+        LiveSnapshot(CacheSnapshot<K, V> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public V get(K key) {
+            return snapshot.get(key);
+        }
+
+        @Override
+        public Map<K, V> get(Collection<K> keys) {
+            Map<K, V> keyValues = snapshot.get(keys);
+            keyValues.values().removeIf(Objects::isNull);
+            return keyValues;
+        }
+
+        @Override
+        public void scan(K from, K to, BiConsumer<K, V> consumer) {
+            snapshot.scan(from, to, live(consumer));
+        }
+
+        @Override
+        public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+            snapshot.prefixScan(prefix, live(consumer));
+        }
+
+        @Override
+        public void consume(BiConsumer<K, V> consumer) {
+            snapshot.consume(live(consumer));
+        }
+
+        @Override
+        public void close() {
+            snapshot.close();
+        }
+    }
+}
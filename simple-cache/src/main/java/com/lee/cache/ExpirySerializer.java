@@ -0,0 +1,131 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.PrimitiveCodec;
+import com.lee.cache.serializer.Serializer;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 在value前面加上过期时间的header，由ExpiringCache安装到底层cache的value序列化器上面
+ * <p>
+ * header的格式：第一个字节是NEVER表示不会过期，只占一个字节；是EXPIRE的话后面跟着8个字节大端的过期时间(毫秒)。
+ * 普通的写入没有过期时间，带过期时间的写入通过at(expireAt)拿到一个写入这个过期时间的序列化器，交给底层cache；
+ * 已经过期的value反序列化的结果是null，上层按照不存在处理
+ */
+final class ExpirySerializer<V> implements Serializer<V> {
+
+    private static final byte NEVER = 0;
+    private static final byte EXPIRE = 1;
+    private static final int EXPIRE_HEADER = 9;
+
+    private final Serializer<V> serializer;
+
+    ExpirySerializer(Serializer<V> serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @param expireAt 过期时间(毫秒)，0表示不过期
+     * @return 写入的value带有这个过期时间的序列化器，反序列化和这里一样
+     */
+    Serializer<V> at(long expireAt) {
+        return new Serializer<V>() {
+            @Override
+            public byte[] serialize(V value) {
+                return ExpirySerializer.this.serialize(value, expireAt);
+            }
+
+            @Override
+            public int serialize(V value, ByteBuffer buffer) {
+                return ExpirySerializer.this.serialize(value, buffer, expireAt);
+            }
+
+            @Override
+            public V deserialize(byte[] bytes) {
+                return ExpirySerializer.this.deserialize(bytes);
+            }
+
+            @Override
+            public V deserialize(ByteBuffer buffer) {
+                return ExpirySerializer.this.deserialize(buffer);
+            }
+
+            @Override
+            public Class<V> getType() {
+                return serializer.getType();
+            }
+        };
+    }
+
+    @Override
+    public byte[] serialize(V value) {
+        return serialize(value, 0);
+    }
+
+    @Override
+    public int serialize(V value, ByteBuffer buffer) {
+        return serialize(value, buffer, 0);
+    }
+
+    @Override
+    public V deserialize(byte[] bytes) {
+        return deserialize(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public V deserialize(ByteBuffer buffer) {
+        if (buffer.get() == EXPIRE && buffer.getLong() <= System.currentTimeMillis()) {
+            buffer.position(buffer.limit());
+            return null;
+        }
+        return serializer.deserialize(buffer);
+    }
+
+    @Override
+    public Class<V> getType() {
+        return serializer.getType();
+    }
+
+    @Override
+    public String toString() {
+        return "ExpirySerializer(" + serializer + ")";
+    }
+
+    /**
+     * 只看序列化以后的header，不反序列化value，给清理过期数据的遍历使用
+     */
+    static boolean isExpired(byte[] bytes, long now) {
+        return bytes.length >= EXPIRE_HEADER && bytes[0] == EXPIRE && PrimitiveCodec.getLong(bytes, 1) <= now;
+    }
+
+    private byte[] serialize(V value, long expireAt) {
+        byte[] bytes = serializer.serialize(value);
+        ByteBuffer buffer = ByteBuffer.allocate((expireAt == 0 ? 1 : EXPIRE_HEADER) + bytes.length);
+        writeHeader(buffer, expireAt);
+        buffer.put(bytes);
+        return buffer.array();
+    }
+
+    private int serialize(V value, ByteBuffer buffer, long expireAt) {
+        int position = buffer.position();
+        try {
+            return writeHeader(buffer, expireAt) + serializer.serialize(value, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(position);
+            throw e;
+        }
+    }
+
+    private static int writeHeader(ByteBuffer buffer, long expireAt) {
+        if (expireAt == 0) {
+            buffer.put(NEVER);
+            return 1;
+        }
+        if (buffer.remaining() < EXPIRE_HEADER) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(EXPIRE).putLong(expireAt);
+        return EXPIRE_HEADER;
+    }
+}
@@ -0,0 +1,17 @@
+package com.lee.cache;
+
+import java.io.Closeable;
+
+/**
+ * key是int的Cache，和Cache&lt;Integer, V&gt;的存储格式完全一致
+ *
+ * @param <V> value的类型
+ */
+public interface IntObjectCache<V> extends Closeable {
+
+    V get(int key);
+
+    V put(int key, V value);
+
+    V delete(int key);
+}
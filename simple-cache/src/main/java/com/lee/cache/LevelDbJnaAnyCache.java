@@ -8,10 +8,15 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 实际上leveldb是没有update和delete的操作的，他们都是一条记录而已，删除只是添加一条记录，该记录有一个标志表示删除
@@ -33,6 +38,12 @@ public class LevelDbJnaAnyCache<K, V> extends BaseCache<K, V> {
 
     private LevelDBReadOptions readOption = new LevelDBReadOptions();
     private LevelDBWriteOptions writeOption = new LevelDBWriteOptions();
+    private LevelDBWriteOptions syncWriteOption = new LevelDBWriteOptions();
+    private LevelDBWriteOptions asyncWriteOption = new LevelDBWriteOptions();
+
+    {
+        syncWriteOption.setSync(true);
+    }
 
     public LevelDbJnaAnyCache(LevelDB db, Serializer<Object> serializer, boolean truncate, String path, String name) {
         super(serializer);
@@ -89,87 +100,197 @@ public class LevelDbJnaAnyCache<K, V> extends BaseCache<K, V> {
         return empty;
     }
 
+    /**
+     * 和LevelDbJni一样，排好序以后在同一个snapshot上面顺序seek，迭代器的next已经往前走了一步，
+     * 所以记住上一次取出来的记录，它不小于当前的key的时候就不需要再seek
+     */
     @Override
-    public void put(Map<K, V> keyValues) {
-        try (LevelDBWriteOptions writeOptions = new LevelDBWriteOptions()) {
-            try (LevelDBWriteBatch batch = new LevelDBWriteBatch()) {
-                for (Map.Entry<K, V> entries : keyValues.entrySet()) {
-                    batch.put(
-                            serializeAny(entries.getKey()),
-                            serializeAny(entries.getValue())
-                    );
+    @SuppressWarnings("unchecked")
+    public Map<K, V> get(Collection<K> keys) {
+        List<Map.Entry<byte[], K>> sortedKeys = Bytes.sort(keys, this::serializeAny);
+        Map<K, V> keyValues = new HashMap<>(sortedKeys.size() * 4 / 3 + 1);
+        LevelDBSnapshot snapshot = levelDb.createSnapshot();
+        try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(levelDb,
+                NativeResources.get().levelDbJnaReadOption(snapshot, true))) {
+            KeyValuePair current = null;
+            for (Map.Entry<byte[], K> key : sortedKeys) {
+                if (current == null || Bytes.compare(current.getKey(), key.getKey()) < 0) {
+                    iterator.seekToKey(key.getKey());
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    current = iterator.next();
+                }
+                if (Arrays.equals(current.getKey(), key.getKey())) {
+                    keyValues.put(key.getValue(), (V) deserializeAny(current.getValue()));
                 }
-                levelDb.write(batch, writeOptions);
-            } catch (LevelDBException e) {
-                throw new CacheException("Can not execute batch put data to LevelDB : " + levelDb, e);
             }
+        } catch (LevelDBException e) {
+            throw new CacheException("Can not execute batch get data from LevelDB : " + levelDb, e);
+        } finally {
+            closeQuit(snapshot);
+        }
+        return keyValues;
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        put(keyValues, Durability.DEFAULT);
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        try (LevelDBWriteBatch batch = new LevelDBWriteBatch()) {
+            for (Map.Entry<K, V> entries : keyValues.entrySet()) {
+                batch.put(
+                        serializeAny(entries.getKey()),
+                        serializeAny(entries.getValue())
+                );
+            }
+            levelDb.write(batch, writeOption(durability));
+        } catch (LevelDBException e) {
+            throw new CacheException("Can not execute batch put data to LevelDB : " + levelDb, e);
         }
     }
 
     @Override
     public void delete(Collection<K> keys) {
-        try (LevelDBWriteOptions writeOptions = new LevelDBWriteOptions()) {
-            try (LevelDBWriteBatch batch = new LevelDBWriteBatch()) {
-                for (K key : keys) {
-                    batch.delete(serializeAny(key));
+        try (LevelDBWriteBatch batch = new LevelDBWriteBatch()) {
+            for (K key : keys) {
+                batch.delete(serializeAny(key));
+            }
+            levelDb.write(batch, writeOption);
+        } catch (LevelDBException e) {
+            throw new CacheException("Can not execute batch delete data from LevelDB : " + levelDb, e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        scan(from == null ? null : serializeAny(from), to == null ? null : serializeAny(to),
+                (key, value) -> consumer.accept((K) deserializeAny(key), (V) deserializeAny(value)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        scan(prefix, Bytes.nextPrefix(prefix), (key, value) -> consumer.accept((K) deserializeAny(key), (V) deserializeAny(value)));
+    }
+
+    /**
+     * 从from开始seek，遇到不小于to的key就停下来，不需要从头遍历整个db
+     */
+    private void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) {
+        LevelDBSnapshot snapshot = levelDb.createSnapshot();
+        try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(levelDb,
+                NativeResources.get().levelDbJnaReadOption(snapshot, false))) {
+            if (from != null) {
+                iterator.seekToKey(from);
+            }
+            while (iterator.hasNext()) {
+                KeyValuePair pair = iterator.next();
+                if (to != null && Bytes.compare(pair.getKey(), to) >= 0) {
+                    break;
                 }
-                levelDb.write(batch, writeOptions);
-            } catch (LevelDBException e) {
-                throw new CacheException("Can not execute batch delete data from LevelDB : " + levelDb, e);
+                consumer.accept(pair.getKey(), pair.getValue());
             }
+        } finally {
+            closeQuit(snapshot);
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<K> keys() {
+        return CacheStreams.stream(CacheStreams.levelDbJna(levelDb), cursor -> (K) deserializeAny(cursor.key()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<V> values() {
+        return CacheStreams.stream(CacheStreams.levelDbJna(levelDb), cursor -> (V) deserializeAny(cursor.value()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<Map.Entry<K, V>> entries() {
+        return CacheStreams.stream(CacheStreams.levelDbJna(levelDb), cursor -> new AbstractMap.SimpleImmutableEntry<>(
+                (K) deserializeAny(cursor.key()), (V) deserializeAny(cursor.value())
+        ));
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void consumeKey(Consumer<K> consumer) {
-        try (LevelDBReadOptions levelDbReadOption = new LevelDBReadOptions()) {
-            levelDbReadOption.setFillCache(false);
-            levelDbReadOption.setSnapshot(levelDb.createSnapshot());
-            try (LevelDBKeyIterator iterator = new LevelDBKeyIterator(levelDb, levelDbReadOption)) {
-                while (iterator.hasNext()) {
-                    consumer.accept((K) deserializeAny(iterator.next()));
-                }
-            } finally {
-                closeQuit(levelDbReadOption.getSnapshot());
+        LevelDBSnapshot snapshot = levelDb.createSnapshot();
+        try (LevelDBKeyIterator iterator = new LevelDBKeyIterator(levelDb,
+                NativeResources.get().levelDbJnaReadOption(snapshot, false))) {
+            while (iterator.hasNext()) {
+                consumer.accept((K) deserializeAny(iterator.next()));
             }
+        } finally {
+            closeQuit(snapshot);
         }
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public void consumeValue(Consumer<V> consumer) {
-        try (LevelDBReadOptions levelDbReadOption = new LevelDBReadOptions()) {
-            levelDbReadOption.setFillCache(false);
-            levelDbReadOption.setSnapshot(levelDb.createSnapshot());
-            try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(levelDb, levelDbReadOption)) {
-                while (iterator.hasNext()) {
-                    KeyValuePair pair = iterator.next();
-                    consumer.accept((V) deserializeAny(pair.getValue()));
-                }
-            } finally {
-                closeQuit(levelDbReadOption.getSnapshot());
+        LevelDBSnapshot snapshot = levelDb.createSnapshot();
+        try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(levelDb,
+                NativeResources.get().levelDbJnaReadOption(snapshot, false))) {
+            while (iterator.hasNext()) {
+                KeyValuePair pair = iterator.next();
+                consumer.accept((V) deserializeAny(pair.getValue()));
             }
+        } finally {
+            closeQuit(snapshot);
         }
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public void consume(BiConsumer<K, V> consumer) {
-        try (LevelDBReadOptions levelDbReadOption = new LevelDBReadOptions()) {
-            levelDbReadOption.setFillCache(false);
-            levelDbReadOption.setSnapshot(levelDb.createSnapshot());
-            try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(levelDb, levelDbReadOption)) {
-                while (iterator.hasNext()) {
-                    KeyValuePair pair = iterator.next();
-                    consumer.accept(
-                            (K) deserializeAny(pair.getKey()),
-                            (V) deserializeAny(pair.getValue())
-                    );
-                }
-            } finally {
-                closeQuit(levelDbReadOption.getSnapshot());
+        LevelDBSnapshot snapshot = levelDb.createSnapshot();
+        try (LevelDBKeyValueIterator iterator = new LevelDBKeyValueIterator(levelDb,
+                NativeResources.get().levelDbJnaReadOption(snapshot, false))) {
+            while (iterator.hasNext()) {
+                KeyValuePair pair = iterator.next();
+                consumer.accept(
+                        (K) deserializeAny(pair.getKey()),
+                        (V) deserializeAny(pair.getValue())
+                );
             }
+        } finally {
+            closeQuit(snapshot);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CacheSnapshot<K, V> snapshot() {
+        return CacheSnapshots.snapshot(CacheSnapshots.levelDbJna(levelDb), this::serializeAny,
+                bytes -> (K) deserializeAny(bytes), bytes -> (V) deserializeAny(bytes));
+    }
+
+    /**
+     * 默认写入是否需要fsync，LevelDB不能关闭WAL
+     */
+    public void sync(boolean sync) {
+        writeOption.setSync(sync);
+    }
+
+    private LevelDBWriteOptions writeOption(Durability durability) {
+        switch (durability) {
+            case SYNC:
+                return syncWriteOption;
+            case ASYNC:
+            case NO_WAL:
+                return asyncWriteOption;
+            case DEFAULT:
+            default:
+                return writeOption;
         }
     }
 
@@ -181,10 +302,12 @@ public class LevelDbJnaAnyCache<K, V> extends BaseCache<K, V> {
     @Override
     public void close() throws IOException {
         try {
-            closeQuit(readOption, writeOption, levelDb);
+            closeQuit(readOption, writeOption, syncWriteOption, asyncWriteOption, levelDb);
             levelDb = null;
             readOption = null;
             writeOption = null;
+            syncWriteOption = null;
+            asyncWriteOption = null;
         } finally {
             if (isTruncate) {
                 FileUtils.forceDelete(new File(cachePath, name));
@@ -8,10 +8,15 @@ import org.iq80.leveldb.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * @author l46li
@@ -26,6 +31,8 @@ public class LevelDbJniAnyCache<K, V> extends BaseCache<K, V> {
 
     private ReadOptions readOption = new ReadOptions();
     private WriteOptions writeOption = new WriteOptions();
+    private final WriteOptions syncWriteOption = new WriteOptions().sync(true);
+    private final WriteOptions asyncWriteOption = new WriteOptions();
 
     public LevelDbJniAnyCache(DB db, Serializer<Object> serializer, boolean truncate, String path, String name) {
         super(serializer);
@@ -82,8 +89,46 @@ public class LevelDbJniAnyCache<K, V> extends BaseCache<K, V> {
         return empty;
     }
 
+    /**
+     * 把key按照LevelDB里面的顺序排好，在同一个snapshot上面用一个迭代器往前seek，
+     * 如果上一次seek的位置已经越过了当前的key，说明当前的key不存在，不需要再seek一次
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, V> get(Collection<K> keys) {
+        List<Map.Entry<byte[], K>> sortedKeys = Bytes.sort(keys, this::serializeAny);
+        Map<K, V> keyValues = new HashMap<>(sortedKeys.size() * 4 / 3 + 1);
+        ReadOptions levelDbReadOption = new ReadOptions().snapshot(db.getSnapshot());
+        DBIterator iterator = db.iterator(levelDbReadOption);
+        try {
+            Map.Entry<byte[], byte[]> current = null;
+            for (Map.Entry<byte[], K> key : sortedKeys) {
+                if (current == null || Bytes.compare(current.getKey(), key.getKey()) < 0) {
+                    iterator.seek(key.getKey());
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    current = iterator.peekNext();
+                }
+                if (Arrays.equals(current.getKey(), key.getKey())) {
+                    keyValues.put(key.getValue(), (V) deserializeAny(current.getValue()));
+                }
+            }
+        } catch (DBException e) {
+            throw new CacheException("Can not execute batch get data from LevelDB : " + db, e);
+        } finally {
+            closeQuit(iterator, levelDbReadOption.snapshot());
+        }
+        return keyValues;
+    }
+
     @Override
     public void put(Map<K, V> keyValues) {
+        put(keyValues, Durability.DEFAULT);
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
         WriteBatch batch = db.createWriteBatch();
         try {
             for (Map.Entry<K, V> entry : keyValues.entrySet()) {
@@ -92,7 +137,7 @@ public class LevelDbJniAnyCache<K, V> extends BaseCache<K, V> {
                         serializeAny(entry.getValue())
                 );
             }
-            db.write(batch, writeOption);
+            db.write(batch, writeOption(durability));
         } catch (DBException e) {
             throw new CacheException("Can not execute put batch data to LevelDB : " + db, e);
         } finally {
@@ -115,6 +160,63 @@ public class LevelDbJniAnyCache<K, V> extends BaseCache<K, V> {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        scan(from == null ? null : serializeAny(from), to == null ? null : serializeAny(to),
+                (key, value) -> consumer.accept(deserializeAny(key), (V) deserializeAny(value)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        scan(prefix, Bytes.nextPrefix(prefix), (key, value) -> consumer.accept(deserializeAny(key), (V) deserializeAny(value)));
+    }
+
+    /**
+     * 从from开始seek，遇到不小于to的key就停下来，不需要从头遍历整个db
+     */
+    private void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) {
+        ReadOptions levelDbReadOption = new ReadOptions().fillCache(false).snapshot(db.getSnapshot());
+        DBIterator iterator = db.iterator(levelDbReadOption);
+        try {
+            if (from == null) {
+                iterator.seekToFirst();
+            } else {
+                iterator.seek(from);
+            }
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                if (to != null && Bytes.compare(entry.getKey(), to) >= 0) {
+                    break;
+                }
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            closeQuit(iterator, levelDbReadOption.snapshot());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<K> keys() {
+        return CacheStreams.stream(CacheStreams.levelDbJni(db), cursor -> (K) deserializeAny(cursor.key()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<V> values() {
+        return CacheStreams.stream(CacheStreams.levelDbJni(db), cursor -> (V) deserializeAny(cursor.value()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<Map.Entry<K, V>> entries() {
+        return CacheStreams.stream(CacheStreams.levelDbJni(db), cursor -> new AbstractMap.SimpleImmutableEntry<>(
+                (K) deserializeAny(cursor.key()), (V) deserializeAny(cursor.value())
+        ));
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void consumeKey(Consumer<K> consumer) {
@@ -165,6 +267,33 @@ public class LevelDbJniAnyCache<K, V> extends BaseCache<K, V> {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public CacheSnapshot<K, V> snapshot() {
+        return CacheSnapshots.snapshot(CacheSnapshots.levelDbJni(db), this::serializeAny,
+                bytes -> (K) deserializeAny(bytes), bytes -> (V) deserializeAny(bytes));
+    }
+
+    /**
+     * 默认写入是否需要fsync，LevelDB不能关闭WAL
+     */
+    public void sync(boolean sync) {
+        writeOption.sync(sync);
+    }
+
+    private WriteOptions writeOption(Durability durability) {
+        switch (durability) {
+            case SYNC:
+                return syncWriteOption;
+            case ASYNC:
+            case NO_WAL:
+                return asyncWriteOption;
+            case DEFAULT:
+            default:
+                return writeOption;
+        }
+    }
+
     /**
      * 如果需要的话，那么继承close，显示的关闭掉
      *
@@ -8,10 +8,15 @@ import org.iq80.leveldb.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 针对leveldb而言，它的所有操作都是向db里面插入一下record而已，删除操作也是向里面插入一条record，只是这条记录里面
@@ -33,6 +38,8 @@ public class LevelDbJniCache<K, V> extends BaseCache<K, V> {
 
     private ReadOptions readOption = new ReadOptions();
     private WriteOptions writeOption = new WriteOptions();
+    private final WriteOptions syncWriteOption = new WriteOptions().sync(true);
+    private final WriteOptions asyncWriteOption = new WriteOptions();
 
     public LevelDbJniCache(DB db, Class<K> keyType, Serializer<V> serializerValue) {
         super(keyType, serializerValue);
@@ -57,13 +64,9 @@ public class LevelDbJniCache<K, V> extends BaseCache<K, V> {
      */
     @Override
     public V get(K key) {
-        try {
-            byte[] bytes = db.get(serializeKey(key), readOption);
-            if (bytes != null) {
-                return deserializeValue(bytes);
-            }
-        } catch (DBException e) {
-            throw new CacheException("Can not get data from LevelDB : " + db, e);
+        byte[] bytes = getBytes(serializeKey(key));
+        if (bytes != null) {
+            return deserializeValue(bytes);
         }
         return empty;
     }
@@ -77,26 +80,85 @@ public class LevelDbJniCache<K, V> extends BaseCache<K, V> {
      */
     @Override
     public V put(K key, V value) {
+        putBytes(serializeKey(key), serializeValue(value));
+        return empty;
+    }
+
+    @Override
+    protected V put(K key, V value, Serializer<V> serializerValue) {
+        putBytes(serializeKey(key), serializerValue.serialize(value));
+        return empty;
+    }
+
+    @Override
+    public V delete(K key) {
+        deleteBytes(serializeKey(key));
+        return empty;
+    }
+
+    protected byte[] getBytes(byte[] key) {
         try {
-            db.put(serializeKey(key), serializeValue(value), writeOption);
+            return db.get(key, readOption);
+        } catch (DBException e) {
+            throw new CacheException("Can not get data from LevelDB : " + db, e);
+        }
+    }
+
+    protected void putBytes(byte[] key, byte[] value) {
+        try {
+            db.put(key, value, writeOption);
         } catch (DBException e) {
             throw new CacheException("Can not put data to LevelDB : " + db, e);
         }
-        return empty;
     }
 
-    @Override
-    public V delete(K key) {
+    protected void deleteBytes(byte[] key) {
         try {
-            db.delete(serializeKey(key), writeOption);
+            db.delete(key, writeOption);
         } catch (DBException e) {
             throw new CacheException("Can not delete data from LevelDB : " + db, e);
         }
-        return empty;
+    }
+
+    /**
+     * 把key按照LevelDB里面的顺序排好，在同一个snapshot上面用一个迭代器往前seek，
+     * 如果上一次seek的位置已经越过了当前的key，说明当前的key不存在，不需要再seek一次
+     */
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        List<Map.Entry<byte[], K>> sortedKeys = Bytes.sort(keys, this::serializeKey);
+        Map<K, V> keyValues = new HashMap<>(sortedKeys.size() * 4 / 3 + 1);
+        ReadOptions levelDbReadOption = new ReadOptions().snapshot(db.getSnapshot());
+        DBIterator iterator = db.iterator(levelDbReadOption);
+        try {
+            Map.Entry<byte[], byte[]> current = null;
+            for (Map.Entry<byte[], K> key : sortedKeys) {
+                if (current == null || Bytes.compare(current.getKey(), key.getKey()) < 0) {
+                    iterator.seek(key.getKey());
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    current = iterator.peekNext();
+                }
+                if (Arrays.equals(current.getKey(), key.getKey())) {
+                    keyValues.put(key.getValue(), deserializeValue(current.getValue()));
+                }
+            }
+        } catch (DBException e) {
+            throw new CacheException("Can not execute batch get data from LevelDB : " + db, e);
+        } finally {
+            closeQuit(iterator, levelDbReadOption.snapshot());
+        }
+        return keyValues;
     }
 
     @Override
     public void put(Map<K, V> keyValues) {
+        put(keyValues, Durability.DEFAULT);
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
         WriteBatch batch = db.createWriteBatch();
         try {
             for (Map.Entry<K, V> entry : keyValues.entrySet()) {
@@ -105,7 +167,7 @@ public class LevelDbJniCache<K, V> extends BaseCache<K, V> {
                         serializeValue(entry.getValue())
                 );
             }
-            db.write(batch, writeOption);
+            db.write(batch, writeOption(durability));
         } catch (DBException e) {
             throw new CacheException("Can not execute put batch data to LevelDB : " + db, e);
         } finally {
@@ -128,6 +190,63 @@ public class LevelDbJniCache<K, V> extends BaseCache<K, V> {
         }
     }
 
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        scan(from == null ? null : serializeKey(from), to == null ? null : serializeKey(to),
+                (key, value) -> consumer.accept(deserializeKey(key), deserializeValue(value)));
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        scan(prefix, Bytes.nextPrefix(prefix), (key, value) -> consumer.accept(deserializeKey(key), deserializeValue(value)));
+    }
+
+    /**
+     * 从from开始seek，遇到不小于to的key就停下来，不需要从头遍历整个db
+     */
+    private void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) {
+        ReadOptions levelDbReadOption = new ReadOptions().fillCache(false).snapshot(db.getSnapshot());
+        DBIterator iterator = db.iterator(levelDbReadOption);
+        try {
+            if (from == null) {
+                iterator.seekToFirst();
+            } else {
+                iterator.seek(from);
+            }
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                if (to != null && Bytes.compare(entry.getKey(), to) >= 0) {
+                    break;
+                }
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            closeQuit(iterator, levelDbReadOption.snapshot());
+        }
+    }
+
+    @Override
+    protected void consumeBytes(BiConsumer<byte[], byte[]> consumer) {
+        scan(null, null, consumer);
+    }
+
+    @Override
+    public Stream<K> keys() {
+        return CacheStreams.stream(CacheStreams.levelDbJni(db), cursor -> deserializeKey(cursor.key()));
+    }
+
+    @Override
+    public Stream<V> values() {
+        return CacheStreams.stream(CacheStreams.levelDbJni(db), cursor -> deserializeValue(cursor.value()));
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        return CacheStreams.stream(CacheStreams.levelDbJni(db), cursor -> new AbstractMap.SimpleImmutableEntry<>(
+                deserializeKey(cursor.key()), deserializeValue(cursor.value())
+        ));
+    }
+
     @Override
     public void consumeKey(Consumer<K> consumer) {
         ReadOptions levelDbReadOption = new ReadOptions().fillCache(false).snapshot(db.getSnapshot());
@@ -175,6 +294,32 @@ public class LevelDbJniCache<K, V> extends BaseCache<K, V> {
         }
     }
 
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        return CacheSnapshots.snapshot(CacheSnapshots.levelDbJni(db), this::serializeKey,
+                this::deserializeKey, this::deserializeValue);
+    }
+
+    /**
+     * 默认写入是否需要fsync，LevelDB不能关闭WAL
+     */
+    public void sync(boolean sync) {
+        writeOption.sync(sync);
+    }
+
+    private WriteOptions writeOption(Durability durability) {
+        switch (durability) {
+            case SYNC:
+                return syncWriteOption;
+            case ASYNC:
+            case NO_WAL:
+                return asyncWriteOption;
+            case DEFAULT:
+            default:
+                return writeOption;
+        }
+    }
+
     /**
      * 如果需要的话，那么继承close，显示的关闭掉
      *
@@ -0,0 +1,49 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.Serializer;
+import org.iq80.leveldb.DB;
+
+/**
+ * @param <V> value的类型
+ */
+public class LevelDbJniIntCache<V> extends LevelDbJniCache<Integer, V> implements IntObjectCache<V> {
+
+    public LevelDbJniIntCache(DB db, Serializer<V> serializerValue) {
+        super(db, Integer.class, serializerValue);
+    }
+
+    public LevelDbJniIntCache(DB db, Class<V> valueType) {
+        super(db, Integer.class, valueType);
+    }
+
+    @Override
+    public V get(int key) {
+        long start = metricsStart();
+        byte[] bytes = getBytes(DirectBuffers.get().keyBytes(key));
+        V result = bytes == null ? empty : deserializeValue(bytes);
+        recordGet(start, result != null);
+        return result;
+    }
+
+    @Override
+    public V put(int key, V value) {
+        long start = metricsStart();
+        try {
+            putBytes(DirectBuffers.get().keyBytes(key), serializeValue(value));
+            return empty;
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public V delete(int key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(DirectBuffers.get().keyBytes(key));
+            return empty;
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
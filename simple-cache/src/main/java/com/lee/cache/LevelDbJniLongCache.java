@@ -0,0 +1,51 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.Serializer;
+import org.iq80.leveldb.DB;
+
+/**
+ * leveldbjni只有byte[]的接口，key编码到线程私有的8字节数组里面，省掉了装箱和数组的创建
+ *
+ * @param <V> value的类型
+ */
+public class LevelDbJniLongCache<V> extends LevelDbJniCache<Long, V> implements LongObjectCache<V> {
+
+    public LevelDbJniLongCache(DB db, Serializer<V> serializerValue) {
+        super(db, Long.class, serializerValue);
+    }
+
+    public LevelDbJniLongCache(DB db, Class<V> valueType) {
+        super(db, Long.class, valueType);
+    }
+
+    @Override
+    public V get(long key) {
+        long start = metricsStart();
+        byte[] bytes = getBytes(DirectBuffers.get().keyBytes(key));
+        V result = bytes == null ? empty : deserializeValue(bytes);
+        recordGet(start, result != null);
+        return result;
+    }
+
+    @Override
+    public V put(long key, V value) {
+        long start = metricsStart();
+        try {
+            putBytes(DirectBuffers.get().keyBytes(key), serializeValue(value));
+            return empty;
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public V delete(long key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(DirectBuffers.get().keyBytes(key));
+            return empty;
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.PrimitiveCodec;
+import org.iq80.leveldb.DB;
+
+public class LevelDbJniLongLongCache extends LevelDbJniCache<Long, Long> implements LongLongCache {
+
+    public LevelDbJniLongLongCache(DB db) {
+        super(db, Long.class, Long.class);
+    }
+
+    @Override
+    public long get(long key, long defaultValue) {
+        long start = metricsStart();
+        byte[] bytes = getBytes(DirectBuffers.get().keyBytes(key));
+        recordGet(start, bytes != null);
+        if (bytes != null) {
+            return PrimitiveCodec.getLong(bytes, 0);
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void put(long key, long value) {
+        long start = metricsStart();
+        try {
+            putBytes(DirectBuffers.get().keyBytes(key), PrimitiveCodec.toBytes(value));
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public void delete(long key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(DirectBuffers.get().keyBytes(key));
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
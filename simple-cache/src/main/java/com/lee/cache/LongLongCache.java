@@ -0,0 +1,20 @@
+package com.lee.cache;
+
+import java.io.Closeable;
+
+/**
+ * key和value都是long的Cache，读写都不需要装箱，和Cache&lt;Long, Long&gt;的存储格式完全一致
+ */
+public interface LongLongCache extends Closeable {
+
+    /**
+     * @param key          需要查询的key
+     * @param defaultValue key不存在的时候返回的值
+     * @return key对应的值，不存在返回defaultValue
+     */
+    long get(long key, long defaultValue);
+
+    void put(long key, long value);
+
+    void delete(long key);
+}
@@ -0,0 +1,17 @@
+package com.lee.cache;
+
+import java.io.Closeable;
+
+/**
+ * key是long的Cache，key直接按照大端编码，不需要装箱，和Cache&lt;Long, V&gt;的存储格式完全一致，所以两种方式可以混用
+ *
+ * @param <V> value的类型
+ */
+public interface LongObjectCache<V> extends Closeable {
+
+    V get(long key);
+
+    V put(long key, V value);
+
+    V delete(long key);
+}
@@ -1,8 +1,14 @@
 package com.lee.cache;
 
+import com.lee.cache.serializer.Serializer;
+
 public class MemoryCache<K, V> extends EhcacheAny<K, V> {
 
     public MemoryCache(net.sf.ehcache.Cache cache, Class<K> keyType, Class<V> valueType) {
         super(cache, keyType, valueType);
     }
+
+    public MemoryCache(net.sf.ehcache.Cache cache, Serializer<K> serializerKey, Serializer<V> serializerValue) {
+        super(cache, serializerKey, serializerValue);
+    }
 }
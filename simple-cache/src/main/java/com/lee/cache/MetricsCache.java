@@ -0,0 +1,254 @@
+package com.lee.cache;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 记录每一次操作的延迟和命中率，序列化的时间和字节数由底层cache的MetricsSerializer记录，两边共用同一个CacheMetrics，
+ * 这样就能分清一次慢的get是花在反序列化上面还是花在底层存储上面
+ * <p>
+ * 放在底层cache(或者ExpiringCache)的外面，近端缓存和异步写入的里面，统计的是对底层存储的访问；
+ * 懒加载的keys、values和entries不记录延迟；LongObjectCache这些原始类型的读写由底层cache自己记录
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class MetricsCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, V> delegate;
+    private final CacheMetrics metrics = new CacheMetrics();
+
+    /**
+     * @param delegate 被统计的cache，可以是backend本身或者包装了backend的ExpiringCache
+     * @param backend  真正的底层cache，在它上面安装MetricsSerializer
+     */
+    public MetricsCache(Cache<K, V> delegate, BaseCache<K, V> backend) {
+        backend.enableMetrics(metrics);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public V get(K key) {
+        long start = System.nanoTime();
+        V value = delegate.get(key);
+        metrics.latency(CacheStats.Operation.GET, System.nanoTime() - start);
+        if (value == null) {
+            metrics.misses(1);
+        } else {
+            metrics.hits(1);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        long start = System.nanoTime();
+        Map<K, V> keyValues = delegate.get(keys);
+        metrics.latency(CacheStats.Operation.BATCH_GET, System.nanoTime() - start);
+        //keys里面可能有重复的key，按照去重以后的个数计算没有命中的
+        metrics.hits(keyValues.size());
+        metrics.misses(new HashSet<>(keys).size() - keyValues.size());
+        return keyValues;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.put(key, value);
+        } finally {
+            metrics.latency(CacheStats.Operation.PUT, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public V put(K key, V value, Duration ttl) {
+        long start = System.nanoTime();
+        try {
+            return delegate.put(key, value, ttl);
+        } finally {
+            metrics.latency(CacheStats.Operation.PUT, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public V delete(K key) {
+        long start = System.nanoTime();
+        try {
+            return delegate.delete(key);
+        } finally {
+            metrics.latency(CacheStats.Operation.DELETE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        long start = System.nanoTime();
+        try {
+            return delegate.compute(key, function);
+        } finally {
+            metrics.latency(CacheStats.Operation.COMPUTE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        long start = System.nanoTime();
+        try {
+            return delegate.merge(key, value, function);
+        } finally {
+            metrics.latency(CacheStats.Operation.COMPUTE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.putIfAbsent(key, value);
+        } finally {
+            metrics.latency(CacheStats.Operation.COMPUTE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        long start = System.nanoTime();
+        try {
+            delegate.put(keyValues);
+        } finally {
+            metrics.latency(CacheStats.Operation.BATCH_PUT, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        long start = System.nanoTime();
+        try {
+            delegate.put(keyValues, durability);
+        } finally {
+            metrics.latency(CacheStats.Operation.BATCH_PUT, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void delete(Collection<K> keys) {
+        long start = System.nanoTime();
+        try {
+            delegate.delete(keys);
+        } finally {
+            metrics.latency(CacheStats.Operation.BATCH_DELETE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.scan(from, to, consumer);
+        } finally {
+            metrics.latency(CacheStats.Operation.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.prefixScan(prefix, consumer);
+        } finally {
+            metrics.latency(CacheStats.Operation.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Stream<K> keys() {
+        return delegate.keys();
+    }
+
+    @Override
+    public Stream<V> values() {
+        return delegate.values();
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        return delegate.entries();
+    }
+
+    @Override
+    public void consumeKey(Consumer<K> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.consumeKey(consumer);
+        } finally {
+            metrics.latency(CacheStats.Operation.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void consumeParallel(BiConsumer<K, V> consumer, int parallelism) {
+        long start = System.nanoTime();
+        try {
+            delegate.consumeParallel(consumer, parallelism);
+        } finally {
+            metrics.latency(CacheStats.Operation.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void consumeValue(Consumer<V> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.consumeValue(consumer);
+        } finally {
+            metrics.latency(CacheStats.Operation.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void consume(BiConsumer<K, V> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.consume(consumer);
+        } finally {
+            metrics.latency(CacheStats.Operation.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * 底层cache和这里共用同一个CacheMetrics，交给它可以带上底层存储自己的统计
+     */
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    public Cache<K, V> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 原始类型的cache直接使用底层cache，统计由底层cache自己记录，所以去掉外面的MetricsCache
+     */
+    public static <K, V> Cache<K, V> unwrap(Cache<K, V> cache) {
+        return cache instanceof MetricsCache ? ((MetricsCache<K, V>) cache).delegate : cache;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
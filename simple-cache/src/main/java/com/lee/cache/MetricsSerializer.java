@@ -0,0 +1,77 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 记录序列化和反序列化花费的时间，以及序列化以后的字节数，由BaseCache在开启metrics的时候安装，
+ * 没有开启的时候不会有这一层，也就没有任何开销
+ */
+final class MetricsSerializer<S> implements Serializer<S> {
+
+    private final Serializer<S> serializer;
+    private final CacheMetrics metrics;
+    private final CacheMetrics.Recorder bytes;
+
+    /**
+     * @param bytes 记录字节数的直方图，null表示不记录
+     */
+    MetricsSerializer(Serializer<S> serializer, CacheMetrics metrics, CacheMetrics.Recorder bytes) {
+        this.serializer = serializer;
+        this.metrics = metrics;
+        this.bytes = bytes;
+    }
+
+    @Override
+    public byte[] serialize(S key) {
+        long start = System.nanoTime();
+        byte[] serialized = serializer.serialize(key);
+        metrics.serialized(System.nanoTime() - start);
+        if (bytes != null) {
+            bytes.record(serialized.length);
+        }
+        return serialized;
+    }
+
+    @Override
+    public int serialize(S key, ByteBuffer buffer) {
+        long start = System.nanoTime();
+        int length = serializer.serialize(key, buffer);
+        metrics.serialized(System.nanoTime() - start);
+        if (bytes != null) {
+            bytes.record(length);
+        }
+        return length;
+    }
+
+    @Override
+    public S deserialize(byte[] serialized) {
+        long start = System.nanoTime();
+        try {
+            return serializer.deserialize(serialized);
+        } finally {
+            metrics.deserialized(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public S deserialize(ByteBuffer buffer) {
+        long start = System.nanoTime();
+        try {
+            return serializer.deserialize(buffer);
+        } finally {
+            metrics.deserialized(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Class<S> getType() {
+        return serializer.getType();
+    }
+
+    @Override
+    public String toString() {
+        return serializer.toString();
+    }
+}
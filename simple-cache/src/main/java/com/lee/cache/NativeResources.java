@@ -0,0 +1,107 @@
+package com.lee.cache;
+
+import com.protonail.leveldb.jna.LevelDBReadOptions;
+import com.protonail.leveldb.jna.LevelDBSnapshot;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.Slice;
+import org.rocksdb.Snapshot;
+import org.rocksdb.WriteBatch;
+
+/**
+ * 每个线程私有的JNI对象，和DirectBuffers一样按线程复用，遍历和批量写入的时候不需要每次都创建、销毁native对象
+ * <p>
+ * 1. ReadOptions在创建迭代器的时候就已经拷贝到迭代器里面了，拿到迭代器以后同一个线程里面嵌套的遍历可以马上复用，
+ * 每次取出来的时候都会重置成遍历用的选项。RocksJava没有办法清掉iterate_upper_bound，所以带上界的遍历用单独的一个，
+ * 每次使用之前都会设置新的上界
+ * 2. WriteBatch按照BATCH_RESERVED_BYTES预先分配空间，用完clear以后留给下一次，clear不会释放已经分配的内存，
+ * 超过MAX_RETAINED_BATCH_BYTES的直接销毁，避免一次很大的批量写以后一直占着内存；同一个线程嵌套使用的时候临时创建一个
+ * <p>
+ * 线程结束以后这些对象在GC的时候由finalize释放
+ */
+final class NativeResources {
+
+    static final int BATCH_RESERVED_BYTES = 64 * 1024;
+    private static final int MAX_RETAINED_BATCH_BYTES = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<NativeResources> RESOURCES = ThreadLocal.withInitial(NativeResources::new);
+
+    /**
+     * 都是第一次用到的时候才创建，只用LevelDB的时候不会加载RocksDB的native库，反过来也一样
+     */
+    private ReadOptions rocksDbReadOption;
+    private ReadOptions rocksDbBoundedReadOption;
+    private LevelDBReadOptions levelDbJnaReadOption;
+
+    private WriteBatch batch;
+    private boolean batchInUse;
+
+    private NativeResources() {
+    }
+
+    static NativeResources get() {
+        return RESOURCES.get();
+    }
+
+    /**
+     * 遍历用的ReadOptions，不填充block cache，不校验checksum，调用方不能关闭它
+     *
+     * @param snapshot   可以为null
+     * @param upperBound 可以为null，由调用方在迭代器关闭以后关闭
+     */
+    ReadOptions rocksDbReadOption(Snapshot snapshot, Slice upperBound) {
+        ReadOptions readOption;
+        if (upperBound == null) {
+            if (rocksDbReadOption == null) {
+                rocksDbReadOption = new ReadOptions();
+            }
+            readOption = rocksDbReadOption;
+        } else {
+            if (rocksDbBoundedReadOption == null) {
+                rocksDbBoundedReadOption = new ReadOptions();
+            }
+            readOption = rocksDbBoundedReadOption.setIterateUpperBound(upperBound);
+        }
+        return readOption.setFillCache(false).setVerifyChecksums(false)
+                .setTotalOrderSeek(false).setPrefixSameAsStart(false).setSnapshot(snapshot);
+    }
+
+    /**
+     * leveldb-jna的ReadOptions，snapshot不能为null，调用方不能关闭它
+     */
+    LevelDBReadOptions levelDbJnaReadOption(LevelDBSnapshot snapshot, boolean fillCache) {
+        if (levelDbJnaReadOption == null) {
+            levelDbJnaReadOption = new LevelDBReadOptions();
+        }
+        levelDbJnaReadOption.setFillCache(fillCache);
+        levelDbJnaReadOption.setSnapshot(snapshot);
+        return levelDbJnaReadOption;
+    }
+
+    /**
+     * 取出一个空的WriteBatch，用完以后必须调用release归还
+     */
+    WriteBatch writeBatch() {
+        if (batchInUse) {
+            return new WriteBatch(BATCH_RESERVED_BYTES);
+        }
+        if (batch == null) {
+            batch = new WriteBatch(BATCH_RESERVED_BYTES);
+        }
+        batchInUse = true;
+        return batch;
+    }
+
+    void release(WriteBatch writeBatch) {
+        if (writeBatch != batch) {
+            writeBatch.close();
+            return;
+        }
+        batchInUse = false;
+        if (batch.getDataSize() > MAX_RETAINED_BATCH_BYTES) {
+            batch.close();
+            batch = null;
+        } else {
+            batch.clear();
+        }
+    }
+}
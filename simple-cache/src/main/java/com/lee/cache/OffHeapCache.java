@@ -0,0 +1,143 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.Serializer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 基于OffHeapStore的内存缓存，和EhcacheAny一样存储的是序列化以后的字节，但是数据都在堆外，
+ * 堆上不会为每一个entry创建Wrapper和Element对象，适合存放大量的数据而不增加GC的停顿
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+@Slf4j
+public class OffHeapCache<K, V> extends BaseCache<K, V> {
+
+    private OffHeapStore store;
+
+    public OffHeapCache(OffHeapStore store, Serializer<Object> serializer) {
+        super(serializer);
+        this.store = store;
+    }
+
+    public OffHeapCache(OffHeapStore store, Class<K> keyType, Class<V> valueType) {
+        super(keyType, valueType);
+        this.store = store;
+    }
+
+    public OffHeapCache(OffHeapStore store, Class<K> keyType, Serializer<V> serializerValue) {
+        super(keyType, serializerValue);
+        this.store = store;
+    }
+
+    public OffHeapCache(OffHeapStore store, Serializer<K> serializerKey, Serializer<V> serializerValue) {
+        super(serializerKey, serializerValue);
+        this.store = store;
+    }
+
+    @Override
+    public V get(K key) {
+        byte[] bytes = store.get(toKeyBytes(key));
+        if (bytes != null) {
+            return toValue(bytes);
+        }
+        return empty;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        store.put(toKeyBytes(key), toValueBytes(value));
+        return empty;
+    }
+
+    @Override
+    public V delete(K key) {
+        store.delete(toKeyBytes(key));
+        return empty;
+    }
+
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        Map<K, V> keyValues = new HashMap<>(keys.size() * 4 / 3 + 1);
+        for (K key : keys) {
+            byte[] bytes = store.get(toKeyBytes(key));
+            if (bytes != null) {
+                keyValues.put(key, toValue(bytes));
+            }
+        }
+        return keyValues;
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        for (Map.Entry<K, V> entry : keyValues.entrySet()) {
+            store.put(toKeyBytes(entry.getKey()), toValueBytes(entry.getValue()));
+        }
+    }
+
+    @Override
+    public void delete(Collection<K> keys) {
+        for (K key : keys) {
+            store.delete(toKeyBytes(key));
+        }
+    }
+
+    @Override
+    public void consumeKey(Consumer<K> consumer) {
+        store.forEach((key, value) -> consumer.accept(toKey(key)));
+    }
+
+    @Override
+    public void consumeValue(Consumer<V> consumer) {
+        store.forEach((key, value) -> consumer.accept(toValue(value)));
+    }
+
+    @Override
+    public void consume(BiConsumer<K, V> consumer) {
+        store.forEach((key, value) -> consumer.accept(toKey(key), toValue(value)));
+    }
+
+    public long size() {
+        return store.size();
+    }
+
+    public long evictions() {
+        return store.evictions();
+    }
+
+    /**
+     * 堆外内存在store被GC回收的时候释放
+     */
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            store.clear();
+            store = null;
+        }
+    }
+
+    private byte[] toKeyBytes(K key) {
+        return isSerializeAny() ? serializeAny(key) : serializeKey(key);
+    }
+
+    private byte[] toValueBytes(V value) {
+        return isSerializeAny() ? serializeAny(value) : serializeValue(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private K toKey(byte[] bytes) {
+        return isSerializeAny() ? (K) deserializeAny(bytes) : deserializeKey(bytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V toValue(byte[] bytes) {
+        return isSerializeAny() ? (V) deserializeAny(bytes) : deserializeValue(bytes);
+    }
+}
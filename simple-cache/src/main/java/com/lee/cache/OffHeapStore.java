@@ -0,0 +1,411 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 堆外的key-value存储，key和value都是序列化以后的字节，全部放在direct memory里面，堆上只有几个ByteBuffer对象，
+ * 不管存多少数据都不会给GC带来压力
+ * <p>
+ * 按照key的hash分成多个segment，每个segment一把锁，包含两块堆外内存：
+ * 1. 数据区是一个环形的日志，新的entry总是追加在tail，空间不够的时候从head开始回收，
+ * head上面的entry如果最近被访问过(CLOCK的引用位)，那么给它第二次机会，搬到tail上面去，否则直接驱逐
+ * 2. 索引区是一个线性探测的开放地址hash表，每个slot一个long，高32位是hash，低32位是entry在数据区的偏移+1，0表示空
+ * <p>
+ * 删除和覆盖只是把索引里面的slot去掉，数据区里面的旧数据等head经过的时候自然就回收了
+ * <p>
+ * 注意：需要通过-XX:MaxDirectMemorySize给足堆外内存，direct memory在ByteBuffer被GC回收的时候才会真正释放
+ */
+public final class OffHeapStore {
+
+    /**
+     * 单个ByteBuffer最大只能2G，每个segment最多1G
+     */
+    private static final long MAX_SEGMENT_SIZE = 1 << 30;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    public OffHeapStore(long capacity, int concurrency) {
+        if (capacity <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("capacity and concurrency must be greater than 0");
+        }
+        int count = 1;
+        while (count < concurrency || capacity / count > MAX_SEGMENT_SIZE) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((int) (capacity / count));
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        this.segmentMask = count - 1;
+    }
+
+    public byte[] get(byte[] key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public void put(byte[] key, byte[] value) {
+        int hash = hash(key);
+        segmentFor(hash).put(key, value, hash);
+    }
+
+    public void delete(byte[] key) {
+        int hash = hash(key);
+        segmentFor(hash).delete(key, hash);
+    }
+
+    /**
+     * 弱一致的遍历，遍历的过程中其他线程的修改可能看得到，也可能看不到
+     */
+    public void forEach(BiConsumer<byte[], byte[]> consumer) {
+        for (Segment segment : segments) {
+            segment.forEach(consumer);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long evictions() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.evictions();
+        }
+        return evictions;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        //索引用的是hash的低位，segment用高位，避免同一个segment里面的key在索引里面挤在一起
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Segment {
+
+        /**
+         * entry的格式: keyLength(4) valueLength(4) hash(4) referenced(1) key value
+         */
+        private static final int HEADER = 13;
+        private static final int PADDING = -1;
+        private static final int INITIAL_SLOTS = 1024;
+        private static final int MAX_SLOTS = 1 << 27;
+        private static final int FOREACH_BATCH = 256;
+
+        private final ByteBuffer data;
+        private final int capacity;
+
+        private ByteBuffer index;
+        private int slotMask;
+        private int count;
+
+        private int head;
+        private int tail;
+        private int used;
+
+        private byte[] moving = new byte[0];
+        private long evictions;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.data = ByteBuffer.allocateDirect(capacity);
+            this.index = ByteBuffer.allocateDirect(INITIAL_SLOTS << 3);
+            this.slotMask = INITIAL_SLOTS - 1;
+        }
+
+        synchronized byte[] get(byte[] key, int hash) {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            int offset = offset(slot);
+            data.put(offset + 12, (byte) 1);
+            byte[] value = new byte[data.getInt(offset + 4)];
+            data.position(offset + HEADER + key.length);
+            data.get(value);
+            return value;
+        }
+
+        synchronized void put(byte[] key, byte[] value, int hash) {
+            int size = HEADER + key.length + value.length;
+            if (size > capacity) {
+                throw new CacheException("Entry size " + size + " is larger than off-heap segment " + capacity);
+            }
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+            int offset = allocate(size, true);
+            data.putInt(offset, key.length);
+            data.putInt(offset + 4, value.length);
+            data.putInt(offset + 8, hash);
+            data.put(offset + 12, (byte) 0);
+            data.position(offset + HEADER);
+            data.put(key);
+            data.put(value);
+            insertSlot(hash, offset);
+        }
+
+        synchronized void delete(byte[] key, int hash) {
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized long evictions() {
+            return evictions;
+        }
+
+        synchronized void clear() {
+            head = 0;
+            tail = 0;
+            used = 0;
+            count = 0;
+            index = ByteBuffer.allocateDirect(INITIAL_SLOTS << 3);
+            slotMask = INITIAL_SLOTS - 1;
+        }
+
+        /**
+         * 每次只在锁里面拷贝一小段slot对应的数据，consumer在锁外面执行，不会长时间占着锁
+         */
+        void forEach(BiConsumer<byte[], byte[]> consumer) {
+            List<byte[]> batch = new ArrayList<>(FOREACH_BATCH * 2);
+            for (int start = 0; ; start += FOREACH_BATCH) {
+                synchronized (this) {
+                    if (start > slotMask) {
+                        break;
+                    }
+                    int end = Math.min(start + FOREACH_BATCH, slotMask + 1);
+                    for (int slot = start; slot < end; slot++) {
+                        if (index.getLong(slot << 3) != 0) {
+                            int offset = offset(slot);
+                            byte[] key = new byte[data.getInt(offset)];
+                            byte[] value = new byte[data.getInt(offset + 4)];
+                            data.position(offset + HEADER);
+                            data.get(key);
+                            data.get(value);
+                            batch.add(key);
+                            batch.add(value);
+                        }
+                    }
+                }
+                for (int i = 0; i < batch.size(); i += 2) {
+                    consumer.accept(batch.get(i), batch.get(i + 1));
+                }
+                batch.clear();
+            }
+        }
+
+        /**
+         * 在tail上面分配size大小的连续空间，尾部放不下的时候剩下的部分作为padding，从0开始继续分配，
+         * 空间不够就从head开始回收
+         */
+        private int allocate(int size, boolean secondChance) {
+            while (true) {
+                if (used == 0) {
+                    head = 0;
+                    tail = 0;
+                }
+                if (used < capacity) {
+                    if (tail >= head) {
+                        if (capacity - tail >= size) {
+                            return take(size);
+                        }
+                        if (capacity - tail >= HEADER) {
+                            data.putInt(tail, PADDING);
+                        }
+                        used += capacity - tail;
+                        tail = 0;
+                        continue;
+                    } else if (head - tail >= size) {
+                        return take(size);
+                    }
+                }
+                evictHead(secondChance);
+            }
+        }
+
+        private int take(int size) {
+            int offset = tail;
+            tail += size;
+            if (tail == capacity) {
+                tail = 0;
+            }
+            used += size;
+            return offset;
+        }
+
+        /**
+         * 回收head上面的entry，索引里面已经找不到的说明已经被删除或者覆盖了，直接回收，
+         * 被访问过的清掉引用位搬到tail，搬的时候不再给其他entry第二次机会，避免递归
+         */
+        private void evictHead(boolean secondChance) {
+            int offset = head;
+            if (capacity - offset < HEADER || data.getInt(offset) == PADDING) {
+                used -= capacity - offset;
+                head = 0;
+                return;
+            }
+
+            int keyLength = data.getInt(offset);
+            int valueLength = data.getInt(offset + 4);
+            int hash = data.getInt(offset + 8);
+            int size = HEADER + keyLength + valueLength;
+
+            boolean reinsert = false;
+            int slot = findByOffset(hash, offset);
+            if (slot >= 0) {
+                removeSlot(slot);
+                reinsert = secondChance && data.get(offset + 12) != 0;
+                if (reinsert) {
+                    if (moving.length < size - HEADER) {
+                        moving = new byte[size - HEADER];
+                    }
+                    data.position(offset + HEADER);
+                    data.get(moving, 0, size - HEADER);
+                } else {
+                    evictions++;
+                }
+            }
+
+            head += size;
+            if (head == capacity) {
+                head = 0;
+            }
+            used -= size;
+
+            if (reinsert) {
+                int target = allocate(size, false);
+                data.putInt(target, keyLength);
+                data.putInt(target + 4, valueLength);
+                data.putInt(target + 8, hash);
+                data.put(target + 12, (byte) 0);
+                data.position(target + HEADER);
+                data.put(moving, 0, size - HEADER);
+                insertSlot(hash, target);
+            }
+        }
+
+        private int find(byte[] key, int hash) {
+            for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+                long entry = index.getLong(slot << 3);
+                if (entry == 0) {
+                    return -1;
+                }
+                if ((int) (entry >>> 32) == hash && keyEquals((int) entry - 1, key)) {
+                    return slot;
+                }
+            }
+        }
+
+        private int findByOffset(int hash, int offset) {
+            for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+                long entry = index.getLong(slot << 3);
+                if (entry == 0) {
+                    return -1;
+                }
+                if ((int) entry - 1 == offset) {
+                    return slot;
+                }
+            }
+        }
+
+        private boolean keyEquals(int offset, byte[] key) {
+            if (data.getInt(offset) != key.length) {
+                return false;
+            }
+            int base = offset + HEADER;
+            for (int i = 0; i < key.length; i++) {
+                if (data.get(base + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int offset(int slot) {
+            return (int) index.getLong(slot << 3) - 1;
+        }
+
+        private void insertSlot(int hash, int offset) {
+            if (count + 1 > (slotMask + 1) / 4 * 3 && slotMask + 1 < MAX_SLOTS) {
+                resize((slotMask + 1) << 1);
+            }
+            int slot = hash & slotMask;
+            while (index.getLong(slot << 3) != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+            index.putLong(slot << 3, ((long) hash << 32) | ((offset + 1) & 0xFFFFFFFFL));
+            count++;
+        }
+
+        /**
+         * 线性探测的删除，把后面探测链上可以往前挪的slot挪到空出来的位置，不需要墓碑
+         */
+        private void removeSlot(int slot) {
+            int hole = slot;
+            for (int next = (hole + 1) & slotMask; ; next = (next + 1) & slotMask) {
+                long entry = index.getLong(next << 3);
+                if (entry == 0) {
+                    break;
+                }
+                int ideal = (int) (entry >>> 32) & slotMask;
+                if (((next - ideal) & slotMask) >= ((next - hole) & slotMask)) {
+                    index.putLong(hole << 3, entry);
+                    hole = next;
+                }
+            }
+            index.putLong(hole << 3, 0L);
+            count--;
+        }
+
+        private void resize(int slots) {
+            ByteBuffer old = index;
+            int oldSlots = slotMask + 1;
+            index = ByteBuffer.allocateDirect(slots << 3);
+            slotMask = slots - 1;
+            for (int i = 0; i < oldSlots; i++) {
+                long entry = old.getLong(i << 3);
+                if (entry != 0) {
+                    int slot = (int) (entry >>> 32) & slotMask;
+                    while (index.getLong(slot << 3) != 0) {
+                        slot = (slot + 1) & slotMask;
+                    }
+                    index.putLong(slot << 3, entry);
+                }
+            }
+        }
+    }
+}
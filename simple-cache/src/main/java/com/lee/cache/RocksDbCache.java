@@ -8,10 +8,17 @@ import org.rocksdb.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * @author l46li
@@ -24,143 +31,360 @@ public class RocksDbCache<K, V> extends BaseCache<K, V> {
     }
 
     private RocksDB db;
+    private ColumnFamilyHandle columnFamily;
+    private boolean sharedDb;
     private boolean isTruncate;
     private String cachePath;
     private String name;
 
+    private int prefixLength;
+    private RocksDbGroupCommit groupCommit;
+    private Statistics statistics;
+
     private ReadOptions readOption = new ReadOptions();
-    private WriteOptions writeOption = new WriteOptions();
+    private RocksDbWriteOptions writeOptions = new RocksDbWriteOptions();
 
     public RocksDbCache(RocksDB db, Class<K> keyType, Serializer<V> serializerValue) {
         super(keyType, serializerValue);
         this.db = db;
+        this.columnFamily = db.getDefaultColumnFamily();
     }
 
     public RocksDbCache(RocksDB db, Serializer<K> serializerKey, Serializer<V> serializerValue) {
         super(serializerKey, serializerValue);
         this.db = db;
+        this.columnFamily = db.getDefaultColumnFamily();
     }
 
     public RocksDbCache(RocksDB db, Class<K> keyType, Class<V> valueType) {
         super(keyType, valueType);
         this.db = db;
+        this.columnFamily = db.getDefaultColumnFamily();
     }
 
     @Override
     public V get(K key) {
+        ByteBuffer value = getDirect(DirectBuffers.get().key(getSerializerKey(), key));
+        if (value != null) {
+            return deserializeValue(value);
+        }
+        return empty;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        DirectBuffers buffers = DirectBuffers.get();
+        putDirect(buffers.key(getSerializerKey(), key), buffers.value(getSerializerValue(), value));
+        return empty;
+    }
+
+    @Override
+    protected V put(K key, V value, Serializer<V> serializerValue) {
+        DirectBuffers buffers = DirectBuffers.get();
+        putDirect(buffers.key(getSerializerKey(), key), buffers.value(serializerValue, value));
+        return empty;
+    }
+
+    @Override
+    public V delete(K key) {
+        deleteBytes(serializeKey(key));
+        return empty;
+    }
+
+    /**
+     * key和value都通过线程私有的direct buffer和RocksDB交互，如果value比当前的buffer大，那么RocksDB会返回value真实的大小，
+     * 扩容以后重新读取一次
+     *
+     * @param keyBuffer 已经序列化好的key
+     * @return 线程私有的value buffer，position到limit之间就是value，不存在返回null
+     */
+    protected ByteBuffer getDirect(ByteBuffer keyBuffer) {
+        return getDirect(DirectBuffers.get(), keyBuffer);
+    }
+
+    /**
+     * @param buffers 调用者已经拿到的当前线程的DirectBuffers，key也是从这里序列化的，不需要再查找一次ThreadLocal
+     */
+    protected ByteBuffer getDirect(DirectBuffers buffers, ByteBuffer keyBuffer) {
+        ByteBuffer valueBuffer = buffers.value(0);
         try {
-            byte[] bytes = db.get(readOption, serializeKey(key));
-            if (bytes != null) {
-                return deserializeValue(bytes);
+            int size;
+            while ((size = db.get(columnFamily, readOption, keyBuffer, valueBuffer)) > valueBuffer.remaining()) {
+                keyBuffer.rewind();
+                valueBuffer = buffers.value(size);
             }
+            return size == RocksDB.NOT_FOUND ? null : valueBuffer;
         } catch (RocksDBException e) {
             throw new CacheException("Can not read data from RocksDB : " + db, e);
         }
-        return empty;
     }
 
-    @Override
-    public V put(K key, V value) {
+    protected void putDirect(ByteBuffer keyBuffer, ByteBuffer valueBuffer) {
+        if (groupCommit != null) {
+            groupCommit.put(writeOptions.get(), columnFamily, keyBuffer, valueBuffer);
+            return;
+        }
         try {
-            db.put(writeOption, serializeKey(key), serializeValue(value));
+            db.put(columnFamily, writeOptions.get(), keyBuffer, valueBuffer);
         } catch (RocksDBException e) {
             throw new CacheException("Can not write data to RocksDB : " + db, e);
         }
-        return empty;
     }
 
-    @Override
-    public V delete(K key) {
+    protected void deleteBytes(byte[] key) {
+        if (groupCommit != null) {
+            groupCommit.delete(writeOptions.get(), columnFamily, key);
+            return;
+        }
         try {
-            db.delete(writeOption, serializeKey(key));
+            db.delete(columnFamily, writeOptions.get(), key);
         } catch (RocksDBException e) {
             throw new CacheException("Can not delete data from RocksDB : " + db, e);
         }
-        return empty;
     }
 
+    /**
+     * 一次JNI调用拿回所有的value，不存在的key对应的value是null
+     */
     @Override
-    public void put(Map<K, V> keyValues) {
-        try (WriteOptions writeOptions = new WriteOptions()) {
-            try (WriteBatch batch = new WriteBatch()) {
-                for (Map.Entry<K, V> entry : keyValues.entrySet()) {
-                    batch.put(
-                            serializeKey(entry.getKey()),
-                            serializeValue(entry.getValue())
-                    );
+    public Map<K, V> get(Collection<K> keys) {
+        List<K> keyList = new ArrayList<>(keys);
+        List<byte[]> keyBytes = new ArrayList<>(keyList.size());
+        for (K key : keyList) {
+            keyBytes.add(serializeKey(key));
+        }
+        try {
+            List<byte[]> values = db.multiGetAsList(
+                    readOption, Collections.nCopies(keyBytes.size(), columnFamily), keyBytes
+            );
+            Map<K, V> keyValues = new HashMap<>(keyList.size() * 4 / 3 + 1);
+            for (int i = 0; i < keyList.size(); i++) {
+                byte[] value = values.get(i);
+                if (value != null) {
+                    keyValues.put(keyList.get(i), deserializeValue(value));
                 }
-                db.write(writeOptions, batch);
-            } catch (RocksDBException e) {
-                throw new CacheException("Can not execute put batch data to RocksDB : " + db, e);
             }
+            return keyValues;
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not execute batch get data from RocksDB : " + db, e);
+        }
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        put(keyValues, Durability.DEFAULT);
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        NativeResources resources = NativeResources.get();
+        WriteBatch batch = resources.writeBatch();
+        try {
+            DirectBuffers buffers = DirectBuffers.get();
+            for (Map.Entry<K, V> entry : keyValues.entrySet()) {
+                //WriteBatch会把数据拷贝到自己内部，所以buffer可以马上复用
+                batch.put(columnFamily,
+                        buffers.key(getSerializerKey(), entry.getKey()),
+                        buffers.value(getSerializerValue(), entry.getValue())
+                );
+            }
+            db.write(writeOptions.get(durability), batch);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not execute put batch data to RocksDB : " + db, e);
+        } finally {
+            resources.release(batch);
         }
     }
 
     @Override
     public void delete(Collection<K> keys) {
-        try (WriteOptions writeOptions = new WriteOptions()) {
-            try (WriteBatch batch = new WriteBatch()) {
-                for (K key : keys) {
-                    batch.delete(serializeKey(key));
-                }
-                db.write(writeOptions, batch);
-            } catch (RocksDBException e) {
-                throw new CacheException("Can not execute delete batch data from RocksDB : " + db, e);
+        NativeResources resources = NativeResources.get();
+        WriteBatch batch = resources.writeBatch();
+        try {
+            for (K key : keys) {
+                batch.delete(columnFamily, serializeKey(key));
             }
+            db.write(writeOptions.get(), batch);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not execute delete batch data from RocksDB : " + db, e);
+        } finally {
+            resources.release(batch);
         }
     }
 
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        scan(from == null ? null : serializeKey(from), to == null ? null : serializeKey(to), false,
+                (key, value) -> consumer.accept(deserializeKey(key), deserializeValue(value)));
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        scan(prefix, Bytes.nextPrefix(prefix), prefixLength > 0 && prefix.length >= prefixLength,
+                (key, value) -> consumer.accept(deserializeKey(key), deserializeValue(value)));
+    }
+
+    /**
+     * 通过iterate_upper_bound让RocksDB自己在上界停下来，而不是在Java里面一个一个比较，
+     * 配置了prefix_extractor以后，前缀查询可以利用prefix bloom跳过不相关的sst文件，
+     * 其他的查询必须打开total_order_seek，否则seek的结果是不确定的
+     */
+    private void scan(byte[] from, byte[] to, boolean prefixSameAsStart, BiConsumer<byte[], byte[]> consumer) {
+        Slice upperBound = to == null ? null : new Slice(to);
+        ReadOptions rocksDbReadOption = NativeResources.get().rocksDbReadOption(null, upperBound);
+        if (prefixSameAsStart) {
+            rocksDbReadOption.setPrefixSameAsStart(true);
+        } else if (prefixLength > 0) {
+            rocksDbReadOption.setTotalOrderSeek(true);
+        }
+        RocksIterator iterator = db.newIterator(columnFamily, rocksDbReadOption);
+        try {
+            if (from == null) {
+                iterator.seekToFirst();
+            } else {
+                iterator.seek(from);
+            }
+            for (; iterator.isValid(); iterator.next()) {
+                consumer.accept(iterator.key(), iterator.value());
+            }
+        } finally {
+            closeQuit(iterator, upperBound);
+        }
+    }
+
+    @Override
+    protected void consumeBytes(BiConsumer<byte[], byte[]> consumer) {
+        scan(null, null, false, consumer);
+    }
+
+    @Override
+    public Stream<K> keys() {
+        return CacheStreams.stream(CacheStreams.rocksDb(db, columnFamily), cursor -> deserializeKey(cursor.key()));
+    }
+
+    @Override
+    public Stream<V> values() {
+        return CacheStreams.stream(CacheStreams.rocksDb(db, columnFamily), cursor -> deserializeValue(cursor.value()));
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        return CacheStreams.stream(CacheStreams.rocksDb(db, columnFamily), cursor -> new AbstractMap.SimpleImmutableEntry<>(
+                deserializeKey(cursor.key()), deserializeValue(cursor.value())
+        ));
+    }
+
     @Override
     public void consumeKey(Consumer<K> consumer) {
-        try (ReadOptions rocksDbReadOption = new ReadOptions()) {
-            rocksDbReadOption.setFillCache(false).setVerifyChecksums(false).setSnapshot(db.getSnapshot());
-            RocksIterator iterator = db.newIterator(rocksDbReadOption);
-            try {
-                for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
-                    consumer.accept(deserializeKey(iterator.key()));
-                }
-            } finally {
-                closeQuit(iterator, rocksDbReadOption.snapshot());
+        Snapshot snapshot = db.getSnapshot();
+        RocksIterator iterator = db.newIterator(columnFamily, NativeResources.get().rocksDbReadOption(snapshot, null));
+        try {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                consumer.accept(deserializeKey(iterator.key()));
             }
+        } finally {
+            closeQuit(iterator);
+            db.releaseSnapshot(snapshot);
         }
     }
 
     @Override
     public void consumeValue(Consumer<V> consumer) {
-        try (ReadOptions rocksDbReadOption = new ReadOptions()) {
-            rocksDbReadOption.setFillCache(false).setVerifyChecksums(false).setSnapshot(db.getSnapshot());
-            RocksIterator iterator = db.newIterator(rocksDbReadOption);
-            try {
-                for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
-                    consumer.accept(deserializeValue(iterator.value()));
-                }
-            } finally {
-                closeQuit(iterator, rocksDbReadOption.snapshot());
+        Snapshot snapshot = db.getSnapshot();
+        RocksIterator iterator = db.newIterator(columnFamily, NativeResources.get().rocksDbReadOption(snapshot, null));
+        try {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                consumer.accept(deserializeValue(iterator.value()));
             }
+        } finally {
+            closeQuit(iterator);
+            db.releaseSnapshot(snapshot);
         }
     }
 
     @Override
     public void consume(BiConsumer<K, V> consumer) {
-        try (ReadOptions rocksDbReadOption = new ReadOptions()) {
-            rocksDbReadOption.setFillCache(false).setVerifyChecksums(false).setSnapshot(db.getSnapshot());
-            RocksIterator iterator = db.newIterator(rocksDbReadOption);
-            try {
-                for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
-                    consumer.accept(deserializeKey(iterator.key()), deserializeValue(iterator.value()));
-                }
-            } finally {
-                closeQuit(iterator, rocksDbReadOption.snapshot());
+        Snapshot snapshot = db.getSnapshot();
+        RocksIterator iterator = db.newIterator(columnFamily, NativeResources.get().rocksDbReadOption(snapshot, null));
+        try {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                consumer.accept(deserializeKey(iterator.key()), deserializeValue(iterator.value()));
             }
+        } finally {
+            closeQuit(iterator);
+            db.releaseSnapshot(snapshot);
         }
     }
 
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        return CacheSnapshots.snapshot(CacheSnapshots.rocksDb(db, columnFamily), this::serializeKey,
+                this::deserializeKey, this::deserializeValue);
+    }
+
+    /**
+     * 在BaseCache的统计上面加上RocksDB自己的统计
+     */
+    @Override
+    public CacheStats stats() {
+        return super.stats().withRocksDbStats(getRocksDbStats());
+    }
+
+    public RocksDbStats getRocksDbStats() {
+        return RocksDbStats.of(db, columnFamily, statistics);
+    }
+
+    @Override
+    public void consumeParallel(BiConsumer<K, V> consumer, int parallelism) {
+        RocksDbPartitions.consume(db, columnFamily, parallelism,
+                (key, value) -> consumer.accept(deserializeKey(key), deserializeValue(value)));
+    }
+
     public void truncate(boolean truncate, String cachePath, String name) {
         this.isTruncate = truncate;
         this.cachePath = cachePath;
         this.name = name;
     }
 
+    /**
+     * 多个cache共用同一个RocksDB的时候，每个cache只读写自己的column family，
+     * RocksDB和column family都由manager管理，关闭cache的时候只关闭自己的column family，truncate的时候把它删除掉
+     */
+    public void columnFamily(ColumnFamilyHandle columnFamily) {
+        this.columnFamily = columnFamily;
+        this.sharedDb = true;
+    }
+
+    /**
+     * manager挂在RocksDB上面的Statistics，由manager负责关闭，没有开启的时候是null
+     */
+    public void statistics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * 和manager里面配置的prefix_extractor长度一致，0表示没有配置
+     */
+    public void prefixLength(int prefixLength) {
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * 配置默认的写入选项，disableWal适合可以重建的纯缓存，sync适合不能丢数据的cache
+     */
+    public void writeOptions(boolean sync, boolean disableWal, boolean noSlowdown, boolean lowPri) {
+        writeOptions.configure(sync, disableWal, noSlowdown, lowPri);
+    }
+
+    /**
+     * 开启组提交，并发的单条put和delete合并成一个WriteBatch写入，适合大量线程同时写的场景
+     */
+    public void groupCommit(boolean enabled) {
+        if (enabled && groupCommit == null) {
+            groupCommit = new RocksDbGroupCommit(db);
+        }
+    }
+
     /**
      * 如果需要的话，那么继承close，显示的关闭掉
      *
@@ -169,16 +393,36 @@ public class RocksDbCache<K, V> extends BaseCache<K, V> {
     @Override
     public void close() throws IOException {
         try {
-            closeQuit(readOption, writeOption, db);
+            if (sharedDb) {
+                try {
+                    if (isTruncate) {
+                        dropColumnFamily();
+                    }
+                } finally {
+                    closeQuit(groupCommit, readOption, writeOptions, columnFamily);
+                }
+            } else {
+                closeQuit(groupCommit, readOption, writeOptions, db);
+            }
+            groupCommit = null;
             db = null;
+            columnFamily = null;
             readOption = null;
-            writeOption = null;
+            writeOptions = null;
         } finally {
-            if (isTruncate) {
+            if (isTruncate && !sharedDb) {
                 FileUtils.forceDelete(new File(cachePath, name));
             }
             cachePath = null;
             name = null;
         }
     }
+
+    private void dropColumnFamily() throws IOException {
+        try {
+            db.dropColumnFamily(columnFamily);
+        } catch (RocksDBException e) {
+            throw new IOException("Can not drop column family " + name + " from RocksDB : " + db, e);
+        }
+    }
 }
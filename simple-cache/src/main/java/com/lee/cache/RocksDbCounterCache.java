@@ -0,0 +1,376 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+import com.lee.cache.serializer.Serializer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.rocksdb.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于RocksDB内置的uint64add merge operator的计数器，value固定是8个字节小端编码的long，
+ * increment只是追加一个merge操作数，由RocksDB在读取和compaction的时候合并，不需要先读再写
+ * <p>
+ * 开启累加以后，increment先累加在内存里面按照key分段的计数器上面，后台线程定时或者某一段的key太多的时候
+ * 合并成一个WriteBatch写入，同一个key在一个周期里面的多次increment只会写一次；get会把内存里面的值加上，
+ * 进程异常退出的时候还没有写入的累加值会丢失
+ * <p>
+ * column family必须配置UInt64AddOperator，由manager负责
+ *
+ * @param <K> key
+ */
+@Slf4j
+public class RocksDbCounterCache<K> implements CounterCache<K> {
+
+    static {
+        RocksDB.loadLibrary();
+    }
+
+    /**
+     * 某一段累加的key超过这个数量，写线程自己刷新，避免后台线程跟不上的时候内存无限增长
+     */
+    private static final int MAX_PENDING_KEYS = 16 * 1024;
+
+    private RocksDB db;
+    private ColumnFamilyHandle columnFamily;
+    private boolean sharedDb;
+    private boolean isTruncate;
+    private String cachePath;
+    private String name;
+
+    private final Serializer<K> serializerKey;
+
+    private ReadOptions readOption = new ReadOptions();
+    private RocksDbWriteOptions writeOptions = new RocksDbWriteOptions();
+
+    private Stripe<K>[] stripes;
+    private int mask;
+    private ScheduledExecutorService flusher;
+
+    public RocksDbCounterCache(RocksDB db, Class<K> keyType) {
+        this(db, BaseCache.serializerFor(keyType));
+    }
+
+    public RocksDbCounterCache(RocksDB db, Serializer<K> serializerKey) {
+        if (serializerKey == null) {
+            throw new IllegalArgumentException("serializerKey must not be null");
+        }
+        this.db = db;
+        this.columnFamily = db.getDefaultColumnFamily();
+        this.serializerKey = serializerKey;
+    }
+
+    @Override
+    public void increment(K key, long delta) {
+        if (stripes == null) {
+            merge(serializerKey.serialize(key), delta);
+            return;
+        }
+        Stripe<K> stripe = stripeFor(key);
+        if (stripe.add(key, delta) >= MAX_PENDING_KEYS) {
+            flush(stripe);
+        }
+    }
+
+    /**
+     * 在锁外面读取RocksDB，不会因为block cache没有命中而阻塞这一段的increment；
+     * 然后在锁里面加上内存里面的值，如果读取期间这一段刷新过(generation变了)，RocksDB里面的值可能已经包含了
+     * 刚刚写入的累加值，重新读一次，这样内存里面的值不会被重复计算或者漏掉
+     */
+    @Override
+    public long get(K key) {
+        byte[] keyBytes = serializerKey.serialize(key);
+        if (stripes == null) {
+            return read(keyBytes);
+        }
+        Stripe<K> stripe = stripeFor(key);
+        while (true) {
+            long generation = stripe.generation;
+            long stored = read(keyBytes);
+            synchronized (stripe) {
+                if (stripe.generation == generation) {
+                    return stored + stripe.pending(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<K, Long> getAll(Collection<K> keys) {
+        flush();
+        List<K> keyList = new ArrayList<>(keys);
+        List<byte[]> keyBytes = new ArrayList<>(keyList.size());
+        for (K key : keyList) {
+            keyBytes.add(serializerKey.serialize(key));
+        }
+        try {
+            List<byte[]> values = db.multiGetAsList(
+                    readOption, Collections.nCopies(keyBytes.size(), columnFamily), keyBytes
+            );
+            Map<K, Long> counts = new HashMap<>(keyList.size() * 4 / 3 + 1);
+            for (int i = 0; i < keyList.size(); i++) {
+                byte[] value = values.get(i);
+                if (value != null) {
+                    counts.put(keyList.get(i), decode(value));
+                }
+            }
+            return counts;
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not execute batch get counter from RocksDB : " + db, e);
+        }
+    }
+
+    @Override
+    public void delete(K key) {
+        byte[] keyBytes = serializerKey.serialize(key);
+        if (stripes == null) {
+            deleteBytes(keyBytes);
+            return;
+        }
+        Stripe<K> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.deltas.remove(key);
+            stripe.generation++;
+            deleteBytes(keyBytes);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (stripes != null) {
+            for (Stripe<K> stripe : stripes) {
+                flush(stripe);
+            }
+        }
+    }
+
+    /**
+     * 开启内存累加，flushIntervalMillis是后台线程刷新的间隔
+     */
+    @SuppressWarnings("unchecked")
+    public void accumulate(long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0 || stripes != null) {
+            return;
+        }
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors()) {
+            count <<= 1;
+        }
+        Stripe<K>[] newStripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            newStripes[i] = new Stripe<>();
+        }
+        this.mask = count - 1;
+        this.stripes = newStripes;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void truncate(boolean truncate, String cachePath, String name) {
+        this.isTruncate = truncate;
+        this.cachePath = cachePath;
+        this.name = name;
+    }
+
+    /**
+     * 和RocksDbCache一样，共用RocksDB的时候只读写自己的column family
+     */
+    public void columnFamily(ColumnFamilyHandle columnFamily) {
+        this.columnFamily = columnFamily;
+        this.sharedDb = true;
+    }
+
+    public void writeOptions(boolean sync, boolean disableWal, boolean noSlowdown, boolean lowPri) {
+        writeOptions.configure(sync, disableWal, noSlowdown, lowPri);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                if (!flusher.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("Timeout to wait counter flusher to finish");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+        } finally {
+            try {
+                if (sharedDb) {
+                    try {
+                        if (isTruncate) {
+                            dropColumnFamily();
+                        }
+                    } finally {
+                        closeQuit(readOption, writeOptions, columnFamily);
+                    }
+                } else {
+                    closeQuit(readOption, writeOptions, db);
+                }
+                db = null;
+                columnFamily = null;
+                readOption = null;
+                writeOptions = null;
+            } finally {
+                if (isTruncate && !sharedDb) {
+                    FileUtils.forceDelete(new File(cachePath, name));
+                }
+                cachePath = null;
+                name = null;
+            }
+        }
+    }
+
+    private void flush(Stripe<K> stripe) {
+        synchronized (stripe) {
+            if (stripe.deltas.isEmpty()) {
+                return;
+            }
+            NativeResources resources = NativeResources.get();
+            WriteBatch batch = resources.writeBatch();
+            try {
+                for (Map.Entry<K, long[]> entry : stripe.deltas.entrySet()) {
+                    if (entry.getValue()[0] != 0) {
+                        batch.merge(columnFamily, serializerKey.serialize(entry.getKey()), encode(entry.getValue()[0]));
+                    }
+                }
+                db.write(writeOptions.get(), batch);
+                stripe.deltas.clear();
+                stripe.generation++;
+            } catch (RocksDBException e) {
+                //写入失败的时候累加值还留在内存里面，下一次刷新的时候再试
+                throw new CacheException("Can not write counters to RocksDB : " + db, e);
+            } finally {
+                resources.release(batch);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Can not flush counters to " + db, e);
+        }
+    }
+
+    private void merge(byte[] key, long delta) {
+        try {
+            db.merge(columnFamily, writeOptions.get(), key, encode(delta));
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not merge counter to RocksDB : " + db, e);
+        }
+    }
+
+    private long read(byte[] key) {
+        try {
+            byte[] value = db.get(columnFamily, readOption, key);
+            return value == null ? 0 : decode(value);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not read counter from RocksDB : " + db, e);
+        }
+    }
+
+    private void deleteBytes(byte[] key) {
+        try {
+            db.delete(columnFamily, writeOptions.get(), key);
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not delete counter from RocksDB : " + db, e);
+        }
+    }
+
+    private void dropColumnFamily() throws IOException {
+        try {
+            db.dropColumnFamily(columnFamily);
+        } catch (RocksDBException e) {
+            throw new IOException("Can not drop column family " + name + " from RocksDB : " + db, e);
+        }
+    }
+
+    private Stripe<K> stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * uint64add按照小端解码操作数和结果，负数就是补码，加起来的结果和long的加法一致
+     */
+    private static byte[] encode(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (value >>> (i << 3));
+        }
+        return bytes;
+    }
+
+    private static long decode(byte[] bytes) {
+        if (bytes.length != 8) {
+            throw new CacheException("Counter value must be 8 bytes, but is " + bytes.length);
+        }
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void closeQuit(AutoCloseable... closeables) {
+        for (AutoCloseable closeable : closeables) {
+            try {
+                if (closeable != null) {
+                    closeable.close();
+                }
+            } catch (Exception e) {
+                log.warn("Can not close resource " + closeable, e);
+            }
+        }
+    }
+
+    /**
+     * 每个key一个long[1]，同一个key之后的累加不需要再装箱
+     */
+    private static final class Stripe<K> {
+
+        private final Map<K, long[]> deltas = new HashMap<>();
+
+        /**
+         * 每次把累加值写入RocksDB或者删除的时候加1，只在锁里面修改，get用它判断锁外面的读取期间有没有刷新
+         */
+        private volatile long generation;
+
+        synchronized int add(K key, long delta) {
+            long[] cell = deltas.get(key);
+            if (cell == null) {
+                deltas.put(key, cell = new long[1]);
+            }
+            cell[0] += delta;
+            return deltas.size();
+        }
+
+        synchronized long pending(K key) {
+            long[] cell = deltas.get(key);
+            return cell == null ? 0 : cell[0];
+        }
+    }
+}
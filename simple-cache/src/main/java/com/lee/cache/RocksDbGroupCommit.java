@@ -0,0 +1,135 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 组提交，多个线程同时写的时候，先把自己的写操作放进队列，抢到锁的线程作为leader，把队列里面所有的写操作合并成一个WriteBatch，
+ * 一次JNI调用、一次WAL写入完成，其他线程等leader写完以后直接返回
+ * <p>
+ * 每个线程都要等到自己的写操作真正写入RocksDB以后才返回，所以WriteOptions的sync语义不变，
+ * 写操作的key和value直接引用调用线程私有的direct buffer，调用线程在返回之前不会修改它们
+ */
+final class RocksDbGroupCommit implements AutoCloseable {
+
+    private static final int MAX_GROUP_SIZE = 1024;
+
+    private final RocksDB db;
+    private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock leader = new ReentrantLock();
+
+    /**
+     * 只有leader会使用，每次提交以后clear复用
+     */
+    private final WriteBatch batch = new WriteBatch(NativeResources.BATCH_RESERVED_BYTES);
+    private final List<Request> group = new ArrayList<>();
+
+    RocksDbGroupCommit(RocksDB db) {
+        this.db = db;
+    }
+
+    void put(WriteOptions writeOptions, ColumnFamilyHandle columnFamily, ByteBuffer key, ByteBuffer value) {
+        write(writeOptions, new Request(columnFamily, key, value, null));
+    }
+
+    void delete(WriteOptions writeOptions, ColumnFamilyHandle columnFamily, byte[] key) {
+        write(writeOptions, new Request(columnFamily, null, null, key));
+    }
+
+    /**
+     * 写操作已经交给了leader，不能中途放弃，所以等待的时候不响应中断；
+     * 线程被中断以后park会马上返回，这里先清掉中断标志，等写完以后再恢复，否则会一直空转
+     */
+    private void write(WriteOptions writeOptions, Request request) {
+        queue.add(request);
+        boolean interrupted = false;
+        while (!request.done) {
+            if (leader.tryLock()) {
+                try {
+                    if (!request.done) {
+                        commit(writeOptions);
+                    }
+                } finally {
+                    leader.unlock();
+                }
+                //必须在释放锁以后再看队列，否则刚入队并且抢锁失败的线程可能没有人唤醒
+                Request next = queue.peek();
+                if (next != null) {
+                    LockSupport.unpark(next.thread);
+                }
+            } else {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (request.error != null) {
+            throw new CacheException("Can not write data to RocksDB : " + db, request.error);
+        }
+    }
+
+    private void commit(WriteOptions writeOptions) {
+        Exception error = null;
+        try {
+            Request request;
+            while (group.size() < MAX_GROUP_SIZE && (request = queue.poll()) != null) {
+                group.add(request);
+                if (request.deleteKey != null) {
+                    batch.delete(request.columnFamily, request.deleteKey);
+                } else {
+                    batch.put(request.columnFamily, request.key, request.value);
+                }
+            }
+            db.write(writeOptions, batch);
+        } catch (RocksDBException | RuntimeException e) {
+            error = e;
+        } finally {
+            batch.clear();
+            for (Request request : group) {
+                request.error = error;
+                request.done = true;
+                LockSupport.unpark(request.thread);
+            }
+            group.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        batch.close();
+    }
+
+    private static final class Request {
+
+        private final Thread thread = Thread.currentThread();
+        private final ColumnFamilyHandle columnFamily;
+        private final ByteBuffer key;
+        private final ByteBuffer value;
+        private final byte[] deleteKey;
+
+        private Exception error;
+        private volatile boolean done;
+
+        Request(ColumnFamilyHandle columnFamily, ByteBuffer key, ByteBuffer value, byte[] deleteKey) {
+            this.columnFamily = columnFamily;
+            this.key = key;
+            this.value = value;
+            this.deleteKey = deleteKey;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.lee.cache;
+
+import com.lee.cache.serializer.Serializer;
+import org.rocksdb.RocksDB;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author l46li
+ */
+public class RocksDbLongCache<V> extends RocksDbCache<Long, V> implements LongObjectCache<V> {
+
+    public RocksDbLongCache(RocksDB db, Serializer<V> serializerValue) {
+        super(db, Long.class, serializerValue);
+    }
+
+    public RocksDbLongCache(RocksDB db, Class<V> valueType) {
+        super(db, Long.class, valueType);
+    }
+
+    @Override
+    public V get(long key) {
+        long start = metricsStart();
+        DirectBuffers buffers = DirectBuffers.get();
+        ByteBuffer value = getDirect(buffers, buffers.key(key));
+        V result = value == null ? empty : deserializeValue(value);
+        recordGet(start, result != null);
+        return result;
+    }
+
+    @Override
+    public V put(long key, V value) {
+        long start = metricsStart();
+        try {
+            DirectBuffers buffers = DirectBuffers.get();
+            putDirect(buffers.key(key), buffers.value(getSerializerValue(), value));
+            return empty;
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public V delete(long key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(DirectBuffers.get().keyBytes(key));
+            return empty;
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.lee.cache;
+
+import org.rocksdb.RocksDB;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author l46li
+ */
+public class RocksDbLongLongCache extends RocksDbCache<Long, Long> implements LongLongCache {
+
+    public RocksDbLongLongCache(RocksDB db) {
+        super(db, Long.class, Long.class);
+    }
+
+    @Override
+    public long get(long key, long defaultValue) {
+        long start = metricsStart();
+        DirectBuffers buffers = DirectBuffers.get();
+        ByteBuffer value = getDirect(buffers, buffers.key(key));
+        recordGet(start, value != null);
+        if (value != null) {
+            return value.getLong();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void put(long key, long value) {
+        long start = metricsStart();
+        try {
+            DirectBuffers buffers = DirectBuffers.get();
+            putDirect(buffers.key(key), buffers.value(value));
+        } finally {
+            record(CacheStats.Operation.PUT, start);
+        }
+    }
+
+    @Override
+    public void delete(long key) {
+        long start = metricsStart();
+        try {
+            deleteBytes(DirectBuffers.get().keyBytes(key));
+        } finally {
+            record(CacheStats.Operation.DELETE, start);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+import org.rocksdb.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * 按照sst文件的边界把整个key空间切成多个分区，每个分区一个迭代器，在同一个snapshot上面多线程遍历
+ * <p>
+ * 分区的数量是线程数的几倍，sst文件大小不均匀的时候，先做完的线程可以继续拿剩下的分区
+ * <p>
+ * 每次调用都会创建一个新的线程池，用完就关闭，所以这里的线程不能使用NativeResources这种线程私有的JNI对象，
+ * 否则线程退出以后没有人关闭它们，每个分区自己创建ReadOptions，用完马上关闭
+ */
+final class RocksDbPartitions {
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private RocksDbPartitions() {
+    }
+
+    static void consume(RocksDB db, ColumnFamilyHandle columnFamily, int parallelism,
+                        BiConsumer<byte[], byte[]> consumer) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0 : " + parallelism);
+        }
+
+        List<byte[]> splits = splitKeys(db, columnFamily, parallelism * PARTITIONS_PER_THREAD);
+        List<Callable<Void>> partitions = new ArrayList<>(splits.size() + 1);
+        AtomicBoolean failed = new AtomicBoolean();
+        Snapshot snapshot = db.getSnapshot();
+        for (int i = 0; i <= splits.size(); i++) {
+            byte[] from = i == 0 ? null : splits.get(i - 1);
+            byte[] to = i == splits.size() ? null : splits.get(i);
+            partitions.add(() -> {
+                try {
+                    consume(db, columnFamily, snapshot, from, to, consumer, failed);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+                return null;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            //invokeAll会等所有的分区都结束才返回，所以之后释放snapshot是安全的
+            for (Future<Void> future : pool.invokeAll(partitions)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("Interrupted while consuming RocksDB in parallel : " + db, e);
+        } catch (ExecutionException e) {
+            throw new CacheException("Can not consume RocksDB in parallel : " + db, e.getCause());
+        } finally {
+            pool.shutdown();
+            db.releaseSnapshot(snapshot);
+        }
+    }
+
+    /**
+     * 按照sst文件的smallest key排序，累加文件的大小，每到总大小的1/partitions就切一刀，
+     * 没有sst文件(数据都还在memtable里面)的时候返回空，也就是只有一个分区，
+     * 多个cache共用一个RocksDB的时候只看自己的column family里面的文件
+     */
+    static List<byte[]> splitKeys(RocksDB db, ColumnFamilyHandle columnFamily, int partitions) {
+        byte[] name;
+        try {
+            name = columnFamily.getName();
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not get column family name of RocksDB : " + db, e);
+        }
+        List<LiveFileMetaData> files = db.getLiveFilesMetaData();
+        files.removeIf(file -> !Arrays.equals(file.columnFamilyName(), name));
+        files.sort((left, right) -> Bytes.compare(left.smallestKey(), right.smallestKey()));
+
+        long total = 0;
+        for (LiveFileMetaData file : files) {
+            total += file.size();
+        }
+
+        List<byte[]> splits = new ArrayList<>(partitions);
+        long accumulated = 0;
+        for (LiveFileMetaData file : files) {
+            if (accumulated >= total * (splits.size() + 1) / partitions) {
+                byte[] split = file.smallestKey();
+                if (splits.isEmpty() || Bytes.compare(splits.get(splits.size() - 1), split) < 0) {
+                    splits.add(split);
+                }
+            }
+            accumulated += file.size();
+        }
+        return splits;
+    }
+
+    private static void consume(RocksDB db, ColumnFamilyHandle columnFamily, Snapshot snapshot, byte[] from, byte[] to,
+                                BiConsumer<byte[], byte[]> consumer, AtomicBoolean failed) {
+        try (Slice upperBound = to == null ? null : new Slice(to);
+             ReadOptions readOption = new ReadOptions().setFillCache(false).setVerifyChecksums(false)
+                     .setSnapshot(snapshot).setTotalOrderSeek(true)) {
+            if (upperBound != null) {
+                readOption.setIterateUpperBound(upperBound);
+            }
+            try (RocksIterator iterator = db.newIterator(columnFamily, readOption)) {
+                if (from == null) {
+                    iterator.seekToFirst();
+                } else {
+                    iterator.seek(from);
+                }
+                for (; iterator.isValid() && !failed.get(); iterator.next()) {
+                    consumer.accept(iterator.key(), iterator.value());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.lee.cache;
+
+import com.lee.cache.exception.CacheException;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+
+/**
+ * RocksDB自己的统计信息快照
+ * <p>
+ * 计数来自挂在RocksDB上面的Statistics，需要在配置里面开启statistics，否则都是0，
+ * 多个cache共用一个RocksDB的时候是整个RocksDB的计数；
+ * estimateNumKeys和estimateLiveDataSize是这个cache的column family的属性，总是有值，只是估算
+ */
+public final class RocksDbStats {
+
+    private final boolean statisticsEnabled;
+    private final long blockCacheHit;
+    private final long blockCacheMiss;
+    private final long bloomFilterUseful;
+    private final long bloomFilterFullPositive;
+    private final long bloomFilterFullTruePositive;
+    private final long memtableHit;
+    private final long memtableMiss;
+    private final long stallMicros;
+    private final long compactReadBytes;
+    private final long compactWriteBytes;
+    private final long flushWriteBytes;
+    private final long estimateNumKeys;
+    private final long estimateLiveDataSize;
+
+    private RocksDbStats(Statistics statistics, long estimateNumKeys, long estimateLiveDataSize) {
+        this.statisticsEnabled = statistics != null;
+        this.blockCacheHit = ticker(statistics, TickerType.BLOCK_CACHE_HIT);
+        this.blockCacheMiss = ticker(statistics, TickerType.BLOCK_CACHE_MISS);
+        this.bloomFilterUseful = ticker(statistics, TickerType.BLOOM_FILTER_USEFUL);
+        this.bloomFilterFullPositive = ticker(statistics, TickerType.BLOOM_FILTER_FULL_POSITIVE);
+        this.bloomFilterFullTruePositive = ticker(statistics, TickerType.BLOOM_FILTER_FULL_TRUE_POSITIVE);
+        this.memtableHit = ticker(statistics, TickerType.MEMTABLE_HIT);
+        this.memtableMiss = ticker(statistics, TickerType.MEMTABLE_MISS);
+        this.stallMicros = ticker(statistics, TickerType.STALL_MICROS);
+        this.compactReadBytes = ticker(statistics, TickerType.COMPACT_READ_BYTES);
+        this.compactWriteBytes = ticker(statistics, TickerType.COMPACT_WRITE_BYTES);
+        this.flushWriteBytes = ticker(statistics, TickerType.FLUSH_WRITE_BYTES);
+        this.estimateNumKeys = estimateNumKeys;
+        this.estimateLiveDataSize = estimateLiveDataSize;
+    }
+
+    /**
+     * @param statistics 没有开启的时候是null
+     */
+    static RocksDbStats of(RocksDB db, ColumnFamilyHandle columnFamily, Statistics statistics) {
+        try {
+            return new RocksDbStats(
+                    statistics,
+                    db.getLongProperty(columnFamily, "rocksdb.estimate-num-keys"),
+                    db.getLongProperty(columnFamily, "rocksdb.estimate-live-data-size")
+            );
+        } catch (RocksDBException e) {
+            throw new CacheException("Can not get properties from RocksDB : " + db, e);
+        }
+    }
+
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
+    public long getBlockCacheHit() {
+        return blockCacheHit;
+    }
+
+    public long getBlockCacheMiss() {
+        return blockCacheMiss;
+    }
+
+    public double getBlockCacheHitRate() {
+        long total = blockCacheHit + blockCacheMiss;
+        return total == 0 ? 0 : (double) blockCacheHit / total;
+    }
+
+    /**
+     * bloom filter判断key不存在，省掉的读取次数
+     */
+    public long getBloomFilterUseful() {
+        return bloomFilterUseful;
+    }
+
+    /**
+     * bloom filter判断key可能存在的次数，减去true positive就是误判的次数
+     */
+    public long getBloomFilterFullPositive() {
+        return bloomFilterFullPositive;
+    }
+
+    public long getBloomFilterFullTruePositive() {
+        return bloomFilterFullTruePositive;
+    }
+
+    public long getMemtableHit() {
+        return memtableHit;
+    }
+
+    public long getMemtableMiss() {
+        return memtableMiss;
+    }
+
+    /**
+     * 因为level0文件太多或者memtable写满，写操作被停顿或者限速的总时间(微秒)
+     */
+    public long getStallMicros() {
+        return stallMicros;
+    }
+
+    public long getCompactReadBytes() {
+        return compactReadBytes;
+    }
+
+    public long getCompactWriteBytes() {
+        return compactWriteBytes;
+    }
+
+    public long getFlushWriteBytes() {
+        return flushWriteBytes;
+    }
+
+    public long getEstimateNumKeys() {
+        return estimateNumKeys;
+    }
+
+    public long getEstimateLiveDataSize() {
+        return estimateLiveDataSize;
+    }
+
+    @Override
+    public String toString() {
+        return "RocksDbStats{" +
+                "statisticsEnabled=" + statisticsEnabled +
+                ", blockCacheHit=" + blockCacheHit +
+                ", blockCacheMiss=" + blockCacheMiss +
+                ", bloomFilterUseful=" + bloomFilterUseful +
+                ", bloomFilterFullPositive=" + bloomFilterFullPositive +
+                ", bloomFilterFullTruePositive=" + bloomFilterFullTruePositive +
+                ", memtableHit=" + memtableHit +
+                ", memtableMiss=" + memtableMiss +
+                ", stallMicros=" + stallMicros +
+                ", compactReadBytes=" + compactReadBytes +
+                ", compactWriteBytes=" + compactWriteBytes +
+                ", flushWriteBytes=" + flushWriteBytes +
+                ", estimateNumKeys=" + estimateNumKeys +
+                ", estimateLiveDataSize=" + estimateLiveDataSize +
+                '}';
+    }
+
+    private static long ticker(Statistics statistics, TickerType type) {
+        return statistics == null ? 0 : statistics.getTickerCount(type);
+    }
+}
@@ -0,0 +1,49 @@
+package com.lee.cache;
+
+import org.rocksdb.WriteOptions;
+
+/**
+ * 一个cache用到的所有WriteOptions，创建cache的时候一次性分配好，每次写入直接复用，不会在写入的路径上创建JNI对象
+ * <p>
+ * sync和disableWAL可以按照Durability临时覆盖，noSlowdown和lowPri对所有的写入都生效
+ */
+final class RocksDbWriteOptions implements AutoCloseable {
+
+    private final WriteOptions defaults = new WriteOptions();
+    private final WriteOptions sync = new WriteOptions().setSync(true);
+    private final WriteOptions async = new WriteOptions();
+    private final WriteOptions noWal = new WriteOptions().setDisableWAL(true);
+
+    void configure(boolean isSync, boolean disableWal, boolean noSlowdown, boolean lowPri) {
+        defaults.setSync(isSync).setDisableWAL(disableWal);
+        for (WriteOptions options : new WriteOptions[]{defaults, sync, async, noWal}) {
+            options.setNoSlowdown(noSlowdown).setLowPri(lowPri);
+        }
+    }
+
+    WriteOptions get() {
+        return defaults;
+    }
+
+    WriteOptions get(Durability durability) {
+        switch (durability) {
+            case SYNC:
+                return sync;
+            case ASYNC:
+                return async;
+            case NO_WAL:
+                return noWal;
+            case DEFAULT:
+            default:
+                return defaults;
+        }
+    }
+
+    @Override
+    public void close() {
+        defaults.close();
+        sync.close();
+        async.close();
+        noWal.close();
+    }
+}
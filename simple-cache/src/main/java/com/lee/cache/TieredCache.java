@@ -0,0 +1,285 @@
+package com.lee.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 两级缓存，在持久化的cache前面放一个有界的堆上缓存(Caffeine，W-TinyLFU淘汰)，里面存放的是反序列化以后的对象，
+ * 热点数据直接从堆上返回，不需要走JNI和反序列化
+ * <p>
+ * 所有对底层存储的访问都不在近端缓存的锁里面，写操作先写底层存储，然后让近端缓存失效，下次读取的时候重新加载；
+ * 读取的时候如果有写操作正在进行，或者加载期间发生了写操作，加载的结果不放进近端缓存，所以不会缓存旧的值，
+ * 底层存储如果是WriteBehindCache，那么就是write behind的效果
+ * <p>
+ * 范围查询和遍历直接交给底层存储
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class TieredCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, V> delegate;
+    private final com.github.benmanes.caffeine.cache.Cache<K, V> near;
+
+    /**
+     * 用这两个计数判断加载期间有没有写操作，有的话加载的结果不放进近端缓存
+     */
+    private final AtomicInteger writing = new AtomicInteger();
+    private final AtomicLong writes = new AtomicLong();
+
+    public TieredCache(Cache<K, V> delegate, long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Near cache size must be greater than 0");
+        }
+        this.delegate = delegate;
+        this.near = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    @Override
+    public V get(K key) {
+        V value = near.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        long version = writes.get();
+        boolean cacheable = writing.get() == 0;
+        value = delegate.get(key);
+        if (cacheable && value != null) {
+            near.put(key, value);
+            if (writes.get() != version) {
+                near.invalidate(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 只查近端缓存，不会访问底层存储
+     */
+    public V getIfPresent(K key) {
+        return near.getIfPresent(key);
+    }
+
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        Map<K, V> keyValues = new HashMap<>(near.getAllPresent(keys));
+        if (keyValues.size() == keys.size()) {
+            return keyValues;
+        }
+
+        long version = writes.get();
+        boolean cacheable = writing.get() == 0;
+
+        List<K> missing = new ArrayList<>(keys.size() - keyValues.size());
+        for (K key : keys) {
+            if (!keyValues.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+
+        Map<K, V> loaded = delegate.get(missing);
+        keyValues.putAll(loaded);
+        if (cacheable && !loaded.isEmpty()) {
+            near.putAll(loaded);
+            if (writes.get() != version) {
+                near.invalidateAll(loaded.keySet());
+            }
+        }
+        return keyValues;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            delegate.put(key, value);
+            near.invalidate(key);
+        } finally {
+            writing.decrementAndGet();
+        }
+        return null;
+    }
+
+    @Override
+    public V put(K key, V value, Duration ttl) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            delegate.put(key, value, ttl);
+            near.invalidate(key);
+        } finally {
+            writing.decrementAndGet();
+        }
+        return null;
+    }
+
+    @Override
+    public V delete(K key) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            delegate.delete(key);
+            near.invalidate(key);
+        } finally {
+            writing.decrementAndGet();
+        }
+        return null;
+    }
+
+    /**
+     * 原子性由底层存储保证，完成以后让近端缓存失效
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            V value = delegate.compute(key, function);
+            near.invalidate(key);
+            return value;
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            V merged = delegate.merge(key, value, function);
+            near.invalidate(key);
+            return merged;
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            V old = delegate.putIfAbsent(key, value);
+            near.invalidate(key);
+            return old;
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        put(keyValues, Durability.DEFAULT);
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            delegate.put(keyValues, durability);
+            near.invalidateAll(keyValues.keySet());
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void delete(Collection<K> keys) {
+        writing.incrementAndGet();
+        writes.incrementAndGet();
+        try {
+            delegate.delete(keys);
+            near.invalidateAll(keys);
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        delegate.scan(from, to, consumer);
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        delegate.prefixScan(prefix, consumer);
+    }
+
+    @Override
+    public Stream<K> keys() {
+        return delegate.keys();
+    }
+
+    @Override
+    public Stream<V> values() {
+        return delegate.values();
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        return delegate.entries();
+    }
+
+    @Override
+    public void consumeKey(Consumer<K> consumer) {
+        delegate.consumeKey(consumer);
+    }
+
+    @Override
+    public void consumeParallel(BiConsumer<K, V> consumer, int parallelism) {
+        delegate.consumeParallel(consumer, parallelism);
+    }
+
+    @Override
+    public void consumeValue(Consumer<V> consumer) {
+        delegate.consumeValue(consumer);
+    }
+
+    @Override
+    public void consume(BiConsumer<K, V> consumer) {
+        delegate.consume(consumer);
+    }
+
+    /**
+     * 近端缓存里面的数据不在snapshot里面，直接读取底层cache的snapshot
+     */
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * 统计的是底层存储的访问，近端缓存命中的读取不在里面
+     */
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    public long nearSize() {
+        return near.estimatedSize();
+    }
+
+    public Cache<K, V> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        near.invalidateAll();
+        delegate.close();
+    }
+}
@@ -0,0 +1,377 @@
+package com.lee.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 异步写入的cache，put和delete只是写进内存里面按照key分段的缓冲区，同一个key的多次写入只保留最后一次，
+ * 后台线程定时或者某一段的数据量达到batchSize的时候，把缓冲区里面的数据合并成WriteBatch批量写入底层存储
+ * <p>
+ * 读取先查缓冲区，所以总是能读到自己的写；范围查询和遍历之前会先把缓冲区刷到底层存储
+ * <p>
+ * 注意：进程异常退出的时候缓冲区里面还没有写入的数据会丢失，只适合计数器、session这种可以容忍少量丢失的数据
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+@Slf4j
+public class WriteBehindCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 某一段的数据量超过batchSize的这个倍数，说明后台线程已经跟不上了，写线程自己去刷新，避免缓冲区无限增长
+     */
+    private static final int BACKPRESSURE_FACTOR = 4;
+
+    private final Cache<K, V> delegate;
+    private final int batchSize;
+    private final Stripe<K, V>[] stripes;
+    private final int mask;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    @SuppressWarnings("unchecked")
+    public WriteBehindCache(Cache<K, V> delegate, int batchSize, long flushIntervalMillis) {
+        if (batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("batchSize and flushIntervalMillis must be greater than 0");
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors()) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.mask = count - 1;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public V get(K key) {
+        Write<V> write = stripeFor(key).buffer.get(key);
+        if (write != null) {
+            return write.value;
+        }
+        return delegate.get(key);
+    }
+
+    @Override
+    public Map<K, V> get(Collection<K> keys) {
+        Map<K, V> keyValues = new HashMap<>(keys.size() * 4 / 3 + 1);
+        List<K> missing = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            Write<V> write = stripeFor(key).buffer.get(key);
+            if (write == null) {
+                missing.add(key);
+            } else if (!write.deleted) {
+                keyValues.put(key, write.value);
+            }
+        }
+        if (!missing.isEmpty()) {
+            keyValues.putAll(delegate.get(missing));
+        }
+        return keyValues;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        write(key, new Write<>(value, false));
+        return null;
+    }
+
+    /**
+     * 在这一段的锁里面先看缓冲区再看底层存储，结果还是写进缓冲区，同一个key的compute之间不会丢失更新
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            Write<V> pending = stripe.buffer.get(key);
+            V old = pending != null ? pending.value : delegate.get(key);
+            V value = function.apply(key, old);
+            write(key, new Write<>(value, value == null));
+            return value;
+        }
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        return compute(key, (k, old) -> old == null ? value : function.apply(old, value));
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            Write<V> pending = stripe.buffer.get(key);
+            V old = pending != null ? pending.value : delegate.get(key);
+            if (old == null) {
+                write(key, new Write<>(value, false));
+            }
+            return old;
+        }
+    }
+
+    /**
+     * 带过期时间的写入不经过缓冲区，直接同步写到底层存储，在这一段的锁里面先去掉缓冲区里面同一个key之前的写入，
+     * 避免之后刷新的时候把它覆盖掉
+     */
+    @Override
+    public V put(K key, V value, Duration ttl) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.buffer.remove(key);
+            delegate.put(key, value, ttl);
+        }
+        return null;
+    }
+
+    @Override
+    public V delete(K key) {
+        write(key, new Write<>(null, true));
+        return null;
+    }
+
+    @Override
+    public void put(Map<K, V> keyValues) {
+        for (Map.Entry<K, V> entry : keyValues.entrySet()) {
+            write(entry.getKey(), new Write<>(entry.getValue(), false));
+        }
+    }
+
+    /**
+     * 指定了持久化级别的写入需要同步完成，先放进缓冲区再按照这个级别把缓冲区刷进去，这样和同一个key之前的写入不会乱序
+     */
+    @Override
+    public void put(Map<K, V> keyValues, Durability durability) {
+        put(keyValues);
+        if (durability != Durability.DEFAULT) {
+            for (Stripe<K, V> stripe : stripes) {
+                stripe.flush(delegate, durability);
+            }
+        }
+    }
+
+    @Override
+    public void delete(Collection<K> keys) {
+        for (K key : keys) {
+            write(key, new Write<>(null, true));
+        }
+    }
+
+    @Override
+    public void scan(K from, K to, BiConsumer<K, V> consumer) {
+        flush();
+        delegate.scan(from, to, consumer);
+    }
+
+    @Override
+    public void prefixScan(byte[] prefix, BiConsumer<K, V> consumer) {
+        flush();
+        delegate.prefixScan(prefix, consumer);
+    }
+
+    @Override
+    public Stream<K> keys() {
+        flush();
+        return delegate.keys();
+    }
+
+    @Override
+    public Stream<V> values() {
+        flush();
+        return delegate.values();
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> entries() {
+        flush();
+        return delegate.entries();
+    }
+
+    @Override
+    public void consumeKey(Consumer<K> consumer) {
+        flush();
+        delegate.consumeKey(consumer);
+    }
+
+    @Override
+    public void consumeParallel(BiConsumer<K, V> consumer, int parallelism) {
+        flush();
+        delegate.consumeParallel(consumer, parallelism);
+    }
+
+    @Override
+    public void consumeValue(Consumer<V> consumer) {
+        flush();
+        delegate.consumeValue(consumer);
+    }
+
+    @Override
+    public void consume(BiConsumer<K, V> consumer) {
+        flush();
+        delegate.consume(consumer);
+    }
+
+    /**
+     * 先把缓冲的写入刷新下去，snapshot才能看到调用之前的所有写入
+     */
+    @Override
+    public CacheSnapshot<K, V> snapshot() {
+        flush();
+        return delegate.snapshot();
+    }
+
+    /**
+     * 统计的是真正写入底层存储的批量写，缓冲区里面合并掉的写操作不在里面
+     */
+    @Override
+    public CacheStats stats() {
+        return delegate.stats();
+    }
+
+    /**
+     * 把缓冲区里面所有的数据同步写到底层存储
+     */
+    public void flush() {
+        for (Stripe<K, V> stripe : stripes) {
+            stripe.flush(delegate, Durability.DEFAULT);
+        }
+    }
+
+    /**
+     * @return 缓冲区里面还没有写入底层存储的key的个数
+     */
+    public long pending() {
+        long pending = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            pending += stripe.buffer.mappingCount();
+        }
+        return pending;
+    }
+
+    public Cache<K, V> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Timeout to wait write behind flusher to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        delegate.close();
+    }
+
+    private void write(K key, Write<V> write) {
+        Stripe<K, V> stripe = stripeFor(key);
+        stripe.buffer.put(key, write);
+        long size = stripe.buffer.mappingCount();
+        if (size >= batchSize * BACKPRESSURE_FACTOR) {
+            stripe.flush(delegate, Durability.DEFAULT);
+        } else if (size >= batchSize && scheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    scheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                //已经关闭了，close的时候会把剩下的数据刷进去
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            //失败的数据还留在缓冲区里面，下一次刷新的时候会再次尝试
+            log.error("Can not write behind to " + delegate, e);
+        }
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * 每次写入都是一个新的对象，刷新完以后按照引用删除，调用方重复put同一个修改过的对象也不会被误删
+     */
+    private static final class Write<V> {
+
+        private final V value;
+        private final boolean deleted;
+
+        Write(V value, boolean deleted) {
+            this.value = value;
+            this.deleted = deleted;
+        }
+    }
+
+    private static final class Stripe<K, V> {
+
+        private final ConcurrentHashMap<K, Write<V>> buffer = new ConcurrentHashMap<>();
+
+        /**
+         * 同一段的刷新必须是串行的，否则先拿到旧数据的线程可能后写入，把新数据覆盖掉
+         */
+        synchronized void flush(Cache<K, V> delegate, Durability durability) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            Map<K, Write<V>> flushing = new HashMap<>(buffer);
+            Map<K, V> puts = new HashMap<>(flushing.size() * 4 / 3 + 1);
+            List<K> deletes = new ArrayList<>();
+            for (Map.Entry<K, Write<V>> entry : flushing.entrySet()) {
+                if (entry.getValue().deleted) {
+                    deletes.add(entry.getKey());
+                } else {
+                    puts.put(entry.getKey(), entry.getValue().value);
+                }
+            }
+            if (!puts.isEmpty()) {
+                delegate.put(puts, durability);
+            }
+            if (!deletes.isEmpty()) {
+                delegate.delete(deletes);
+            }
+            //写入期间又被修改过的key留在缓冲区里面，等下一次刷新
+            for (Map.Entry<K, Write<V>> entry : flushing.entrySet()) {
+                buffer.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -8,5 +8,6 @@ public enum CacheType {
     LEVELDBJNI,
     LEVELDBJNA,
     EHCACHE_MEMORY,
-    ROCKSDB
+    ROCKSDB,
+    OFFHEAP
 }
@@ -25,6 +25,12 @@ public abstract class Configuration<K, V> implements CacheConfiguration<K, V> {
      */
     private Serializer<Object> defaultSerializer;
 
+    private long nearCacheSize = 0;
+    private int writeBehindBatchSize = 0;
+    private long writeBehindIntervalMillis = 100;
+    private long expirySweepIntervalMillis = 0;
+    private boolean metrics = false;
+
     public Configuration() {
         this.isAutoDetect = true;
         this.defaultSerializer = new FstJdkSerializer();
@@ -89,6 +95,60 @@ public abstract class Configuration<K, V> implements CacheConfiguration<K, V> {
         return this;
     }
 
+    /**
+     * 在持久化的cache前面加一层堆上的近端缓存(W-TinyLFU淘汰)，存放的是反序列化以后的对象，
+     * 热点数据的读取不再需要访问底层存储和反序列化，0表示不开启
+     *
+     * @param maximumSize 近端缓存最多存放的entry个数
+     * @return this
+     */
+    public Configuration<K, V> nearCache(long maximumSize) {
+        this.nearCacheSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * 开启异步写入，写操作先放进内存的缓冲区，同一个key的多次写只会落盘最后一次，
+     * 后台线程每隔flushIntervalMillis或者缓冲区攒够batchSize的时候批量写入底层存储，
+     * 进程异常退出的时候还没有写入的数据会丢失
+     *
+     * @param batchSize           缓冲区每一段攒够多少个key触发一次刷新，0表示不开启
+     * @param flushIntervalMillis 定时刷新的间隔
+     * @return this
+     */
+    public Configuration<K, V> writeBehind(int batchSize, long flushIntervalMillis) {
+        this.writeBehindBatchSize = batchSize;
+        this.writeBehindIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 开启单个entry的过期时间，之后可以通过put(key, value, ttl)写入会过期的数据，过期以后马上就读不到了，
+     * 后台线程每隔sweepIntervalMillis清理一次底层存储里面已经过期的数据
+     * <p>
+     * 注意：开启以后每个value前面都有过期时间的header，只能用于新的cache；目前只支持RocksDB和LevelDB，
+     * 需要指定key和value的类型或者序列化器，并且不能和近端缓存一起使用
+     *
+     * @param sweepIntervalMillis 清理的间隔，0表示不开启
+     * @return this
+     */
+    public Configuration<K, V> expiry(long sweepIntervalMillis) {
+        this.expirySweepIntervalMillis = sweepIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 开启统计，记录每一类操作的延迟分布、命中率、序列化以后的字节数，以及序列化和反序列化花费的时间，
+     * 通过Cache.stats()获取；不开启的时候没有任何开销
+     *
+     * @param metrics 是否开启
+     * @return this
+     */
+    public Configuration<K, V> metrics(boolean metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     @Override
     public Class<K> key() {
         return keyType;
@@ -118,4 +178,24 @@ public abstract class Configuration<K, V> implements CacheConfiguration<K, V> {
     public Serializer<Object> getDefaultSerializer() {
         return defaultSerializer;
     }
+
+    public long getNearCacheSize() {
+        return nearCacheSize;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public long getWriteBehindIntervalMillis() {
+        return writeBehindIntervalMillis;
+    }
+
+    public long getExpirySweepIntervalMillis() {
+        return expirySweepIntervalMillis;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
 }
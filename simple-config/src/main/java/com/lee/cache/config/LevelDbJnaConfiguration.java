@@ -9,6 +9,7 @@ public class LevelDbJnaConfiguration<K, V> extends Configuration<K, V> {
     private int writeBufferSize = 16 * 1024 * 1024;
     private boolean verifyChecksums = true;
     private int maxOpenFiles = 2000;
+    private boolean sync;
 
     public LevelDbJnaConfiguration() {
         super();
@@ -59,6 +60,30 @@ public class LevelDbJnaConfiguration<K, V> extends Configuration<K, V> {
         return this;
     }
 
+    @Override
+    public LevelDbJnaConfiguration<K, V> nearCache(long maximumSize) {
+        super.nearCache(maximumSize);
+        return this;
+    }
+
+    @Override
+    public LevelDbJnaConfiguration<K, V> metrics(boolean metrics) {
+        super.metrics(metrics);
+        return this;
+    }
+
+    @Override
+    public LevelDbJnaConfiguration<K, V> writeBehind(int batchSize, long flushIntervalMillis) {
+        super.writeBehind(batchSize, flushIntervalMillis);
+        return this;
+    }
+
+    @Override
+    public LevelDbJnaConfiguration<K, V> expiry(long sweepIntervalMillis) {
+        super.expiry(sweepIntervalMillis);
+        return this;
+    }
+
     public LevelDbJnaConfiguration<K, V> createdIfMissing(boolean isCreatedIfMissing) {
         this.isCreatedIfMissing = isCreatedIfMissing;
         return this;
@@ -84,6 +109,14 @@ public class LevelDbJnaConfiguration<K, V> extends Configuration<K, V> {
         return this;
     }
 
+    /**
+     * 每次写入都等待日志fsync以后再返回，LevelDB不能关闭WAL
+     */
+    public LevelDbJnaConfiguration<K, V> sync(boolean sync) {
+        this.sync = sync;
+        return this;
+    }
+
     public boolean isCreatedIfMissing() {
         return isCreatedIfMissing;
     }
@@ -103,4 +136,8 @@ public class LevelDbJnaConfiguration<K, V> extends Configuration<K, V> {
     public int getMaxOpenFiles() {
         return maxOpenFiles;
     }
+
+    public boolean isSync() {
+        return sync;
+    }
 }
@@ -12,6 +12,8 @@ public class LevelDbJniConfiguration<K, V> extends Configuration<K, V> {
     private int writeBufferSize = 16 * 1024 * 1024;
     private boolean verifyChecksums = true;
     private int maxOpenFiles = 2000;
+    private boolean sync;
+    private long memoryBudget;
 
     public LevelDbJniConfiguration() {
         super();
@@ -67,6 +69,30 @@ public class LevelDbJniConfiguration<K, V> extends Configuration<K, V> {
         return this;
     }
 
+    @Override
+    public LevelDbJniConfiguration<K, V> nearCache(long maximumSize) {
+        super.nearCache(maximumSize);
+        return this;
+    }
+
+    @Override
+    public LevelDbJniConfiguration<K, V> metrics(boolean metrics) {
+        super.metrics(metrics);
+        return this;
+    }
+
+    @Override
+    public LevelDbJniConfiguration<K, V> writeBehind(int batchSize, long flushIntervalMillis) {
+        super.writeBehind(batchSize, flushIntervalMillis);
+        return this;
+    }
+
+    @Override
+    public LevelDbJniConfiguration<K, V> expiry(long sweepIntervalMillis) {
+        super.expiry(sweepIntervalMillis);
+        return this;
+    }
+
     public LevelDbJniConfiguration<K, V> cacheSize(long cacheSize, Unit unit) {
         this.cacheSize = unit.toByte(cacheSize);
         return this;
@@ -87,6 +113,25 @@ public class LevelDbJniConfiguration<K, V> extends Configuration<K, V> {
         return this;
     }
 
+    /**
+     * 每次写入都等待日志fsync以后再返回，LevelDB不能关闭WAL
+     */
+    public LevelDbJniConfiguration<K, V> sync(boolean sync) {
+        this.sync = sync;
+        return this;
+    }
+
+    /**
+     * manager级别的block cache大小，manager里面所有的LevelDB共用一个这么大的block cache，0表示每个LevelDB按照cacheSize单独分配
+     * <p>
+     * 注意：LevelDB没有WriteBufferManager，memtable还是每个LevelDB按照writeBufferSize单独分配；
+     * 第一个配置了预算的cache创建以后生效，之后的cache都使用这个预算，不能修改
+     */
+    public LevelDbJniConfiguration<K, V> memoryBudget(long memoryBudget, Unit unit) {
+        this.memoryBudget = unit.toByte(memoryBudget);
+        return this;
+    }
+
     public boolean isCreatedIfMissing() {
         return isCreatedIfMissing;
     }
@@ -106,4 +151,12 @@ public class LevelDbJniConfiguration<K, V> extends Configuration<K, V> {
     public int getMaxOpenFiles() {
         return maxOpenFiles;
     }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
 }
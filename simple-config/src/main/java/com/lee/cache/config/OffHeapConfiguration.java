@@ -0,0 +1,87 @@
+package com.lee.cache.config;
+
+import com.lee.cache.serializer.Serializer;
+
+/**
+ * 堆外内存缓存的配置，maxBytes是所有segment加起来的堆外内存大小，concurrency是segment的个数，也就是锁的个数
+ *
+ * @author l46li
+ */
+public class OffHeapConfiguration<K, V> extends Configuration<K, V> {
+
+    private long maxBytes = 64 * 1024 * 1024L;
+    private int concurrency = 16;
+
+    public OffHeapConfiguration() {
+        super();
+    }
+
+    public OffHeapConfiguration(Class<K> keyType, Class<V> valueType) {
+        super(keyType, valueType);
+    }
+
+    @Override
+    public CacheType cache() {
+        return CacheType.OFFHEAP;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> name(String name) {
+        super.name(name);
+        return this;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> path(String cachePath) {
+        super.path(cachePath);
+        return this;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> serializerKey(Serializer<K> serializerKey) {
+        super.serializerKey(serializerKey);
+        return this;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> nearCache(long maximumSize) {
+        super.nearCache(maximumSize);
+        return this;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> metrics(boolean metrics) {
+        super.metrics(metrics);
+        return this;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> serializerValue(Serializer<V> serializerValue) {
+        super.serializerValue(serializerValue);
+        return this;
+    }
+
+    @Override
+    public OffHeapConfiguration<K, V> defaultSerializer(Serializer<Object> defaultSerializer) {
+        super.defaultSerializer(defaultSerializer);
+        return this;
+    }
+
+    public OffHeapConfiguration<K, V> maxBytes(long maxBytes, Unit unit) {
+        this.maxBytes = unit.toByte(maxBytes);
+        return this;
+    }
+
+    public OffHeapConfiguration<K, V> concurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+}
@@ -14,6 +14,39 @@ public class RocksDbConfiguration<K, V> extends Configuration<K, V> {
     private boolean verifyChecksums = true;
     private int timeToLiveSeconds;
     private int maxOpenFiles = 2000;
+    private int prefixLength;
+    private boolean groupCommit;
+    private boolean sync;
+    private boolean disableWal;
+    private boolean noSlowdown;
+    private boolean lowPri;
+    private boolean sharedDb;
+    private long memoryBudget;
+
+    private int level0FileNumCompactionTrigger = 4;
+    private int level0SlowdownWritesTrigger = 16;
+    private int level0StopWritesTrigger = 24;
+    private long maxBytesForLevelBase = 160 * 1024 * 1024L;
+    private double maxBytesForLevelMultiplier = 10;
+    private long targetFileSizeBase = 16 * 1024 * 1024L;
+    private int backgroundThreads = 4;
+    private int maxBackgroundJobs = 2;
+    private int maxSubcompactions = 1;
+    private Compression compression = Compression.SNAPPY;
+    private Compression bottommostCompression;
+    private Compression[] compressionPerLevel;
+    private int blockSize = 4 * 1024;
+    private IndexType indexType = IndexType.BINARY_SEARCH;
+    private boolean partitionFilters;
+    private int bloomBitsPerKey = 10;
+    private boolean optimizeFiltersForHits;
+    private boolean dataBlockHashIndex;
+    private CompactionStyle compactionStyle = CompactionStyle.LEVEL;
+    private int universalMaxSizeAmplificationPercent = 200;
+    private long fifoMaxTableFilesSize = 1024 * 1024 * 1024L;
+    private long fifoTtlSeconds;
+    private long counterFlushIntervalMillis;
+    private boolean statistics;
 
     public RocksDbConfiguration() {
         super();
@@ -58,6 +91,30 @@ public class RocksDbConfiguration<K, V> extends Configuration<K, V> {
         return this;
     }
 
+    @Override
+    public RocksDbConfiguration<K, V> nearCache(long maximumSize) {
+        super.nearCache(maximumSize);
+        return this;
+    }
+
+    @Override
+    public RocksDbConfiguration<K, V> metrics(boolean metrics) {
+        super.metrics(metrics);
+        return this;
+    }
+
+    @Override
+    public RocksDbConfiguration<K, V> writeBehind(int batchSize, long flushIntervalMillis) {
+        super.writeBehind(batchSize, flushIntervalMillis);
+        return this;
+    }
+
+    @Override
+    public RocksDbConfiguration<K, V> expiry(long sweepIntervalMillis) {
+        super.expiry(sweepIntervalMillis);
+        return this;
+    }
+
     public RocksDbConfiguration<K, V> createdIfMissing(boolean isCreatedIfMissing) {
         this.isCreatedIfMissing = isCreatedIfMissing;
         return this;
@@ -99,6 +156,254 @@ public class RocksDbConfiguration<K, V> extends Configuration<K, V> {
         return this;
     }
 
+    /**
+     * 配置prefix_extractor，取key的前prefixLength个字节作为前缀，前缀查询的时候可以使用prefix bloom过滤，0表示不配置
+     */
+    public RocksDbConfiguration<K, V> prefixLength(int prefixLength) {
+        this.prefixLength = prefixLength;
+        return this;
+    }
+
+    /**
+     * 开启组提交，并发的单条put和delete由一个leader线程合并成一个WriteBatch写入，减少JNI调用和WAL写入的次数，
+     * 每个线程仍然会等到自己的数据写入以后才返回，sync的语义不变
+     */
+    public RocksDbConfiguration<K, V> groupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+        return this;
+    }
+
+    /**
+     * 每次写入都等待WAL fsync以后再返回，适合不能丢数据的cache，写入的吞吐会下降很多，不能和disableWal同时开启
+     */
+    public RocksDbConfiguration<K, V> sync(boolean sync) {
+        this.sync = sync;
+        return this;
+    }
+
+    /**
+     * 不写WAL，进程崩溃的时候还没有flush的memtable会丢失，数据可以重建的纯缓存打开以后写入的吞吐可以提高2~3倍
+     */
+    public RocksDbConfiguration<K, V> disableWal(boolean disableWal) {
+        this.disableWal = disableWal;
+        return this;
+    }
+
+    /**
+     * 写入需要等待(write stall)的时候直接失败，而不是阻塞调用线程
+     */
+    public RocksDbConfiguration<K, V> noSlowdown(boolean noSlowdown) {
+        this.noSlowdown = noSlowdown;
+        return this;
+    }
+
+    /**
+     * 低优先级写入，compaction压力大的时候优先限制这些写入，适合后台导入数据
+     */
+    public RocksDbConfiguration<K, V> lowPri(boolean lowPri) {
+        this.lowPri = lowPri;
+        return this;
+    }
+
+    /**
+     * 同一个path下面的cache共用一个RocksDB，每个cache是其中的一个column family，共用block cache、memtable的内存上限和后台线程，
+     * 数据直接存放在path目录下面；默认关闭，每个cache单独一个RocksDB，存放在path/name下面
+     * <p>
+     * 注意：两种方式的数据目录不同，已经有数据的cache切换以后会拒绝打开，需要先迁移数据；
+     * 打开RocksDB的时候已经存在的其他column family按照它们创建时的配置打开，只有block大小和bloom filter按照第一个cache的配置，
+     * 设置了timeToLiveSeconds的cache总是单独一个RocksDB
+     */
+    public RocksDbConfiguration<K, V> sharedDb(boolean sharedDb) {
+        this.sharedDb = sharedDb;
+        return this;
+    }
+
+    /**
+     * manager级别的内存预算，manager里面所有的RocksDB共用一个这么大的block cache，memtable的内存也计入其中(最多占1/4)，
+     * 这样不管有多少个cache，native内存的总量都是固定的；0表示不限制，每个path按照cacheSize单独分配
+     * <p>
+     * 注意：第一个配置了预算的cache创建以后生效，之后的cache都使用这个预算，不能修改
+     */
+    public RocksDbConfiguration<K, V> memoryBudget(long memoryBudget, Unit unit) {
+        this.memoryBudget = unit.toByte(memoryBudget);
+        return this;
+    }
+
+    /**
+     * level0的文件个数达到compaction就开始往level1合并，达到slowdown开始限制写入速度，达到stop停止写入
+     */
+    public RocksDbConfiguration<K, V> level0Triggers(int compaction, int slowdown, int stop) {
+        this.level0FileNumCompactionTrigger = compaction;
+        this.level0SlowdownWritesTrigger = slowdown;
+        this.level0StopWritesTrigger = stop;
+        return this;
+    }
+
+    /**
+     * level1的总大小，建议和level0的大小差不多，也就是writeBufferSize * level0的compaction触发个数
+     */
+    public RocksDbConfiguration<K, V> maxBytesForLevelBase(long maxBytesForLevelBase, Unit unit) {
+        this.maxBytesForLevelBase = unit.toByte(maxBytesForLevelBase);
+        return this;
+    }
+
+    public RocksDbConfiguration<K, V> maxBytesForLevelMultiplier(double maxBytesForLevelMultiplier) {
+        this.maxBytesForLevelMultiplier = maxBytesForLevelMultiplier;
+        return this;
+    }
+
+    /**
+     * level1单个sst文件的大小，通常是maxBytesForLevelBase的1/10
+     */
+    public RocksDbConfiguration<K, V> targetFileSizeBase(long targetFileSizeBase, Unit unit) {
+        this.targetFileSizeBase = unit.toByte(targetFileSizeBase);
+        return this;
+    }
+
+    /**
+     * 默认Env的LOW优先级线程池的大小，它是整个进程共用的，取所有cache配置里面最大的那个
+     */
+    public RocksDbConfiguration<K, V> backgroundThreads(int backgroundThreads) {
+        this.backgroundThreads = backgroundThreads;
+        return this;
+    }
+
+    /**
+     * 一个RocksDB同时进行的flush和compaction的最大个数，多个cache共用一个RocksDB的时候按照第一个cache的配置
+     */
+    public RocksDbConfiguration<K, V> maxBackgroundJobs(int maxBackgroundJobs) {
+        this.maxBackgroundJobs = maxBackgroundJobs;
+        return this;
+    }
+
+    /**
+     * 把一次compaction拆成多个子任务并行执行，主要用来加快level0到level1的compaction
+     */
+    public RocksDbConfiguration<K, V> maxSubcompactions(int maxSubcompactions) {
+        this.maxSubcompactions = maxSubcompactions;
+        return this;
+    }
+
+    public RocksDbConfiguration<K, V> compression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * 最底层的压缩算法，90%的数据都在最底层，通常配置压缩率更高的ZSTD，上面的层使用更快的LZ4，不配置和其他层一样
+     */
+    public RocksDbConfiguration<K, V> bottommostCompression(Compression bottommostCompression) {
+        this.bottommostCompression = bottommostCompression;
+        return this;
+    }
+
+    /**
+     * 每一层单独指定压缩算法，个数和层数一致，配置以后compression不再生效
+     */
+    public RocksDbConfiguration<K, V> compressionPerLevel(Compression... compressionPerLevel) {
+        this.compressionPerLevel = compressionPerLevel;
+        return this;
+    }
+
+    /**
+     * sst文件里面block的大小，随机读取多的小一些，遍历多的大一些
+     */
+    public RocksDbConfiguration<K, V> blockSize(int blockSize, Unit unit) {
+        this.blockSize = unit.toByte(blockSize);
+        return this;
+    }
+
+    public RocksDbConfiguration<K, V> indexType(IndexType indexType) {
+        this.indexType = indexType;
+        return this;
+    }
+
+    /**
+     * filter也按照index一样分区，只有indexType是PARTITIONED的时候才生效，大的sst文件不需要把整个filter放进block cache
+     */
+    public RocksDbConfiguration<K, V> partitionFilters(boolean partitionFilters) {
+        this.partitionFilters = partitionFilters;
+        return this;
+    }
+
+    /**
+     * bloom filter每个key使用的bit数，10大概是1%的误判率，0表示不使用filter
+     */
+    public RocksDbConfiguration<K, V> bloomBitsPerKey(int bloomBitsPerKey) {
+        this.bloomBitsPerKey = bloomBitsPerKey;
+        return this;
+    }
+
+    /**
+     * 最底层不创建filter，查询的key基本都存在的时候可以省掉90%的filter内存
+     */
+    public RocksDbConfiguration<K, V> optimizeFiltersForHits(boolean optimizeFiltersForHits) {
+        this.optimizeFiltersForHits = optimizeFiltersForHits;
+        return this;
+    }
+
+    /**
+     * data block里面额外建立一个hash索引，点查不需要在block里面二分查找，对遍历没有影响
+     */
+    public RocksDbConfiguration<K, V> dataBlockHashIndex(boolean dataBlockHashIndex) {
+        this.dataBlockHashIndex = dataBlockHashIndex;
+        return this;
+    }
+
+    /**
+     * compaction的方式，默认LEVEL；写多读少的用UNIVERSAL，写放大更小；只写一次、按时间过期的用FIFO，基本没有写放大
+     */
+    public RocksDbConfiguration<K, V> compactionStyle(CompactionStyle compactionStyle) {
+        this.compactionStyle = compactionStyle;
+        return this;
+    }
+
+    /**
+     * UNIVERSAL的空间放大上限，除了最老的文件以外的数据超过最老的文件大小的这个百分比就进行一次全量的compaction
+     */
+    public RocksDbConfiguration<K, V> universalMaxSizeAmplificationPercent(int universalMaxSizeAmplificationPercent) {
+        this.universalMaxSizeAmplificationPercent = universalMaxSizeAmplificationPercent;
+        return this;
+    }
+
+    /**
+     * FIFO所有sst文件的总大小上限，超过以后从最老的文件开始直接删除
+     */
+    public RocksDbConfiguration<K, V> fifoMaxTableFilesSize(long fifoMaxTableFilesSize, Unit unit) {
+        this.fifoMaxTableFilesSize = unit.toByte(fifoMaxTableFilesSize);
+        return this;
+    }
+
+    /**
+     * FIFO的sst文件里面最新的数据超过这个时间以后整个文件直接删除，0表示只按照大小删除，
+     * 和timeToLiveSeconds不一样，它不需要TtlDB，可以和其他cache共用一个RocksDB
+     * <p>
+     * 注意：RocksDB要求maxOpenFiles是-1才能使用
+     */
+    public RocksDbConfiguration<K, V> fifoTtlSeconds(long fifoTtlSeconds) {
+        this.fifoTtlSeconds = fifoTtlSeconds;
+        return this;
+    }
+
+    /**
+     * 只对计数器生效，increment先在内存里面累加，每隔这么久合并写入一次，0表示每次increment都直接写入RocksDB
+     */
+    public RocksDbConfiguration<K, V> counterFlushIntervalMillis(long counterFlushIntervalMillis) {
+        this.counterFlushIntervalMillis = counterFlushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 给RocksDB挂上Statistics，统计block cache和bloom filter的命中、memtable命中、写停顿和compaction的字节数，
+     * 通过Cache.stats()的RocksDbStats获取；不统计耗时比较大的计时器，开销在百分之几左右
+     * <p>
+     * 共用RocksDB的时候由第一个打开它的cache决定，统计的是整个RocksDB
+     */
+    public RocksDbConfiguration<K, V> statistics(boolean statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+
     public boolean isCreatedIfMissing() {
         return isCreatedIfMissing;
     }
@@ -126,4 +431,157 @@ public class RocksDbConfiguration<K, V> extends Configuration<K, V> {
     public int getTimeToLiveSeconds() {
         return timeToLiveSeconds;
     }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    public boolean isDisableWal() {
+        return disableWal;
+    }
+
+    public boolean isNoSlowdown() {
+        return noSlowdown;
+    }
+
+    public boolean isLowPri() {
+        return lowPri;
+    }
+
+    public boolean isSharedDb() {
+        return sharedDb;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public int getLevel0FileNumCompactionTrigger() {
+        return level0FileNumCompactionTrigger;
+    }
+
+    public int getLevel0SlowdownWritesTrigger() {
+        return level0SlowdownWritesTrigger;
+    }
+
+    public int getLevel0StopWritesTrigger() {
+        return level0StopWritesTrigger;
+    }
+
+    public long getMaxBytesForLevelBase() {
+        return maxBytesForLevelBase;
+    }
+
+    public double getMaxBytesForLevelMultiplier() {
+        return maxBytesForLevelMultiplier;
+    }
+
+    public long getTargetFileSizeBase() {
+        return targetFileSizeBase;
+    }
+
+    public int getBackgroundThreads() {
+        return backgroundThreads;
+    }
+
+    public int getMaxBackgroundJobs() {
+        return maxBackgroundJobs;
+    }
+
+    public int getMaxSubcompactions() {
+        return maxSubcompactions;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Compression getBottommostCompression() {
+        return bottommostCompression;
+    }
+
+    public Compression[] getCompressionPerLevel() {
+        return compressionPerLevel;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    public boolean isPartitionFilters() {
+        return partitionFilters;
+    }
+
+    public int getBloomBitsPerKey() {
+        return bloomBitsPerKey;
+    }
+
+    public boolean isOptimizeFiltersForHits() {
+        return optimizeFiltersForHits;
+    }
+
+    public boolean isDataBlockHashIndex() {
+        return dataBlockHashIndex;
+    }
+
+    public CompactionStyle getCompactionStyle() {
+        return compactionStyle;
+    }
+
+    public int getUniversalMaxSizeAmplificationPercent() {
+        return universalMaxSizeAmplificationPercent;
+    }
+
+    public long getFifoMaxTableFilesSize() {
+        return fifoMaxTableFilesSize;
+    }
+
+    public long getFifoTtlSeconds() {
+        return fifoTtlSeconds;
+    }
+
+    public long getCounterFlushIntervalMillis() {
+        return counterFlushIntervalMillis;
+    }
+
+    public boolean isStatistics() {
+        return statistics;
+    }
+
+    public enum Compression {
+        /**
+         * sst文件的压缩算法，LZ4最快，ZSTD压缩率最高
+         */
+        NONE, SNAPPY, LZ4, ZSTD
+    }
+
+    public enum IndexType {
+        /**
+         * BINARY_SEARCH: 默认的二分查找索引
+         * HASH_SEARCH: 按照前缀建立hash索引，必须配置prefixLength，没有配置的时候打开cache会抛出CacheException
+         * PARTITIONED: 两级分区索引，大的sst文件只需要把顶层索引常驻在block cache里面
+         */
+        BINARY_SEARCH, HASH_SEARCH, PARTITIONED
+    }
+
+    public enum CompactionStyle {
+        /**
+         * LEVEL: 分层compaction，读和空间放大最小，写放大大概10倍
+         * UNIVERSAL: 按照时间顺序合并相邻的sst文件，写放大小，空间放大大
+         * FIFO: 不做compaction，按照大小或者时间删除最老的sst文件，只适合会过期的数据
+         */
+        LEVEL, UNIVERSAL, FIFO
+    }
 }
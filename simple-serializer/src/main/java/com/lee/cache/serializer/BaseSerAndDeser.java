@@ -1,7 +1,21 @@
 package com.lee.cache.serializer;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public abstract class BaseSerAndDeser<S> implements Serializer<S> {
 
+    /**
+     * direct buffer没有办法直接拿到byte[]，所以先拷贝到这个线程私有的数组里面，然后在反序列化，避免每次都去创建byte[]
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    /**
+     * 和DirectBuffers一样，超过这个大小的临时数组只用这一次，不会留在线程里面，
+     * 否则偶尔读一个很大的value，这个线程就会一直占着这么大的堆内存
+     */
+    static final int RETAIN_SCRATCH_SIZE = 1024 * 1024;
+
     private Class<S> clazz;
 
     public BaseSerAndDeser() {
@@ -25,4 +39,46 @@ public abstract class BaseSerAndDeser<S> implements Serializer<S> {
     public S deserialize(byte[] bytes) {
         return null;
     }
+
+    /**
+     * 和接口的默认实现不同，direct buffer会先拷贝到线程私有的数组里面，不用每次都创建byte[]
+     */
+    @Override
+    public S deserialize(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        S value;
+        if (buffer.hasArray()) {
+            value = deserialize(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            byte[] scratch = scratch(length);
+            buffer.duplicate().get(scratch, 0, length);
+            value = deserialize(scratch, 0, length);
+        }
+        buffer.position(buffer.limit());
+        return value;
+    }
+
+    /**
+     * 从bytes的offset开始反序列化length个字节，默认实现会拷贝一份，子类如果可以直接基于offset反序列化，那么覆盖该方法
+     * <p>
+     * 注意: bytes可能是线程私有的临时数组，反序列化以后的对象不能够引用该数组
+     */
+    protected S deserialize(byte[] bytes, int offset, int length) {
+        if (offset == 0 && length == bytes.length) {
+            return deserialize(bytes);
+        }
+        return deserialize(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    protected static byte[] scratch(int size) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < size) {
+            if (size > RETAIN_SCRATCH_SIZE) {
+                return new byte[size];
+            }
+            scratch = new byte[Math.min(Math.max(size, scratch.length << 1), RETAIN_SCRATCH_SIZE)];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
 }
@@ -0,0 +1,26 @@
+package com.lee.cache.serializer;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 把ByteBuffer包装成OutputStream，给只支持OutputStream的序列化工具使用，写入的数据直接进入ByteBuffer
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer buffer;
+
+    public ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        buffer.put(bytes, offset, length);
+    }
+}
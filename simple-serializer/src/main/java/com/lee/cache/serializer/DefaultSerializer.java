@@ -1,9 +1,14 @@
 package com.lee.cache.serializer;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * 基本数据类型的序列化器，全部使用大端编码(和之前基于ByteBuffer的编码完全一致，已经存储的数据可以继续读取)
+ * <p>
+ * serialize(S) 每次都返回一个新的数组，调用者可以放心的把它交给WriteBatch之类会持有引用的地方，
+ * 如果不想创建数组，那么使用serialize(S, ByteBuffer)写入到调用者自己的buffer里面；
+ * 反序列化直接在数组上面通过移位来解码，不会创建任何中间对象
+ */
 public class DefaultSerializer {
 
     public static final Serializer<Long> LONG_SERIALIZER = new LongSerializer();
@@ -15,44 +20,42 @@ public class DefaultSerializer {
     public static final Serializer<Integer> INTEGER_SERIALIZER = new IntegerSerializer();
     public static final Serializer<Boolean> BOOLEAN_SERIALIZER = new BooleanSerializer();
 
-//    public static void main(String[] args) {
-//        IntegerSerializer2 integerSerializer2 = new IntegerSerializer2();
-//
-//        StopWatch stopWatch = new StopWatch();
-//        for (int j = 0; j < 10; j++) {
-//            stopWatch.reset();
-//            stopWatch.start();
-//            for (int i = 0; i < 100000000; i++) {
-//                byte[] serialize = INTEGER_SERIALIZER.serialize(i);
-//                INTEGER_SERIALIZER.deserialize(serialize);
-//            }
-//            for (int i = 0; i < 100000000; i++) {
-//                byte[] serialize = integerSerializer2.serialize(i);
-//                integerSerializer2.deserialize(serialize);
-//            }
-//            stopWatch.stop();
-//            System.out.println("Cost : " + stopWatch.formatTime());
-//        }
-//    }
+    /**
+     * 符号位取反的编码，负数的key也可以按照数值顺序排列，和LONG_SERIALIZER的编码不兼容，只能够用于新的Cache
+     */
+    public static final Serializer<Long> SORTABLE_LONG_SERIALIZER = new SortableLongSerializer();
+    public static final Serializer<Integer> SORTABLE_INTEGER_SERIALIZER = new SortableIntegerSerializer();
 
     private static class LongSerializer extends BaseSerAndDeser<Long> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Long value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(8);
-            byteBuffer.clear();
-            byteBuffer.putLong(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[8];
+            PrimitiveCodec.putLong(bytes, 0, value);
+            return bytes;
         }
 
         @Override
         public Long deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.getLong();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Long deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getLong(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Long value, ByteBuffer buffer) {
+            buffer.putLong(value);
+            return 8;
+        }
+
+        @Override
+        public Long deserialize(ByteBuffer buffer) {
+            long value = buffer.getLong();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -63,22 +66,34 @@ public class DefaultSerializer {
 
     private static class DoubleSerializer extends BaseSerAndDeser<Double> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Double value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(8);
-            byteBuffer.clear();
-            byteBuffer.putDouble(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[8];
+            PrimitiveCodec.putDouble(bytes, 0, value);
+            return bytes;
         }
 
         @Override
         public Double deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.getDouble();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Double deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getDouble(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Double value, ByteBuffer buffer) {
+            buffer.putDouble(value);
+            return 8;
+        }
+
+        @Override
+        public Double deserialize(ByteBuffer buffer) {
+            double value = buffer.getDouble();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -89,22 +104,34 @@ public class DefaultSerializer {
 
     private static class FloatSerializer extends BaseSerAndDeser<Float> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Float value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(4);
-            byteBuffer.clear();
-            byteBuffer.putFloat(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[4];
+            PrimitiveCodec.putFloat(bytes, 0, value);
+            return bytes;
         }
 
         @Override
         public Float deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.getFloat();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Float deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getFloat(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Float value, ByteBuffer buffer) {
+            buffer.putFloat(value);
+            return 4;
+        }
+
+        @Override
+        public Float deserialize(ByteBuffer buffer) {
+            float value = buffer.getFloat();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -115,22 +142,34 @@ public class DefaultSerializer {
 
     private static class CharacterSerializer extends BaseSerAndDeser<Character> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Character value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(2);
-            byteBuffer.clear();
-            byteBuffer.putChar(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[2];
+            PrimitiveCodec.putChar(bytes, 0, value);
+            return bytes;
         }
 
         @Override
         public Character deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.getChar();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Character deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getChar(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Character value, ByteBuffer buffer) {
+            buffer.putChar(value);
+            return 2;
+        }
+
+        @Override
+        public Character deserialize(ByteBuffer buffer) {
+            char value = buffer.getChar();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -141,22 +180,34 @@ public class DefaultSerializer {
 
     private static class ShortSerializer extends BaseSerAndDeser<Short> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Short value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(2);
-            byteBuffer.clear();
-            byteBuffer.putShort(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[2];
+            PrimitiveCodec.putShort(bytes, 0, value);
+            return bytes;
         }
 
         @Override
         public Short deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.getShort();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Short deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getShort(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Short value, ByteBuffer buffer) {
+            buffer.putShort(value);
+            return 2;
+        }
+
+        @Override
+        public Short deserialize(ByteBuffer buffer) {
+            short value = buffer.getShort();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -167,22 +218,34 @@ public class DefaultSerializer {
 
     private static class ByteSerializer extends BaseSerAndDeser<Byte> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Byte value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(1);
-            byteBuffer.clear();
-            byteBuffer.put(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[1];
+            bytes[0] = value;
+            return bytes;
         }
 
         @Override
         public Byte deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.get();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Byte deserialize(byte[] bytes, int offset, int length) {
+            return bytes[offset];
+        }
+
+        @Override
+        public int serialize(Byte value, ByteBuffer buffer) {
+            buffer.put(value);
+            return 1;
+        }
+
+        @Override
+        public Byte deserialize(ByteBuffer buffer) {
+            byte value = buffer.get();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -193,22 +256,34 @@ public class DefaultSerializer {
 
     private static class IntegerSerializer extends BaseSerAndDeser<Integer> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Integer value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(4);
-            byteBuffer.clear();
-            byteBuffer.putInt(value);
-            return byteBuffer.array();
+            byte[] bytes = new byte[4];
+            PrimitiveCodec.putInt(bytes, 0, value);
+            return bytes;
         }
 
         @Override
         public Integer deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            byteBuffer.flip();
-            return byteBuffer.getInt();
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Integer deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getInt(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value);
+            return 4;
+        }
+
+        @Override
+        public Integer deserialize(ByteBuffer buffer) {
+            int value = buffer.getInt();
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -219,23 +294,34 @@ public class DefaultSerializer {
 
     private static class BooleanSerializer extends BaseSerAndDeser<Boolean> {
 
-        private final ThreadLocal<Pool> pools = ThreadLocal.withInitial(RingBufferPool::new);
-
         @Override
         public byte[] serialize(Boolean value) {
-            ByteBuffer byteBuffer = pools.get().getByteWithSize(1);
-            byteBuffer.clear();
-            byteBuffer.put(value ? (byte) 1 : 0);
-            return byteBuffer.array();
+            byte[] bytes = new byte[1];
+            bytes[0] = value ? (byte) 1 : 0;
+            return bytes;
         }
 
         @Override
         public Boolean deserialize(byte[] bytes) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-            byteBuffer.put(bytes);
-            //向ByteBuffer里面写入了数据以后，那么必须要flip以后，才可以进行读取操作
-            byteBuffer.flip();
-            return byteBuffer.get() == 1 ? Boolean.TRUE : Boolean.FALSE;
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Boolean deserialize(byte[] bytes, int offset, int length) {
+            return bytes[offset] == 1 ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        public int serialize(Boolean value, ByteBuffer buffer) {
+            buffer.put(value ? (byte) 1 : 0);
+            return 1;
+        }
+
+        @Override
+        public Boolean deserialize(ByteBuffer buffer) {
+            Boolean value = buffer.get() == 1 ? Boolean.TRUE : Boolean.FALSE;
+            buffer.position(buffer.limit());
+            return value;
         }
 
         @Override
@@ -244,61 +330,79 @@ public class DefaultSerializer {
         }
     }
 
-    interface Pool {
-        ByteBuffer getByteWithSize(int byteSize);
+    private static class SortableLongSerializer extends BaseSerAndDeser<Long> {
+
+        @Override
+        public byte[] serialize(Long value) {
+            byte[] bytes = new byte[8];
+            PrimitiveCodec.putLongSortable(bytes, 0, value);
+            return bytes;
+        }
+
+        @Override
+        public Long deserialize(byte[] bytes) {
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Long deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getLongSortable(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Long value, ByteBuffer buffer) {
+            buffer.putLong(value ^ Long.MIN_VALUE);
+            return 8;
+        }
+
+        @Override
+        public Long deserialize(ByteBuffer buffer) {
+            long value = buffer.getLong() ^ Long.MIN_VALUE;
+            buffer.position(buffer.limit());
+            return value;
+        }
+
+        @Override
+        public Class<Long> getType() {
+            return Long.class;
+        }
     }
 
-    /**
-     * 为了不让每次都去创建byte[]数组，那么就把已经创建的byte[]先缓存上，然后采用RingBuffer的模式去重复使用
-     * 一般的使用方式都是序列化以后，先处理，然后在继续序列化
-     * <p>
-     * 8 bytes  * 1024   ~= 8K
-     * 4 bytes  * 1024   ~= 4K
-     * <p>
-     * 2bytes * 1024     ~= 2K
-     * 1bytes * 1024    = 1K
-     * <p>
-     * 上面是单线程最多占用这么多的空间，如果是多个线程，那么在乘上线程数量
-     * <p>
-     * 该对象实际上主要是给ThreadLocal使用的，也就是为了不加锁，那么每个线程都有自己的缓存
-     * <p>
-     * 根据实际测试结果来看，该优化效率没有比直接基于现有的ByteBuffer包装一下，效率高多少，而且都是在可以接受的范围之内
-     * 不外乎会频繁的创建了很多的ByteBuffer，一次mingc 就可以回收空间，所以这个地方为了简单也可以不使用该缓存
-     */
-    private static class RingBufferPool implements Pool {
-        private static final int MAX_CACHE_SIZE = 1024;
-        private int index = -1;
-        private boolean isUsedCache = false;
-
-        private final List<ByteBuffer> cached = new ArrayList<>(MAX_CACHE_SIZE);
-
-        /**
-         * 指定该基本数据类型需要占用的空间，比如
-         * long ---8bytes  int ---4bytes char --2bytes short ---2bytes boolean ---1byte byte --1byte double --8bytes
-         * float --4bytes
-         *
-         * @param byteSize 指定基本数据类型需要占用的bytes数
-         * @return 返回缓存的bytes数组，如果不存在，就创建
-         */
-        @Override
-        public ByteBuffer getByteWithSize(int byteSize) {
-            index += 1;
-            if (isUsedCache) {
-                if (index >= MAX_CACHE_SIZE) {
-                    index = 0;
-                }
-                return cached.get(index);
-            } else {
-                if (index >= MAX_CACHE_SIZE) {
-                    index = 0;
-                    isUsedCache = true;
-                    return cached.get(index);
-                } else {
-                    ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[byteSize]);
-                    cached.add(byteBuffer);
-                    return byteBuffer;
-                }
-            }
+    private static class SortableIntegerSerializer extends BaseSerAndDeser<Integer> {
+
+        @Override
+        public byte[] serialize(Integer value) {
+            byte[] bytes = new byte[4];
+            PrimitiveCodec.putIntSortable(bytes, 0, value);
+            return bytes;
+        }
+
+        @Override
+        public Integer deserialize(byte[] bytes) {
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Integer deserialize(byte[] bytes, int offset, int length) {
+            return PrimitiveCodec.getIntSortable(bytes, offset);
+        }
+
+        @Override
+        public int serialize(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value ^ Integer.MIN_VALUE);
+            return 4;
+        }
+
+        @Override
+        public Integer deserialize(ByteBuffer buffer) {
+            int value = buffer.getInt() ^ Integer.MIN_VALUE;
+            buffer.position(buffer.limit());
+            return value;
+        }
+
+        @Override
+        public Class<Integer> getType() {
+            return Integer.class;
         }
     }
 }
@@ -0,0 +1,118 @@
+package com.lee.cache.serializer;
+
+/**
+ * 基本数据类型和字节数组之间的编解码，全部按照大端(big-endian)的方式，直接在调用者提供的数组上面通过移位来读写，
+ * 不会创建任何中间对象
+ * <p>
+ * 大端编码保证了非负数在RocksDB/LevelDB里面按照字节序排序的结果和数值的大小顺序是一致的，
+ * 如果key里面有负数，那么使用 *Sortable 方法，它会把符号位取反，这样负数会排在正数前面
+ */
+public final class PrimitiveCodec {
+
+    private static final long LONG_SIGN_BIT = Long.MIN_VALUE;
+    private static final int INT_SIGN_BIT = Integer.MIN_VALUE;
+
+    private PrimitiveCodec() {
+    }
+
+    public static void putLong(byte[] bytes, int offset, long value) {
+        bytes[offset] = (byte) (value >>> 56);
+        bytes[offset + 1] = (byte) (value >>> 48);
+        bytes[offset + 2] = (byte) (value >>> 40);
+        bytes[offset + 3] = (byte) (value >>> 32);
+        bytes[offset + 4] = (byte) (value >>> 24);
+        bytes[offset + 5] = (byte) (value >>> 16);
+        bytes[offset + 6] = (byte) (value >>> 8);
+        bytes[offset + 7] = (byte) value;
+    }
+
+    public static long getLong(byte[] bytes, int offset) {
+        return ((long) bytes[offset] << 56)
+                | ((long) (bytes[offset + 1] & 0xFF) << 48)
+                | ((long) (bytes[offset + 2] & 0xFF) << 40)
+                | ((long) (bytes[offset + 3] & 0xFF) << 32)
+                | ((long) (bytes[offset + 4] & 0xFF) << 24)
+                | ((long) (bytes[offset + 5] & 0xFF) << 16)
+                | ((long) (bytes[offset + 6] & 0xFF) << 8)
+                | ((long) (bytes[offset + 7] & 0xFF));
+    }
+
+    public static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    public static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] << 24)
+                | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8)
+                | (bytes[offset + 3] & 0xFF);
+    }
+
+    public static void putShort(byte[] bytes, int offset, short value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    public static short getShort(byte[] bytes, int offset) {
+        return (short) ((bytes[offset] << 8) | (bytes[offset + 1] & 0xFF));
+    }
+
+    public static void putChar(byte[] bytes, int offset, char value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    public static char getChar(byte[] bytes, int offset) {
+        return (char) (((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF));
+    }
+
+    public static void putDouble(byte[] bytes, int offset, double value) {
+        putLong(bytes, offset, Double.doubleToRawLongBits(value));
+    }
+
+    public static double getDouble(byte[] bytes, int offset) {
+        return Double.longBitsToDouble(getLong(bytes, offset));
+    }
+
+    public static void putFloat(byte[] bytes, int offset, float value) {
+        putInt(bytes, offset, Float.floatToRawIntBits(value));
+    }
+
+    public static float getFloat(byte[] bytes, int offset) {
+        return Float.intBitsToFloat(getInt(bytes, offset));
+    }
+
+    /**
+     * 符号位取反以后在按照大端编码，这样所有的long值(包括负数)字节序和数值顺序都一致
+     */
+    public static void putLongSortable(byte[] bytes, int offset, long value) {
+        putLong(bytes, offset, value ^ LONG_SIGN_BIT);
+    }
+
+    public static long getLongSortable(byte[] bytes, int offset) {
+        return getLong(bytes, offset) ^ LONG_SIGN_BIT;
+    }
+
+    public static void putIntSortable(byte[] bytes, int offset, int value) {
+        putInt(bytes, offset, value ^ INT_SIGN_BIT);
+    }
+
+    public static int getIntSortable(byte[] bytes, int offset) {
+        return getInt(bytes, offset) ^ INT_SIGN_BIT;
+    }
+
+    public static byte[] toBytes(long value) {
+        byte[] bytes = new byte[Long.BYTES];
+        putLong(bytes, 0, value);
+        return bytes;
+    }
+
+    public static byte[] toBytes(int value) {
+        byte[] bytes = new byte[Integer.BYTES];
+        putInt(bytes, 0, value);
+        return bytes;
+    }
+}
@@ -1,10 +1,11 @@
 package com.lee.cache.serializer;
 
+import java.nio.ByteBuffer;
+
 public interface Serializer<S> {
 
     /**
-     * 对于基本数据类型而言，为了减少byte[] 数组的创建，当前的byte[] 数组会复用，也就是序列化好的byte[] 数组需要先使用了，然后在
-     * 继续调用
+     * 返回的byte[] 归调用者所有，序列化器不会再复用它，所以可以直接交给WriteBatch等会持有引用的地方
      *
      * @param key key to serizlize
      * @return byte[]
@@ -13,5 +14,37 @@ public interface Serializer<S> {
 
     S deserialize(byte[] bytes);
 
+    /**
+     * 直接序列化到指定的buffer里面去，从buffer当前的position开始写，写完以后position移动到写入数据的末尾，
+     * buffer可以是direct buffer，这样就不需要再创建一个中间的byte[]
+     * <p>
+     * 如果buffer剩余的空间不够，那么抛出BufferOverflowException，并且不会写入任何数据，调用者可以扩容以后重新调用
+     * <p>
+     * 默认实现先序列化成byte[]再拷贝到buffer里面，只实现了byte[]接口的序列化器也可以直接使用
+     *
+     * @param key    需要序列化的对象
+     * @param buffer 目标buffer
+     * @return 写入的字节数
+     */
+    default int serialize(S key, ByteBuffer buffer) {
+        byte[] bytes = serialize(key);
+        buffer.put(bytes);
+        return bytes.length;
+    }
+
+    /**
+     * 从buffer的position到limit之间反序列化，完成以后position移动到limit
+     * <p>
+     * 默认实现把剩余的数据拷贝成byte[]，然后交给byte[]接口反序列化
+     *
+     * @param buffer 需要反序列化的buffer，可以是direct buffer
+     * @return 反序列化以后的对象
+     */
+    default S deserialize(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return deserialize(bytes);
+    }
+
     Class<S> getType();
 }
@@ -7,6 +7,8 @@ import org.nustaq.serialization.FSTConfiguration;
 import org.nustaq.serialization.FSTObjectInput;
 import org.nustaq.serialization.FSTObjectOutput;
 
+import java.nio.ByteBuffer;
+
 /**
  * 它应该算是最好的序列化工具了，兼用JDK的时候可以序列化任何信息对象，如果我们在序列化的时候有一定的要求的
  * 比如不用事先知道需要序列化的类的信息，而且只要是集成了Serializable或者Externalizable就可以序列化
@@ -35,12 +37,40 @@ public class FstJdkSerializer extends BaseSerAndDeser<Object> {
 
     @Override
     public Object deserialize(byte[] bytes) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    protected Object deserialize(byte[] bytes, int offset, int length) {
         FSTObjectInput objectInput = OBJECTINPUT.get();
         try {
-            objectInput.resetForReuseUseArray(bytes);
+            if (offset == 0) {
+                objectInput.resetForReuseUseArray(bytes, length);
+            } else {
+                byte[] scratch = scratch(length);
+                System.arraycopy(bytes, offset, scratch, 0, length);
+                objectInput.resetForReuseUseArray(scratch, length);
+            }
             return objectInput.readObject();
         } catch (Exception e) {
             throw new SerializerException("Can not deserialize from bytes with " + CONFIGURATION, e);
         }
     }
+
+    /**
+     * 直接使用FSTObjectOutput内部的buffer，避免getCopyOfWrittenBuffer()的数组分配
+     */
+    @Override
+    public int serialize(Object object, ByteBuffer buffer) {
+        FSTObjectOutput objectOutput = OBJECTOUTPUT.get();
+        try {
+            objectOutput.resetForReUse();
+            objectOutput.writeObject(object);
+        } catch (Exception e) {
+            throw new SerializerException("Can not serialize object " + object, e);
+        }
+        int length = objectOutput.getWritten();
+        buffer.put(objectOutput.getBuffer(), 0, length);
+        return length;
+    }
 }
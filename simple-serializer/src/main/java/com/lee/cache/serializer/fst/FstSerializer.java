@@ -5,6 +5,8 @@ import com.lee.cache.serializer.BaseSerAndDeser;
 import lombok.extern.slf4j.Slf4j;
 import org.nustaq.serialization.*;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author l46li
  */
@@ -61,14 +63,45 @@ public class FstSerializer<S> extends BaseSerAndDeser<S> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public S deserialize(byte[] bytes) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    /**
+     * FSTObjectInput只能够从数组的开头读取，所以offset不为0的时候先拷贝到线程私有的临时数组里面
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected S deserialize(byte[] bytes, int offset, int length) {
         FSTObjectInput objectInput = this.objectInput.get();
         try {
-            objectInput.resetForReuseUseArray(bytes);
+            if (offset == 0) {
+                objectInput.resetForReuseUseArray(bytes, length);
+            } else {
+                byte[] scratch = scratch(length);
+                System.arraycopy(bytes, offset, scratch, 0, length);
+                objectInput.resetForReuseUseArray(scratch, length);
+            }
             return (S) objectInput.readObject();
         } catch (Exception e) {
             throw new SerializerException("Can not deserialize from bytes with " + CONFUNSHAREDUNREGISTERED, e);
         }
     }
+
+    /**
+     * getCopyOfWrittenBuffer()每次都会拷贝出一个新的byte[]，这里直接把内部的buffer拷贝到目标buffer里面
+     */
+    @Override
+    public int serialize(S key, ByteBuffer buffer) {
+        FSTObjectOutput objectOutput = this.objectOutput.get();
+        try {
+            objectOutput.resetForReUse();
+            objectOutput.writeObject(key);
+        } catch (Exception e) {
+            throw new SerializerException("Can not serialize object " + key, e);
+        }
+        int length = objectOutput.getWritten();
+        buffer.put(objectOutput.getBuffer(), 0, length);
+        return length;
+    }
 }
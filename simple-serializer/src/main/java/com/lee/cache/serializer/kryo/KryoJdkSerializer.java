@@ -10,6 +10,8 @@ import com.lee.cache.serializer.BaseSerAndDeser;
 import lombok.extern.slf4j.Slf4j;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 
+import java.nio.ByteBuffer;
+
 /**
  * 因为在写得时候已经把所有的类的信息都一起写入了，所以不需要在为它提供任何的类型相关的信息，它能够很好的反序列化
  * 但是这个kryo不能够序列化瞬态字段，所以这个也是需要考虑的，如果我们有瞬态字段需要序列化的时候
@@ -64,10 +66,15 @@ public class KryoJdkSerializer extends BaseSerAndDeser<Object> {
 
     @Override
     public Object deserialize(byte[] bytes) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    protected Object deserialize(byte[] bytes, int offset, int length) {
         Kryo kryo = KRYO.get();
         Input input = INPUT.get();
         try {
-            input.setBuffer(bytes);
+            input.setBuffer(bytes, offset, length);
             return kryo.readClassAndObject(input);
         } catch (Exception e) {
             throw new SerializerException("Can not deserialize from bytes with kryo " + kryo, e);
@@ -75,4 +82,26 @@ public class KryoJdkSerializer extends BaseSerAndDeser<Object> {
             input.setBuffer(EMPTY);
         }
     }
+
+    /**
+     * 和KryoSerializer一样，复用线程私有的Output，最后只做一次拷贝
+     */
+    @Override
+    public int serialize(Object obj, ByteBuffer buffer) {
+        Kryo kryo = KRYO.get();
+        Output output = OUTPUT.get();
+        try {
+            try {
+                kryo.writeClassAndObject(output, obj);
+                output.flush();
+            } catch (Exception e) {
+                throw new SerializerException("Can not serialize object : " + obj, e);
+            }
+            int length = output.position();
+            buffer.put(output.getBuffer(), 0, length);
+            return length;
+        } finally {
+            output.reset();
+        }
+    }
 }
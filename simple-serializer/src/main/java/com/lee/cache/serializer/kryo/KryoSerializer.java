@@ -8,6 +8,8 @@ import com.lee.cache.serializer.BaseSerAndDeser;
 import lombok.extern.slf4j.Slf4j;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author l46li
  */
@@ -72,12 +74,17 @@ public class KryoSerializer<S> extends BaseSerAndDeser<S> {
      * @return 需要的泛型对象
      */
     @Override
-    @SuppressWarnings("unchecked")
     public S deserialize(byte[] bytes) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected S deserialize(byte[] bytes, int offset, int length) {
         Kryo kryo = KRYOTHREADLOCAL.get();
         Input input = INPUTTHREADLOCAL.get();
         try {
-            input.setBuffer(bytes);
+            input.setBuffer(bytes, offset, length);
             //因为序列化已经把需要的类型信息写入到该字节数组了，所以直接转就可以了
             return (S) kryo.readClassAndObject(input);
         } catch (Exception e) {
@@ -86,4 +93,26 @@ public class KryoSerializer<S> extends BaseSerAndDeser<S> {
             input.setBuffer(EMPTY);
         }
     }
+
+    /**
+     * 序列化到线程私有的Output里面，然后直接拷贝到buffer，不需要像output.toBytes()那样每次都创建一个byte[]
+     */
+    @Override
+    public int serialize(S obj, ByteBuffer buffer) {
+        Kryo kryo = KRYOTHREADLOCAL.get();
+        Output output = OUTPUTTHREADLOCAL.get();
+        try {
+            try {
+                kryo.writeClassAndObject(output, obj);
+                output.flush();
+            } catch (Exception e) {
+                throw new SerializerException("Can not serialize object : " + obj, e);
+            }
+            int length = output.position();
+            buffer.put(output.getBuffer(), 0, length);
+            return length;
+        } finally {
+            output.reset();
+        }
+    }
 }
@@ -2,11 +2,16 @@ package com.lee.cache.serializer.protostuff;
 
 import com.lee.cache.exception.SerializerException;
 import com.lee.cache.serializer.BaseSerAndDeser;
+import com.lee.cache.serializer.ByteBufferOutputStream;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
 /**
  * 由于protostuff序列化的时候不需要类型信息，它使用的Schema，也就是在运行的时候动态生成Schema，并缓存
  * 所以它不方便来序列化任何对象类型，因为反序列化的时候需要指定对象的类型，除非反序列化提供一个类型
@@ -40,12 +45,43 @@ public class ProtoStuffSerializer<S> extends BaseSerAndDeser<S> {
 
     @Override
     public S deserialize(byte[] bytes) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    protected S deserialize(byte[] bytes, int offset, int length) {
         try {
             S value = schema.newMessage();
-            ProtostuffIOUtil.mergeFrom(bytes, value, schema);
+            ProtostuffIOUtil.mergeFrom(bytes, offset, length, value, schema);
             return value;
         } catch (Exception e) {
             throw new SerializerException("Can not deserialize from bytes with schema " + schema, e);
         }
     }
+
+    /**
+     * 先写入到线程私有的LinkedBuffer里面得到大小，空间足够的话在把LinkedBuffer里面的数据直接写入到目标buffer，
+     * 不会像toByteArray那样再创建一个byte[]
+     */
+    @Override
+    public int serialize(S key, ByteBuffer target) {
+        LinkedBuffer buffer = bufferCache.get();
+        try {
+            int length;
+            try {
+                length = ProtostuffIOUtil.writeTo(buffer, key, schema);
+            } catch (Exception e) {
+                throw new SerializerException("Can not serialize object : " + key, e);
+            }
+            if (target.remaining() < length) {
+                throw new BufferOverflowException();
+            }
+            LinkedBuffer.writeTo(new ByteBufferOutputStream(target), buffer);
+            return length;
+        } catch (IOException e) {
+            throw new SerializerException("Can not write serialized object to buffer : " + key, e);
+        } finally {
+            buffer.clear();
+        }
+    }
 }
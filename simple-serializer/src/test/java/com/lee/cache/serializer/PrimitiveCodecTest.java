@@ -0,0 +1,107 @@
+package com.lee.cache.serializer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveCodecTest {
+
+    private static final List<Long> LONGS = Arrays.asList(
+            Long.MIN_VALUE, Integer.MIN_VALUE - 1L, -256L, -1L, 0L, 1L, 255L, 256L, Integer.MAX_VALUE + 1L, Long.MAX_VALUE
+    );
+    private static final List<Integer> INTS = Arrays.asList(
+            Integer.MIN_VALUE, -65536, -256, -1, 0, 1, 255, 256, 65536, Integer.MAX_VALUE
+    );
+
+    @Test
+    public void testRoundTrip() {
+        byte[] bytes = new byte[10];
+        for (long value : LONGS) {
+            PrimitiveCodec.putLong(bytes, 2, value);
+            assertEquals(value, PrimitiveCodec.getLong(bytes, 2));
+            //和ByteBuffer一样是大端编码
+            assertArrayEquals(ByteBuffer.allocate(8).putLong(value).array(), PrimitiveCodec.toBytes(value));
+
+            PrimitiveCodec.putDouble(bytes, 2, value / 3.0);
+            assertEquals(value / 3.0, PrimitiveCodec.getDouble(bytes, 2), 0);
+        }
+        for (int value : INTS) {
+            PrimitiveCodec.putInt(bytes, 1, value);
+            assertEquals(value, PrimitiveCodec.getInt(bytes, 1));
+            assertArrayEquals(ByteBuffer.allocate(4).putInt(value).array(), PrimitiveCodec.toBytes(value));
+
+            PrimitiveCodec.putShort(bytes, 1, (short) value);
+            assertEquals((short) value, PrimitiveCodec.getShort(bytes, 1));
+            PrimitiveCodec.putChar(bytes, 1, (char) value);
+            assertEquals((char) value, PrimitiveCodec.getChar(bytes, 1));
+            PrimitiveCodec.putFloat(bytes, 1, value / 3.0f);
+            assertEquals(value / 3.0f, PrimitiveCodec.getFloat(bytes, 1), 0);
+        }
+    }
+
+    @Test
+    public void testSortable() {
+        //按照无符号字节比较的顺序和数值的顺序一致，负数排在正数前面
+        for (int i = 1; i < LONGS.size(); i++) {
+            byte[] previous = DefaultSerializer.SORTABLE_LONG_SERIALIZER.serialize(LONGS.get(i - 1));
+            byte[] current = DefaultSerializer.SORTABLE_LONG_SERIALIZER.serialize(LONGS.get(i));
+            assertTrue(LONGS.get(i) + " should sort after " + LONGS.get(i - 1), compare(previous, current) < 0);
+            assertEquals(LONGS.get(i), DefaultSerializer.SORTABLE_LONG_SERIALIZER.deserialize(current));
+            assertEquals(LONGS.get(i).longValue(), PrimitiveCodec.getLongSortable(current, 0));
+        }
+        for (int i = 1; i < INTS.size(); i++) {
+            byte[] previous = DefaultSerializer.SORTABLE_INTEGER_SERIALIZER.serialize(INTS.get(i - 1));
+            byte[] current = DefaultSerializer.SORTABLE_INTEGER_SERIALIZER.serialize(INTS.get(i));
+            assertTrue(INTS.get(i) + " should sort after " + INTS.get(i - 1), compare(previous, current) < 0);
+            assertEquals(INTS.get(i), DefaultSerializer.SORTABLE_INTEGER_SERIALIZER.deserialize(current));
+            assertEquals(INTS.get(i).intValue(), PrimitiveCodec.getIntSortable(current, 0));
+        }
+    }
+
+    @Test
+    public void testByteBuffer() {
+        for (long value : LONGS) {
+            for (Serializer<Long> serializer : Arrays.asList(
+                    DefaultSerializer.LONG_SERIALIZER, DefaultSerializer.SORTABLE_LONG_SERIALIZER)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+                assertEquals(8, serializer.serialize(value, buffer));
+                buffer.flip();
+                assertArrayEquals(serializer.serialize(value), copy(buffer));
+
+                //反序列化以后position移动到limit
+                assertEquals(Long.valueOf(value), serializer.deserialize(buffer));
+                assertEquals(buffer.limit(), buffer.position());
+            }
+        }
+        for (int value : INTS) {
+            for (Serializer<Integer> serializer : Arrays.asList(
+                    DefaultSerializer.INTEGER_SERIALIZER, DefaultSerializer.SORTABLE_INTEGER_SERIALIZER)) {
+                ByteBuffer buffer = ByteBuffer.allocate(4);
+                serializer.serialize(value, buffer);
+                buffer.flip();
+                assertEquals(Integer.valueOf(value), serializer.deserialize(buffer));
+                assertEquals(buffer.limit(), buffer.position());
+            }
+        }
+    }
+
+    private static byte[] copy(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static int compare(byte[] left, byte[] right) {
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            int result = (left[i] & 0xFF) - (right[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return left.length - right.length;
+    }
+}
@@ -0,0 +1,53 @@
+package com.lee.cache.serializer;
+
+import com.lee.cache.serializer.protostuff.ProtoStuffSerializer;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SerializerTest {
+
+    @Test
+    public void testByteBufferRoundTrip() {
+        Serializer<String> serializer = new ProtoStuffSerializer<>(String.class);
+        //大的value超过了线程私有数组保留的大小，反序列化direct buffer的时候使用临时数组
+        for (String value : Arrays.asList("value", StringUtils.repeat('v', 2 * BaseSerAndDeser.RETAIN_SCRATCH_SIZE))) {
+            byte[] bytes = serializer.serialize(value);
+            for (ByteBuffer buffer : Arrays.asList(
+                    ByteBuffer.allocate(bytes.length + 1), ByteBuffer.allocateDirect(bytes.length + 1))) {
+                buffer.position(1);
+                assertEquals(bytes.length, serializer.serialize(value, buffer));
+                assertEquals(bytes.length + 1, buffer.position());
+
+                buffer.flip().position(1);
+                assertEquals(value, serializer.deserialize(buffer));
+                assertEquals(buffer.limit(), buffer.position());
+            }
+        }
+
+        try {
+            serializer.serialize("value", ByteBuffer.allocateDirect(2));
+            fail("buffer is too small");
+        } catch (BufferOverflowException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testScratch() {
+        byte[] scratch = BaseSerAndDeser.scratch(16);
+        assertSame(scratch, BaseSerAndDeser.scratch(16));
+
+        //超过保留大小的只用一次，线程里面留下的数组不会跟着变大
+        byte[] large = BaseSerAndDeser.scratch(BaseSerAndDeser.RETAIN_SCRATCH_SIZE + 1);
+        assertNotSame(large, BaseSerAndDeser.scratch(BaseSerAndDeser.RETAIN_SCRATCH_SIZE + 1));
+        assertSame(scratch, BaseSerAndDeser.scratch(16));
+        assertTrue(BaseSerAndDeser.scratch(BaseSerAndDeser.RETAIN_SCRATCH_SIZE).length
+                <= BaseSerAndDeser.RETAIN_SCRATCH_SIZE);
+    }
+}